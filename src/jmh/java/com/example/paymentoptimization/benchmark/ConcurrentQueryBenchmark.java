@@ -0,0 +1,57 @@
+package com.example.paymentoptimization.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query throughput with one thread per core calling {@code processPayment} on the same graph, which exercises the
+ * lock-free snapshot reads and the pooled search workspaces. Use {@code -t} to measure other thread counts.
+ * {@code hotPair} and {@code hotOrigin} model a settlement window, where every thread routes the same pair or from
+ * the same origin and concurrent queries share searches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ConcurrentQueryBenchmark {
+
+    @Param({"grid:100000", "scale-free:100000"})
+    public String graph;
+
+    @Param({"workspace-dijkstra", "contraction-hierarchy"})
+    public String engine;
+
+    private PaymentFixture fixture;
+    private String[][] pairs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        fixture = new PaymentFixture(engine, GraphFamilies.generate(graph, 42)).awaitReady();
+        pairs = GraphFamilies.pairs(GraphFamilies.size(graph), 4_096, 7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public String processPayment(RoutingBenchmark.Cursor cursor) {
+        String[] pair = cursor.next(pairs);
+        return fixture.optimizer.processPayment(pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public String hotPair() {
+        return fixture.optimizer.processPayment(pairs[0][0], pairs[0][1]);
+    }
+
+    @Benchmark
+    public String hotOrigin(RoutingBenchmark.Cursor cursor) {
+        return fixture.optimizer.processPayment(pairs[0][0], cursor.next(pairs)[1]);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.paymentoptimization.benchmark;
+
+import com.example.paymentoptimization.model.GraphMutation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic branch networks for benchmarks, described as {@code family:size}, e.g. {@code grid:10000}.
+ * Branch {@code i} is named {@code B<i>} and costs 1..20; every edge is added in both directions so that random
+ * origin/destination pairs are usually connected.
+ * <ul>
+ *     <li>{@code grid}: a square lattice, a stand-in for regional networks with long routes</li>
+ *     <li>{@code scale-free}: preferential attachment with three links per new branch, giving a few hub branches</li>
+ *     <li>{@code complete}: every branch linked to every other one, the densest possible graph</li>
+ *     <li>{@code chain}: a single line of branches, the longest possible routes</li>
+ * </ul>
+ */
+final class GraphFamilies {
+    private static final int MAX_COST = 20;
+
+    private GraphFamilies() {
+    }
+
+    static int size(String spec) {
+        return Integer.parseInt(spec.substring(spec.indexOf(':') + 1));
+    }
+
+    static List<GraphMutation> generate(String spec, long seed) {
+        String family = spec.substring(0, spec.indexOf(':'));
+        int size = size(spec);
+        Random random = new Random(seed);
+        List<GraphMutation> mutations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            mutations.add(GraphMutation.addBranch(name(i), 1 + random.nextInt(MAX_COST)));
+        }
+        switch (family) {
+            case "grid" -> grid(size, mutations);
+            case "scale-free" -> scaleFree(size, random, mutations);
+            case "complete" -> complete(size, mutations);
+            case "chain" -> chain(size, mutations);
+            default -> throw new IllegalArgumentException("Unknown graph family " + family);
+        }
+        return mutations;
+    }
+
+    static String name(int id) {
+        return "B" + id;
+    }
+
+    /**
+     * @return {@code count} random origin/destination pairs of distinct branches
+     */
+    static String[][] pairs(int size, int count, long seed) {
+        Random random = new Random(seed);
+        String[][] pairs = new String[count][];
+        for (int i = 0; i < count; i++) {
+            int origin = random.nextInt(size);
+            int destination = (origin + 1 + random.nextInt(size - 1)) % size;
+            pairs[i] = new String[]{name(origin), name(destination)};
+        }
+        return pairs;
+    }
+
+    private static void grid(int size, List<GraphMutation> mutations) {
+        int width = (int) Math.ceil(Math.sqrt(size));
+        for (int i = 0; i < size; i++) {
+            if ((i + 1) % width != 0 && i + 1 < size) {
+                link(i, i + 1, mutations);
+            }
+            if (i + width < size) {
+                link(i, i + width, mutations);
+            }
+        }
+    }
+
+    private static void scaleFree(int size, Random random, List<GraphMutation> mutations) {
+        int links = 3;
+        // Every edge endpoint is recorded once, so sampling from it picks branches proportionally to their degree
+        int[] endpoints = new int[2 * links * size];
+        int count = 0;
+        for (int i = 1; i <= Math.min(links, size - 1); i++) {
+            link(0, i, mutations);
+            endpoints[count++] = 0;
+            endpoints[count++] = i;
+        }
+        for (int i = links + 1; i < size; i++) {
+            for (int j = 0; j < links; j++) {
+                int target = endpoints[random.nextInt(count)];
+                link(i, target, mutations);
+                endpoints[count++] = i;
+                endpoints[count++] = target;
+            }
+        }
+    }
+
+    private static void complete(int size, List<GraphMutation> mutations) {
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                link(i, j, mutations);
+            }
+        }
+    }
+
+    private static void chain(int size, List<GraphMutation> mutations) {
+        for (int i = 0; i + 1 < size; i++) {
+            link(i, i + 1, mutations);
+        }
+    }
+
+    private static void link(int a, int b, List<GraphMutation> mutations) {
+        mutations.add(GraphMutation.addEdge(name(a), name(b)));
+        mutations.add(GraphMutation.addEdge(name(b), name(a)));
+    }
+}
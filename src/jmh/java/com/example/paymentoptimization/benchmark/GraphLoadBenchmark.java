@@ -0,0 +1,82 @@
+package com.example.paymentoptimization.benchmark;
+
+import com.example.paymentoptimization.config.BranchConfig;
+import com.example.paymentoptimization.config.EdgeConfig;
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
+import com.example.paymentoptimization.service.GraphInitializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a whole graph in one batch, as the application does at startup: from a list of mutations as bound
+ * from YAML, streamed from CSV files held in memory, and mapped from a binary snapshot file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GraphLoadBenchmark {
+
+    @Param({"grid:10000", "grid:100000", "scale-free:100000", "complete:1000", "chain:100000"})
+    public String graph;
+
+    private List<GraphMutation> mutations;
+    private Resource branchesCsv;
+    private Resource edgesCsv;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mutations = GraphFamilies.generate(graph, 42);
+        StringBuilder branches = new StringBuilder();
+        StringBuilder edges = new StringBuilder();
+        for (GraphMutation mutation : mutations) {
+            if (mutation.getType() == GraphMutation.Type.ADD_BRANCH) {
+                branches.append(mutation.getName()).append(',').append(mutation.getCost()).append('\n');
+            } else {
+                edges.append(mutation.getFrom()).append(',').append(mutation.getTo()).append('\n');
+            }
+        }
+        branchesCsv = new ByteArrayResource(branches.toString().getBytes(StandardCharsets.UTF_8));
+        edgesCsv = new ByteArrayResource(edges.toString().getBytes(StandardCharsets.UTF_8));
+        snapshot = Files.createTempFile("graph", ".snapshot");
+        GraphSnapshotFile.write(new Graph().apply(mutations), snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public CompactGraph load() {
+        return new Graph().apply(mutations);
+    }
+
+    @Benchmark
+    public CompactGraph loadCsv() throws IOException {
+        GraphInitializer initializer = new GraphInitializer(new Graph(), new BranchConfig(), new EdgeConfig(),
+                new GraphLoaderConfig(), new PersistenceConfig());
+        return initializer.loadCsv(branchesCsv, edgesCsv);
+    }
+
+    @Benchmark
+    public CompactGraph mapSnapshot() throws IOException {
+        return new Graph().restore(GraphSnapshotFile.read(snapshot));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.paymentoptimization.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readers calling {@code processPayment} while a writer keeps adding edges, as when new correspondent links are
+ * registered during business hours. JMH reports the reader and writer throughput separately. Every added edge
+ * publishes a new snapshot, so the graph is recreated for each iteration to keep iterations comparable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class MixedWorkloadBenchmark {
+
+    @Param({"grid:10000", "scale-free:10000"})
+    public String graph;
+
+    @Param({"workspace-dijkstra"})
+    public String engine;
+
+    private PaymentFixture fixture;
+    private String[][] pairs;
+    private int size;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws InterruptedException {
+        fixture = new PaymentFixture(engine, GraphFamilies.generate(graph, 42)).awaitReady();
+        size = GraphFamilies.size(graph);
+        pairs = GraphFamilies.pairs(size, 1_024, 7);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private final Random random = new Random(11);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public String query(RoutingBenchmark.Cursor cursor) {
+        String[] pair = cursor.next(pairs);
+        return fixture.optimizer.processPayment(pair[0], pair[1]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void addEdge(Writer writer) {
+        fixture.graph.addEdge(GraphFamilies.name(writer.random.nextInt(size)), GraphFamilies.name(writer.random.nextInt(size)));
+    }
+}
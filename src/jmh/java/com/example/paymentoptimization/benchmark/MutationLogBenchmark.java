@@ -0,0 +1,87 @@
+package com.example.paymentoptimization.benchmark;
+
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
+import com.example.paymentoptimization.service.MutationLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable edge additions: many writers add an edge and wait until it is in the mutation log, as the API does.
+ * Writers are batched twice, into one snapshot by the graph and into one sync by the log, so the throughput grows
+ * with the number of writers until the graph rebuild dominates. {@code addEdgeInMemory} is the same without the log.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(64)
+@State(Scope.Benchmark)
+public class MutationLogBenchmark {
+
+    @Param({"grid:1000", "grid:10000"})
+    public String graph;
+
+    @Param({"true", "false"})
+    public boolean fsync;
+
+    private Path directory;
+    private Graph live;
+    private MutationLog log;
+    private int size;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mutation-log");
+        GraphLoaderConfig graphLoaderConfig = new GraphLoaderConfig();
+        graphLoaderConfig.setSnapshot(directory.resolve("graph.snapshot"));
+        PersistenceConfig persistenceConfig = new PersistenceConfig();
+        persistenceConfig.setLog(directory.resolve("mutations.log"));
+        persistenceConfig.setFsync(fsync);
+        persistenceConfig.setCompactAfter(Integer.MAX_VALUE);
+
+        live = new Graph();
+        live.apply(GraphFamilies.generate(graph, 42));
+        GraphSnapshotFile.write(live.snapshot(), graphLoaderConfig.getSnapshot());
+        log = new MutationLog(live, persistenceConfig, graphLoaderConfig);
+        log.open();
+        size = GraphFamilies.size(graph);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private final Random random = new Random(Thread.currentThread().getId());
+    }
+
+    @Benchmark
+    public void addEdge(Writer writer) {
+        CompactGraph published = live.addEdge(GraphFamilies.name(writer.random.nextInt(size)),
+                GraphFamilies.name(writer.random.nextInt(size)));
+        log.whenDurable(published.version()).join();
+    }
+
+    @Benchmark
+    public CompactGraph addEdgeInMemory(Writer writer) {
+        return live.addEdge(GraphFamilies.name(writer.random.nextInt(size)),
+                GraphFamilies.name(writer.random.nextInt(size)));
+    }
+}
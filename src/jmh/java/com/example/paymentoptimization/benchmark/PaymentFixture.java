@@ -0,0 +1,86 @@
+package com.example.paymentoptimization.benchmark;
+
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.routing.*;
+import com.example.paymentoptimization.service.MutationLog;
+import com.example.paymentoptimization.service.PaymentOptimizer;
+import com.example.paymentoptimization.service.RouteCache;
+import com.example.paymentoptimization.service.RoutingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A {@link PaymentOptimizer} wired by hand the way the application context wires it, with the route cache
+ * disabled so that every call measures a search.
+ */
+final class PaymentFixture implements AutoCloseable {
+    private static final Duration INDEX_TIMEOUT = Duration.ofMinutes(5);
+
+    final Graph graph = new Graph();
+    final PaymentOptimizer optimizer;
+    private final RoutingEngine engine;
+    private final List<RoutingEngine> engines;
+    private final ReachabilityIndex reachability;
+    private final boolean reachabilityEnabled;
+
+    PaymentFixture(String engineName, List<GraphMutation> mutations) {
+        this(engineName, mutations, true);
+    }
+
+    PaymentFixture(String engineName, List<GraphMutation> mutations, boolean reachabilityEnabled) {
+        graph.apply(mutations);
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.setEngine(engineName);
+        routingConfig.getRouteCache().setEnabled(false);
+        routingConfig.getReachability().setEnabled(reachabilityEnabled);
+        this.reachabilityEnabled = reachabilityEnabled;
+        engines = List.of(new DijkstraEngine(), new WorkspaceDijkstraEngine(), new DialEngine(routingConfig),
+                new BidirectionalDijkstraEngine(), new AltEngine(graph, routingConfig),
+                new ContractionHierarchyEngine(graph, routingConfig), new AllPairsEngine(graph, routingConfig),
+                new DeltaSteppingEngine(routingConfig));
+        RoutingEngines routingEngines = new RoutingEngines(engines, routingConfig);
+        engine = routingEngines.get(engineName);
+        reachability = new ReachabilityIndex(graph, routingConfig);
+        optimizer = new PaymentOptimizer(graph, new RouteCache(graph, routingConfig), routingEngines, reachability,
+                new RoutingMetrics(new SimpleMeterRegistry(), graph, routingConfig),
+                new MutationLog(graph, new PersistenceConfig(), new GraphLoaderConfig()), Runnable::run);
+    }
+
+    /**
+     * Waits until the engine's preprocessed index and the reachability index match the current graph, so that
+     * measurements do not include queries answered by a fallback.
+     */
+    PaymentFixture awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + INDEX_TIMEOUT.toNanos();
+        while (!engine.isReady(graph.snapshot())
+                || (reachabilityEnabled && !reachability.isReady(graph.snapshot()))) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(engine.getName() + " did not build its index within " + INDEX_TIMEOUT);
+            }
+            Thread.sleep(50);
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        reachability.shutdown();
+        for (RoutingEngine routingEngine : engines) {
+            if (routingEngine instanceof AltEngine alt) {
+                alt.shutdown();
+            } else if (routingEngine instanceof ContractionHierarchyEngine hierarchy) {
+                hierarchy.shutdown();
+            } else if (routingEngine instanceof AllPairsEngine allPairs) {
+                allPairs.shutdown();
+            } else if (routingEngine instanceof DeltaSteppingEngine deltaStepping) {
+                deltaStepping.shutdown();
+            }
+        }
+    }
+}
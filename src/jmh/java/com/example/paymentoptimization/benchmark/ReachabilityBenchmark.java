@@ -0,0 +1,59 @@
+package com.example.paymentoptimization.benchmark;
+
+import com.example.paymentoptimization.model.GraphMutation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@code processPayment} for pairs without a route, with and without the reachability index.
+ * Every query goes from a random branch to one isolated branch, so without the index each of them searches
+ * everything its origin reaches before giving up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReachabilityBenchmark {
+    private static final String ISLAND = "Island";
+
+    @Param({"grid:10000", "grid:100000", "scale-free:100000"})
+    public String graph;
+
+    @Param({"true", "false"})
+    public boolean reachability;
+
+    private PaymentFixture fixture;
+    private String[][] pairs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        List<GraphMutation> mutations = new ArrayList<>(GraphFamilies.generate(graph, 42));
+        mutations.add(GraphMutation.addBranch(ISLAND, 1));
+        fixture = new PaymentFixture("workspace-dijkstra", mutations, reachability).awaitReady();
+        pairs = GraphFamilies.pairs(GraphFamilies.size(graph), 1_024, 7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String next(String[][] pairs) {
+            return pairs[next++ & (pairs.length - 1)][0];
+        }
+    }
+
+    @Benchmark
+    public String unreachable(Cursor cursor) {
+        return fixture.optimizer.processPayment(cursor.next(pairs), ISLAND);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.paymentoptimization.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a single {@code processPayment} call per graph family, size and engine.
+ * Every call routes a different pre-generated pair; the route cache is disabled. Preprocessing engines are
+ * measured once their index is ready. Complete graphs are kept small because contracting them costs roughly
+ * the fourth power of their size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    @Param({"grid:10000", "grid:100000", "scale-free:10000", "scale-free:100000",
+            "complete:300", "chain:1000", "chain:10000"})
+    public String graph;
+
+    @Param({"workspace-dijkstra", "dial", "bidirectional-dijkstra", "alt", "contraction-hierarchy",
+            "delta-stepping"})
+    public String engine;
+
+    private PaymentFixture fixture;
+    private String[][] pairs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        fixture = new PaymentFixture(engine, GraphFamilies.generate(graph, 42)).awaitReady();
+        pairs = GraphFamilies.pairs(GraphFamilies.size(graph), 1_024, 7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String[] next(String[][] pairs) {
+            return pairs[next++ & (pairs.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public String processPayment(Cursor cursor) {
+        String[] pair = cursor.next(pairs);
+        return fixture.optimizer.processPayment(pair[0], pair[1]);
+    }
+}
@@ -1,60 +1,138 @@
 package com.example.paymentoptimization.api;
 
+import com.example.paymentoptimization.config.AsyncConfig;
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.CostTableEntry;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
 import com.example.paymentoptimization.service.PaymentService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/payments")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class PaymentController {
 
-    private final PaymentService paymentService;
+    public static final String GRAPH_VERSION_HEADER = "X-Graph-Version";
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
-    public PaymentController(PaymentService paymentService) {
+    private final PaymentService paymentService;
+    private final int bulkMaxOperations;
+    private final ObjectWriter costTableWriter;
+    private final ObjectReader graphOperationReader;
+
+    /**
+     * @param objectMapper the application's mapper, so that streamed rows and operations are (de)serialised with the
+     * same settings as every other request and response body
+     */
+    public PaymentController(PaymentService paymentService, ObjectMapper objectMapper, AsyncConfig asyncConfig) {
         this.paymentService = paymentService;
+        this.bulkMaxOperations = asyncConfig.getMutations().getBulkMaxOperations();
+        this.costTableWriter = objectMapper.writerFor(CostTableEntry.class).withRootValueSeparator("\n");
+        this.graphOperationReader = objectMapper.readerFor(GraphOperation.class);
     }
 
+    /**
+     * Mutations complete asynchronously: the request thread is released while the change waits for the
+     * mutation executor, and a full executor queue is answered with 503 so that clients back off.
+     */
     @PostMapping("/addBranch")
-    public ResponseEntity<String> addBranch(
+    public CompletableFuture<ResponseEntity<String>> addBranch(
             @RequestParam String name,
             @RequestParam int cost) {
 
-        try {
-            paymentService.addBranchAsync(name, cost).join();
-            return ResponseEntity.ok("Branch added successfully");
-        } catch (CompletionException e) {
-            // Handle the CompletionException thrown by CompletableFuture.join()
-            Throwable cause = e.getCause();
-            String errorMessage = cause != null ? cause.getMessage() : "Unknown error occurred when trying to add new branch";
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorMessage);
-        } catch (Exception e) {
-            // Handle any other exceptions
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        if (cost < 0) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Branch cost must not be negative"));
         }
+        return mutate(() -> paymentService.addBranchAsync(name, cost),
+                "Branch added successfully", "Unknown error occurred when trying to add new branch");
     }
 
     @PostMapping("/addEdge")
-    public ResponseEntity<String> addEdge(
+    public CompletableFuture<ResponseEntity<String>> addEdge(
             @RequestParam String from,
             @RequestParam String to) {
 
         try {
             if (paymentService.isInvalidBranch(from) || paymentService.isInvalidBranch(to)) {
-                return ResponseEntity.badRequest().body("One or both branches do not exist");
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body("One or both branches do not exist"));
             }
-
-            paymentService.addEdgeAsync(from, to).join();
-            return ResponseEntity.ok("Edge added successfully");
-        } catch (CompletionException e) {
-            Throwable cause = e.getCause();
-            String errorMessage = cause != null ? cause.getMessage() : "Unknown error occurred when trying to add new edge";
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorMessage);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage()));
         }
+
+        return mutate(() -> paymentService.addEdgeAsync(from, to),
+                "Edge added successfully", "Unknown error occurred when trying to add new edge");
+    }
+
+    /**
+     * Applies many branch and edge operations as one graph update, so caches and indexes are refreshed once for the
+     * whole batch. The body is a JSON array or newline-delimited JSON of {@link GraphOperation}s and is parsed as it
+     * is read. An invalid batch is answered with 400 and its first errors, and a batch of more than
+     * {@code async-config.mutations.bulk-max-operations} operations with 413; in both cases nothing is applied.
+     */
+    @PostMapping(value = "/graph/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public CompletableFuture<ResponseEntity<BulkResult>> applyBulk(InputStream body) {
+        List<GraphOperation> operations;
+        try {
+            operations = readOperations(body);
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(BulkResult.rejected(List.of("Malformed operation: " + e.getMessage()))));
+        }
+        if (operations.size() > bulkMaxOperations) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(tooManyOperations(bulkMaxOperations)));
+        }
+
+        CompletableFuture<BulkResult> pending;
+        try {
+            pending = paymentService.applyBulkAsync(operations);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(BulkResult.rejected(List.of("Too many pending graph changes, try again later"))));
+        }
+        return pending.handle((result, failure) -> {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(BulkResult.rejected(List.of(String.valueOf(cause.getMessage()))));
+            }
+            if (!result.isApplied()) {
+                return ResponseEntity.badRequest().body(result);
+            }
+            return ResponseEntity.ok()
+                    .header(GRAPH_VERSION_HEADER, String.valueOf(result.getGraphVersion()))
+                    .body(result);
+        });
     }
 
     @GetMapping("/process")
@@ -71,12 +149,100 @@ public class PaymentController {
             return ResponseEntity.badRequest().body("One or both branches do not exist");
         }
 
-        String cheapestPath = paymentService.processPayment(origin, destination);
+        PaymentRoute cheapestRoute = paymentService.findRoute(origin, destination);
 
-        if (cheapestPath == null) {
+        if (cheapestRoute == null || !cheapestRoute.isFound()) {
             return ResponseEntity.badRequest().body("No valid path found");
         }
 
-        return ResponseEntity.ok(cheapestPath);
+        return ResponseEntity.ok()
+                .header(GRAPH_VERSION_HEADER, String.valueOf(cheapestRoute.getGraphVersion()))
+                .body(cheapestRoute.getPath());
+    }
+
+    /**
+     * Routes many origin/destination pairs in one request. Every pair gets a result in the input order,
+     * either a path or the reason there is none, so one bad pair does not fail the batch.
+     */
+    @PostMapping("/process/batch")
+    public ResponseEntity<List<RouteResult>> processPayments(@RequestBody List<RouteRequest> requests) {
+        return ResponseEntity.ok(paymentService.findRoutes(requests));
+    }
+
+    /**
+     * Streams the cheapest cost from the origin to every reachable branch, or to the given destinations only,
+     * as newline-delimited JSON, one {@link CostTableEntry} per line. Rows are written as they are serialised,
+     * so the response for a large graph never has to be held in memory as a whole.
+     */
+    @GetMapping("/costs")
+    public ResponseEntity<StreamingResponseBody> costTable(
+            @RequestParam String origin,
+            @RequestParam(required = false) List<String> destinations) {
+
+        if (origin == null || origin.isEmpty()) {
+            return ResponseEntity.badRequest().body(text("Invalid origin branch"));
+        }
+
+        CostTable table = paymentService.findCostTable(origin, destinations);
+        if (table == null) {
+            return ResponseEntity.badRequest().body(text("One or more branches do not exist"));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter rows = costTableWriter.writeValues(outputStream)) {
+                for (CostTableEntry entry : table) {
+                    rows.write(entry);
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(GRAPH_VERSION_HEADER, String.valueOf(table.getGraphVersion()))
+                .body(body);
+    }
+
+    private static CompletableFuture<ResponseEntity<String>> mutate(
+            Supplier<CompletableFuture<Void>> mutation, String success, String unknownError) {
+
+        CompletableFuture<Void> pending;
+        try {
+            pending = mutation.get();
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many pending graph changes, try again later"));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage()));
+        }
+        return pending.handle((ignored, failure) -> {
+            if (failure == null) {
+                return ResponseEntity.ok(success);
+            }
+            // Handle the CompletionException the executor wraps failures in
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            String errorMessage = cause != null ? cause.getMessage() : unknownError;
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorMessage);
+        });
+    }
+
+    // Stops after the first operation past the limit, so an oversized batch is never held in memory
+    private List<GraphOperation> readOperations(InputStream body) throws IOException {
+        List<GraphOperation> operations = new ArrayList<>();
+        // Reads the elements of a top-level array as well as a sequence of values
+        try (MappingIterator<GraphOperation> values = graphOperationReader.readValues(body)) {
+            while (operations.size() <= bulkMaxOperations && values.hasNextValue()) {
+                operations.add(values.nextValue());
+            }
+        }
+        return operations;
+    }
+
+    static BulkResult tooManyOperations(int bulkMaxOperations) {
+        return BulkResult.rejected(List.of("A bulk change may have at most " + bulkMaxOperations + " operations"));
+    }
+
+    private static StreamingResponseBody text(String message) {
+        return outputStream -> outputStream.write(message.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,170 @@
+package com.example.paymentoptimization.api;
+
+import com.example.paymentoptimization.config.AsyncConfig;
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.CostTableEntry;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
+import com.example.paymentoptimization.service.PaymentService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variant of {@link PaymentController}, serving the same endpoints with the same responses when the
+ * application is started with {@code spring.main.web-application-type=reactive}.
+ * Searches are CPU-bound and run on the bounded search scheduler, never on the event loop; mutations are already
+ * asynchronous and are exposed as publishers of the service's futures instead of being joined.
+ */
+@RestController
+@RequestMapping("/api/payments")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePaymentController {
+
+    private final PaymentService paymentService;
+    private final Scheduler searchScheduler;
+    private final int bulkMaxOperations;
+
+    public ReactivePaymentController(PaymentService paymentService,
+                                     @Qualifier(AsyncConfig.SEARCH_SCHEDULER) Scheduler searchScheduler,
+                                     AsyncConfig asyncConfig) {
+        this.paymentService = paymentService;
+        this.searchScheduler = searchScheduler;
+        this.bulkMaxOperations = asyncConfig.getMutations().getBulkMaxOperations();
+    }
+
+    @PostMapping("/addBranch")
+    public Mono<ResponseEntity<String>> addBranch(
+            @RequestParam String name,
+            @RequestParam int cost) {
+
+        if (cost < 0) {
+            return Mono.just(ResponseEntity.badRequest().body("Branch cost must not be negative"));
+        }
+        return mutate(() -> paymentService.addBranchAsync(name, cost),
+                "Branch added successfully", "Unknown error occurred when trying to add new branch");
+    }
+
+    @PostMapping("/addEdge")
+    public Mono<ResponseEntity<String>> addEdge(
+            @RequestParam String from,
+            @RequestParam String to) {
+
+        if (paymentService.isInvalidBranch(from) || paymentService.isInvalidBranch(to)) {
+            return Mono.just(ResponseEntity.badRequest().body("One or both branches do not exist"));
+        }
+        return mutate(() -> paymentService.addEdgeAsync(from, to),
+                "Edge added successfully", "Unknown error occurred when trying to add new edge");
+    }
+
+    @PostMapping(value = "/graph/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<BulkResult>> applyBulk(@RequestBody Flux<GraphOperation> operations) {
+        // Cancels the body after the first operation past the limit, so an oversized batch is never held in memory
+        return operations.take(bulkMaxOperations + 1L).collectList()
+                .flatMap(batch -> batch.size() > bulkMaxOperations
+                        ? Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                                .body(PaymentController.tooManyOperations(bulkMaxOperations)))
+                        : Mono.fromFuture(() -> paymentService.applyBulkAsync(batch))
+                                .map(result -> result.isApplied()
+                                        ? ResponseEntity.ok()
+                                                .header(PaymentController.GRAPH_VERSION_HEADER,
+                                                        String.valueOf(result.getGraphVersion()))
+                                                .body(result)
+                                        : ResponseEntity.badRequest().body(result)))
+                .onErrorResume(TaskRejectedException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(BulkResult.rejected(List.of("Too many pending graph changes, try again later")))));
+    }
+
+    @GetMapping("/process")
+    public Mono<ResponseEntity<String>> processPayment(
+            @RequestParam String origin,
+            @RequestParam String destination) {
+
+        if (origin == null || origin.isEmpty() || destination == null || destination.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body("Invalid origin or destination branch"));
+        }
+
+        return Mono.fromSupplier(() -> {
+            // Validate if origin and destination branches exist
+            if (paymentService.isInvalidBranch(origin) || paymentService.isInvalidBranch(destination)) {
+                return ResponseEntity.badRequest().body("One or both branches do not exist");
+            }
+
+            PaymentRoute cheapestRoute = paymentService.findRoute(origin, destination);
+
+            if (cheapestRoute == null || !cheapestRoute.isFound()) {
+                return ResponseEntity.badRequest().body("No valid path found");
+            }
+
+            return ResponseEntity.ok()
+                    .header(PaymentController.GRAPH_VERSION_HEADER, String.valueOf(cheapestRoute.getGraphVersion()))
+                    .body(cheapestRoute.getPath());
+        }).subscribeOn(searchScheduler);
+    }
+
+    @PostMapping("/process/batch")
+    public Flux<RouteResult> processPayments(@RequestBody List<RouteRequest> requests) {
+        return Mono.fromSupplier(() -> paymentService.findRoutes(requests))
+                .subscribeOn(searchScheduler)
+                .flatMapIterable(results -> results);
+    }
+
+    /**
+     * Emits the cost table as newline-delimited JSON; rows are serialised as the client reads them.
+     */
+    @GetMapping("/costs")
+    public Mono<ResponseEntity<?>> costTable(
+            @RequestParam String origin,
+            @RequestParam(required = false) List<String> destinations) {
+
+        if (origin == null || origin.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().body("Invalid origin branch"));
+        }
+
+        return Mono.<ResponseEntity<?>>fromSupplier(() -> {
+            CostTable table = paymentService.findCostTable(origin, destinations);
+            if (table == null) {
+                return ResponseEntity.badRequest().body("One or more branches do not exist");
+            }
+            Flux<CostTableEntry> rows = Flux.fromIterable(table);
+            return ResponseEntity.ok()
+                    .contentType(PaymentController.NDJSON)
+                    .header(PaymentController.GRAPH_VERSION_HEADER, String.valueOf(table.getGraphVersion()))
+                    .body(rows);
+        }).subscribeOn(searchScheduler);
+    }
+
+    private static Mono<ResponseEntity<String>> mutate(
+            Supplier<CompletableFuture<Void>> mutation, String success, String unknownError) {
+
+        return Mono.fromFuture(mutation)
+                .then(Mono.fromSupplier(() -> ResponseEntity.ok(success)))
+                .onErrorResume(TaskRejectedException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body("Too many pending graph changes, try again later")))
+                .onErrorResume(failure -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    String errorMessage = cause != null ? cause.getMessage() : unknownError;
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorMessage));
+                });
+    }
+}
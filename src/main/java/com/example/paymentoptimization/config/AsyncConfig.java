@@ -0,0 +1,89 @@
+package com.example.paymentoptimization.config;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Execution model for route searches and graph mutations.
+ * Mutations run on a small, bounded pool rather than on the request threads or the common fork-join pool. The
+ * service submits them to {@link #MUTATION_EXECUTOR} itself instead of through {@code @Async}, whose proxy would hold
+ * a pool thread until the returned future completes, including the wait for the mutation log.
+ * When its queue is full new mutations are rejected, which the API reports as 503, so a burst of writers is pushed
+ * back instead of queueing without limit. Request handling itself runs on virtual threads when the runtime supports
+ * them, see {@code spring.threads.virtual.enabled}. The reactive API runs searches on a parallel scheduler with a
+ * fixed number of workers, so CPU-bound work never occupies the event loop.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "async-config")
+@Data
+public class AsyncConfig {
+    public static final String MUTATION_EXECUTOR = "graphMutationExecutor";
+    public static final String SEARCH_SCHEDULER = "routeSearchScheduler";
+
+    private Mutations mutations = new Mutations();
+    private Search search = new Search();
+
+    @Data
+    public static class Mutations {
+        /**
+         * Concurrent publishes are folded into one rebuild under the graph's publish lock,
+         * so a few threads are enough to keep it busy.
+         */
+        private int threads = 2;
+        /**
+         * Mutations waiting for a thread beyond this are rejected.
+         */
+        private int queueCapacity = 1_000;
+        /**
+         * Operations accepted in one bulk change. A larger batch is answered with 413 as soon as the operation past
+         * the limit is read, so a single request cannot fill the heap.
+         */
+        private int bulkMaxOperations = 100_000;
+    }
+
+    @Data
+    public static class Search {
+        /**
+         * Workers of the reactive API's search scheduler; searches are CPU-bound, so more workers than cores only
+         * adds contention.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Bean(name = MUTATION_EXECUTOR)
+    public ThreadPoolTaskExecutor graphMutationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mutations.getThreads());
+        executor.setMaxPoolSize(mutations.getThreads());
+        executor.setQueueCapacity(mutations.getQueueCapacity());
+        executor.setThreadNamePrefix("graph-mutation-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Bean(name = SEARCH_SCHEDULER, destroyMethod = "dispose")
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public Scheduler routeSearchScheduler() {
+        return Schedulers.newParallel("route-search", search.getParallelism());
+    }
+
+    /**
+     * Publishes pool size, active threads, queued and completed tasks as {@code executor.*} metrics
+     * with the tag {@code name=graphMutationExecutor}.
+     */
+    @Bean
+    public MeterBinder graphMutationExecutorMetrics(@Qualifier(MUTATION_EXECUTOR) ThreadPoolTaskExecutor executor) {
+        return registry -> new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), MUTATION_EXECUTOR, Tags.empty())
+                .bindTo(registry);
+    }
+}
@@ -1,9 +1,66 @@
 package com.example.paymentoptimization.config;
 
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Configuration
 @EnableCaching
+@ConfigurationProperties(prefix = "cache-config")
+@Data
 public class CacheConfig {
+    public static final String BRANCHES_CACHE = "branches";
+    private static final int EVICT_ALL_ABOVE = 64;
+
+    private CacheSpec defaults = new CacheSpec();
+    private Map<String, CacheSpec> caches = new LinkedHashMap<>(Map.of(BRANCHES_CACHE, new CacheSpec()));
+
+    @Data
+    public static class CacheSpec {
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+    }
+
+    @Bean
+    public CacheManager cacheManager(Graph graph) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Unknown names must not be cached, otherwise they stay invalid after they are added
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCaffeine(caffeine(defaults));
+        caches.forEach((name, spec) -> cacheManager.registerCustomCache(name, caffeine(spec).build()));
+
+        Cache branches = cacheManager.getCache(BRANCHES_CACHE);
+        graph.addListener((previous, current, mutations) -> {
+            // A bulk change touches more names than are worth evicting one by one
+            if (mutations.size() > EVICT_ALL_ABOVE) {
+                branches.clear();
+                return;
+            }
+            for (GraphMutation mutation : mutations) {
+                if (mutation.getType() == GraphMutation.Type.ADD_BRANCH) {
+                    branches.evict(mutation.getName());
+                }
+            }
+        });
+        return cacheManager;
+    }
+
+    private static Caffeine<Object, Object> caffeine(CacheSpec spec) {
+        return Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getExpireAfterWrite())
+                .recordStats();
+    }
 }
@@ -0,0 +1,35 @@
+package com.example.paymentoptimization.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Path;
+
+/**
+ * Optional CSV files streamed into the graph at startup, after the branches and edges of
+ * {@link BranchConfig} and {@link EdgeConfig}. Meant for topologies too large for YAML property binding.
+ * With a snapshot file configured, the graph built from all of these is saved once and later startups map the
+ * file instead of reading the configuration again.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "graph-loader")
+@Data
+public class GraphLoaderConfig {
+    /**
+     * Lines of {@code name,cost}, e.g. {@code file:/data/branches.csv}.
+     */
+    private Resource branches;
+    /**
+     * Lines of {@code from,to}; both branches must exist once the branch file has been read.
+     */
+    private Resource edges;
+    /**
+     * Binary graph snapshot, see {@link com.example.paymentoptimization.model.GraphSnapshotFile}. When the file
+     * exists it replaces the branches, edges and CSV files above, so later changes to them are not loaded; apply
+     * those through the API instead. With {@code persistence.log} the snapshot also holds the changes compacted from
+     * the log, and startup fails rather than rebuilding the graph without them if it is missing or unreadable.
+     */
+    private Path snapshot;
+}
@@ -0,0 +1,38 @@
+package com.example.paymentoptimization.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Durability of branches and edges added at runtime.
+ * Every published change is appended to a write-ahead log, and the log is folded into the graph snapshot of
+ * {@link GraphLoaderConfig#getSnapshot()} from time to time, so a restart maps the snapshot and replays only the
+ * tail of the log. Without a log file runtime changes live in memory only.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "persistence")
+@Data
+public class PersistenceConfig {
+    /**
+     * Write-ahead log file, e.g. {@code /data/mutations.log}. Requires {@code graph-loader.snapshot}.
+     */
+    private Path log;
+    /**
+     * How long the log writer collects further changes before writing and syncing them to disk together.
+     * Longer intervals mean fewer syncs and slower acknowledgements; zero syncs as soon as a change arrives.
+     */
+    private Duration syncInterval = Duration.ofMillis(2);
+    /**
+     * Whether to force each write to the storage device. Without it a crash of the machine, though not of the
+     * process, can lose acknowledged changes.
+     */
+    private boolean fsync = true;
+    /**
+     * Changes logged since the last snapshot after which the graph is saved again and the log emptied.
+     */
+    private int compactAfter = 100_000;
+}
@@ -0,0 +1,116 @@
+package com.example.paymentoptimization.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "routing-config")
+@Data
+public class RoutingConfig {
+    private String engine = "workspace-dijkstra";
+    private RouteCache routeCache = new RouteCache();
+    private Dial dial = new Dial();
+    private Alt alt = new Alt();
+    private ContractionHierarchy contractionHierarchy = new ContractionHierarchy();
+    private AllPairs allPairs = new AllPairs();
+    private Reachability reachability = new Reachability();
+    private DeltaStepping deltaStepping = new DeltaStepping();
+    private Metrics metrics = new Metrics();
+
+    @Data
+    public static class RouteCache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+        /**
+         * Changes adding at most this many edges are repaired: routes the new edges cannot improve are kept for the
+         * new graph version and only the others are searched again. Larger changes clear the cache; 0 always does.
+         */
+        private int repairMaxEdges = 16;
+        /**
+         * Affected routes searched again per change; the rest are dropped and computed on their next request.
+         */
+        private int repairMaxRoutes = 1_000;
+    }
+
+    @Data
+    public static class Dial {
+        /**
+         * Graphs whose highest branch cost exceeds this use the heap-based engine instead, because the bucket
+         * queue needs one bucket per possible cost and scans empty buckets.
+         */
+        private int maxCost = 65_536;
+    }
+
+    @Data
+    public static class Alt {
+        /**
+         * Maintain the landmark index even when another engine is configured.
+         */
+        private boolean enabled = false;
+        private int landmarks = 16;
+        private int activeLandmarks = 4;
+    }
+
+    @Data
+    public static class ContractionHierarchy {
+        /**
+         * Maintain the hierarchy even when another engine is configured.
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class AllPairs {
+        /**
+         * Maintain the table even when another engine is configured.
+         */
+        private boolean enabled = false;
+        /**
+         * The table needs six bytes per ordered pair of branches; larger graphs are routed by search instead.
+         */
+        private int maxBranches = 2_048;
+        /**
+         * Answer from the previous table while a rebuild is running, rather than searching.
+         */
+        private boolean serveStale = true;
+    }
+
+    @Data
+    public static class Reachability {
+        /**
+         * Maintain the reachability index that rejects pairs without a route before searching.
+         */
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class DeltaStepping {
+        /**
+         * Search graphs of at least {@link #minBranches} branches in parallel when a plain search engine is
+         * configured, and for cost tables.
+         */
+        private boolean enabled = true;
+        private int minBranches = 1_000_000;
+        /**
+         * Width of a bucket in cost units; 0 uses half the highest branch cost of the graph.
+         */
+        private int delta = 0;
+        /**
+         * Worker threads of the search; 0 shares the common fork-join pool. Never used with a single worker.
+         */
+        private int parallelism = 0;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * Fraction of route queries whose latency and search statistics are recorded. Counters and gauges are
+         * always exact; timing every query would cost a noticeable share of a cache hit.
+         */
+        private double sampleRate = 0.01;
+    }
+}
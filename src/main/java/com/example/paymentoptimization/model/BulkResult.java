@@ -0,0 +1,33 @@
+package com.example.paymentoptimization.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk graph change: how much was added and the version that contains it, or the reasons the
+ * whole batch was rejected.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult {
+    private final int branches;
+    private final int edges;
+    private final Long graphVersion;
+    private final List<String> errors;
+
+    public static BulkResult applied(int branches, int edges, long graphVersion) {
+        return new BulkResult(branches, edges, graphVersion, null);
+    }
+
+    public static BulkResult rejected(List<String> errors) {
+        return new BulkResult(0, 0, null, errors);
+    }
+
+    @JsonIgnore
+    public boolean isApplied() {
+        return errors == null;
+    }
+}
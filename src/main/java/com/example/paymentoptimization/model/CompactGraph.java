@@ -0,0 +1,386 @@
+package com.example.paymentoptimization.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-optimized, immutable view of the branch network.
+ * Branch names are interned to dense ids, costs live in an {@code int[]} and the adjacency is stored
+ * in compressed-sparse-row form: the neighbours of branch {@code i} are
+ * {@code targets[offsets[i]] .. targets[offsets[i + 1] - 1]}. A reverse index in the same form lists the
+ * branches linking to each branch, for searches that run backwards from the destination.
+ * Search code should resolve names to ids once and then work on ids only.
+ * The int arrays are either on the heap or regions of a memory-mapped {@link GraphSnapshotFile}, read in place.
+ * Every published instance carries the version of the graph it represents; instances are never modified,
+ * so a reader holding one sees a consistent graph no matter what is being added concurrently.
+ */
+public final class CompactGraph {
+    public static final CompactGraph EMPTY = new CompactGraph(0, new NameTable(0), 0, IntArray.EMPTY,
+            IntArray.of(new int[1]), IntArray.EMPTY, IntArray.of(new int[1]), IntArray.EMPTY);
+
+    private final long version;
+    private final NameTable names;
+    private final int size;
+    private final IntArray costs;
+    private final IntArray offsets;
+    private final IntArray targets;
+    private final IntArray reverseOffsets;
+    private final IntArray sources;
+    private final int maxCost;
+
+    CompactGraph(long version, NameTable names, int size, IntArray costs,
+                 IntArray offsets, IntArray targets, IntArray reverseOffsets, IntArray sources) {
+        this.version = version;
+        this.names = names;
+        this.size = size;
+        this.costs = costs;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.reverseOffsets = reverseOffsets;
+        this.sources = sources;
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, costs.get(i));
+        }
+        this.maxCost = max;
+    }
+
+    public static Builder builder() {
+        return new Builder(EMPTY);
+    }
+
+    /**
+     * @return a builder that starts from this graph and leaves it untouched
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * @return the version of the graph this snapshot represents, increasing with every published change
+     */
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int edgeCount() {
+        return offsets.get(size);
+    }
+
+    /**
+     * @return the id of the branch or -1 if it does not exist
+     */
+    public int idOf(String name) {
+        return name == null ? -1 : names.get(name);
+    }
+
+    public String nameOf(int id) {
+        return names.name(id);
+    }
+
+    public int cost(int id) {
+        return costs.get(id);
+    }
+
+    /**
+     * @return the highest branch cost, i.e. the largest weight any single edge can add to a route
+     */
+    public int maxCost() {
+        return maxCost;
+    }
+
+    /**
+     * @return the index of the first outgoing edge of the branch
+     */
+    public int edgesStart(int id) {
+        return offsets.get(id);
+    }
+
+    /**
+     * @return the index after the last outgoing edge of the branch
+     */
+    public int edgesEnd(int id) {
+        return offsets.get(id + 1);
+    }
+
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    /**
+     * @return the index of the first incoming edge of the branch in the reverse index
+     */
+    public int reverseEdgesStart(int id) {
+        return reverseOffsets.get(id);
+    }
+
+    /**
+     * @return the index after the last incoming edge of the branch in the reverse index
+     */
+    public int reverseEdgesEnd(int id) {
+        return reverseOffsets.get(id + 1);
+    }
+
+    /**
+     * @return the branch an incoming edge starts from
+     */
+    public int source(int reverseEdge) {
+        return sources.get(reverseEdge);
+    }
+
+    /**
+     * @return the same graph stamped with another version, sharing all of its storage
+     */
+    CompactGraph withVersion(long newVersion) {
+        return new CompactGraph(newVersion, names, size, costs, offsets, targets, reverseOffsets, sources);
+    }
+
+    /**
+     * @return a read-only view describing the whole graph as mutations: every branch, then every edge
+     */
+    List<GraphMutation> asMutations() {
+        int edges = edgeCount();
+        return new AbstractList<>() {
+            @Override
+            public GraphMutation get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                if (index < CompactGraph.this.size) {
+                    return GraphMutation.addBranch(names.name(index), costs.get(index));
+                }
+                int edge = index - CompactGraph.this.size;
+                int from = sourceOfEdge(edge);
+                return GraphMutation.addEdge(names.name(from), names.name(targets.get(edge)));
+            }
+
+            @Override
+            public int size() {
+                return CompactGraph.this.size + edges;
+            }
+        };
+    }
+
+    // Binary search of the row containing a forward edge
+    private int sourceOfEdge(int edge) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets.get(middle) <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    public Branch getBranch(String name) {
+        int id = idOf(name);
+        return id < 0 ? null : new Branch(name, costs.get(id));
+    }
+
+    /**
+     * @return a read-only view of the neighbour names, backed by the adjacency arrays
+     */
+    public List<String> getNeighborList(String name) {
+        int id = idOf(name);
+        if (id < 0) {
+            return List.of();
+        }
+        int start = offsets.get(id);
+        int end = offsets.get(id + 1);
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= end - start) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return names.name(targets.get(start + index));
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    /**
+     * Collects branch and edge additions on top of a base graph and produces a new {@link CompactGraph}.
+     * The base graph is never modified; a builder is single-use and not thread-safe.
+     */
+    public static final class Builder {
+        private final CompactGraph base;
+        private NameTable names;
+        private int[] costs;  // null until the first branch is added or updated
+        private int size;
+        private int[] edgeFrom = new int[16];
+        private int[] edgeTo = new int[16];
+        private int addedEdges;
+        private int[] addedBranches = new int[16];
+        private int branchAdditions;
+
+        private Builder(CompactGraph base) {
+            this.base = base;
+            this.names = base.names;
+            this.size = base.size;
+        }
+
+        /**
+         * Adds a branch, or updates the cost of an existing one.
+         * @return the id of the branch
+         * @throws IllegalArgumentException if the cost is negative, which no routing engine supports
+         */
+        public int addBranch(String name, int cost) {
+            if (cost < 0) {
+                throw new IllegalArgumentException("Branch " + name + " has a negative cost: " + cost);
+            }
+            int id = names.get(name);
+            if (id < 0) {
+                if (names == base.names) {
+                    names = base.names.copy();
+                }
+                id = names.intern(name);
+                size = id + 1;
+            }
+            if (costs == null) {
+                costs = base.costs.toArray(Math.max(size, base.size * 2));
+            } else if (id >= costs.length) {
+                costs = Arrays.copyOf(costs, Math.max(size, costs.length * 2));
+            }
+            costs[id] = cost;
+            if (branchAdditions == addedBranches.length) {
+                addedBranches = Arrays.copyOf(addedBranches, branchAdditions * 2);
+            }
+            addedBranches[branchAdditions++] = id;
+            return id;
+        }
+
+        public void addEdge(String from, String to) {
+            int fromId = names.get(from);
+            int toId = names.get(to);
+            if (fromId < 0 || toId < 0) {
+                throw new IllegalArgumentException("Cannot add edge " + from + " -> " + to + ": unknown branch");
+            }
+            addEdge(fromId, toId);
+        }
+
+        public void addEdge(int from, int to) {
+            if (addedEdges == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, addedEdges * 2);
+                edgeTo = Arrays.copyOf(edgeTo, addedEdges * 2);
+            }
+            edgeFrom[addedEdges] = from;
+            edgeTo[addedEdges] = to;
+            addedEdges++;
+        }
+
+        public int idOf(String name) {
+            return names.get(name);
+        }
+
+        /**
+         * @return the number of branches added or updated so far, counting repeated additions
+         */
+        public int branchAdditions() {
+            return branchAdditions;
+        }
+
+        /**
+         * @return the number of edges added so far
+         */
+        public int edgeAdditions() {
+            return addedEdges;
+        }
+
+        /**
+         * Returns the changes collected by this builder as mutations: every branch addition followed by every edge
+         * addition, with branches carrying their final cost. The list is a read-only view generated from the
+         * builder's arrays, so describing a bulk load does not allocate a mutation object per line.
+         */
+        public List<GraphMutation> mutations() {
+            return new AbstractList<>() {
+                @Override
+                public GraphMutation get(int index) {
+                    if (index < 0 || index >= size()) {
+                        throw new IndexOutOfBoundsException(index);
+                    }
+                    if (index < branchAdditions) {
+                        int id = addedBranches[index];
+                        return GraphMutation.addBranch(names.name(id), costs[id]);
+                    }
+                    int edge = index - branchAdditions;
+                    return GraphMutation.addEdge(names.name(edgeFrom[edge]), names.name(edgeTo[edge]));
+                }
+
+                @Override
+                public int size() {
+                    return branchAdditions + addedEdges;
+                }
+            };
+        }
+
+        /**
+         * @return a new graph whose version is one higher than the base graph
+         */
+        public CompactGraph build() {
+            long version = base.version + 1;
+            IntArray newCosts = costs == null ? base.costs
+                    : IntArray.of(costs.length == size ? costs : Arrays.copyOf(costs, size));
+            if (addedEdges == 0 && size == base.size) {
+                return new CompactGraph(version, names, size, newCosts,
+                        base.offsets, base.targets, base.reverseOffsets, base.sources);
+            }
+
+            int[] newOffsets = mergeOffsets(base.offsets, edgeFrom);
+            int[] newReverseOffsets = mergeOffsets(base.reverseOffsets, edgeTo);
+            if (addedEdges == 0) {
+                return new CompactGraph(version, names, size, newCosts,
+                        IntArray.of(newOffsets), base.targets, IntArray.of(newReverseOffsets), base.sources);
+            }
+            return new CompactGraph(version, names, size, newCosts,
+                    IntArray.of(newOffsets),
+                    IntArray.of(mergeRows(base.offsets, base.targets, newOffsets, edgeFrom, edgeTo)),
+                    IntArray.of(newReverseOffsets),
+                    IntArray.of(mergeRows(base.reverseOffsets, base.sources, newReverseOffsets, edgeTo, edgeFrom)));
+        }
+
+        private int[] mergeOffsets(IntArray baseOffsets, int[] rows) {
+            int[] newOffsets = new int[size + 1];
+            for (int i = 0; i < base.size; i++) {
+                newOffsets[i + 1] = baseOffsets.get(i + 1) - baseOffsets.get(i);
+            }
+            for (int e = 0; e < addedEdges; e++) {
+                newOffsets[rows[e] + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                newOffsets[i + 1] += newOffsets[i];
+            }
+            return newOffsets;
+        }
+
+        // Existing entries keep their order, new edges are appended to their row in insertion order
+        private int[] mergeRows(IntArray baseOffsets, IntArray baseValues, int[] newOffsets, int[] rows, int[] values) {
+            int[] newValues = new int[newOffsets[size]];
+            int[] cursor = new int[size];
+            for (int i = 0; i < size; i++) {
+                int degree = i < base.size ? baseOffsets.get(i + 1) - baseOffsets.get(i) : 0;
+                if (degree > 0) {
+                    baseValues.copyTo(baseOffsets.get(i), newValues, newOffsets[i], degree);
+                }
+                cursor[i] = newOffsets[i] + degree;
+            }
+            for (int e = 0; e < addedEdges; e++) {
+                newValues[cursor[rows[e]]++] = values[e];
+            }
+            return newValues;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.paymentoptimization.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * The cheapest costs from one origin to many branches, computed against one graph snapshot.
+ * Rows are materialised only while iterating, so a table for a large graph can be streamed to a client without
+ * holding an object per branch.
+ */
+public class CostTable implements Iterable<CostTableEntry> {
+    private final String origin;
+    private final long graphVersion;
+    private final int size;
+    private final IntFunction<CostTableEntry> rows;
+
+    public CostTable(String origin, long graphVersion, int size, IntFunction<CostTableEntry> rows) {
+        this.origin = origin;
+        this.graphVersion = graphVersion;
+        this.size = size;
+        this.rows = rows;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public long getGraphVersion() {
+        return graphVersion;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CostTableEntry get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return rows.apply(index);
+    }
+
+    @Override
+    public Iterator<CostTableEntry> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public CostTableEntry next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return rows.apply(next++);
+            }
+        };
+    }
+}
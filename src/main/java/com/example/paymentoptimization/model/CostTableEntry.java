@@ -0,0 +1,28 @@
+package com.example.paymentoptimization.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * One row of a {@link CostTable}: the cheapest cost from the origin to a branch and the branch preceding it on
+ * that route. The predecessor is absent for the origin itself and for unreachable branches, whose cost is -1.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CostTableEntry {
+    private final String branch;
+    private final int cost;
+    private final String predecessor;
+
+    public CostTableEntry(String branch, int cost, String predecessor) {
+        this.branch = branch;
+        this.cost = cost;
+        this.predecessor = predecessor;
+    }
+
+    @JsonIgnore
+    public boolean isReachable() {
+        return cost >= 0;
+    }
+}
@@ -1,31 +1,259 @@
 package com.example.paymentoptimization.model;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * The live branch network.
+ * Readers obtain an immutable {@link CompactGraph} snapshot with a single volatile read and never block.
+ * Writers never modify a published snapshot: they build the next version next to it and publish it atomically.
+ */
 @Component
 public class Graph {
-    private final Map<String, Branch> branches = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> neighborList = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(Graph.class);
 
-    public void addBranch(String name, int cost) {
-        branches.put(name, new Branch(name, cost));
-        neighborList.putIfAbsent(name, Collections.synchronizedList(new ArrayList<>()));
+    private final Queue<PendingUpdate> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final List<GraphListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile CompactGraph snapshot = CompactGraph.EMPTY;
+
+    /**
+     * Adds a branch, or updates the cost of an existing one.
+     * @return the first snapshot containing the branch
+     */
+    public CompactGraph addBranch(String name, int cost) {
+        return apply(List.of(GraphMutation.addBranch(name, cost)));
+    }
+
+    /**
+     * @return the first snapshot containing the edge
+     */
+    public CompactGraph addEdge(String from, String to) {
+        return apply(List.of(GraphMutation.addEdge(from, to)));
+    }
+
+    /**
+     * Applies the mutations atomically: a snapshot contains either all of them or none.
+     * Concurrent callers are batched, whichever thread holds the publish lock folds every queued update
+     * into a single rebuild, so a burst of additions costs one copy of the graph instead of one per call.
+     * @return the first snapshot containing the mutations
+     * @throws IllegalArgumentException if a branch has no name or a negative cost, or an edge references a branch
+     * that neither exists nor is added by the same call
+     */
+    public CompactGraph apply(List<GraphMutation> mutations) {
+        return apply(mutations, false);
+    }
+
+    /**
+     * Like {@link #apply(List)}, but with {@code newBranchesOnly} every branch must be new: the update fails if one
+     * already exists or is added twice, instead of updating its cost. The check runs under the publish lock against
+     * the graph the update is applied to, so concurrent callers cannot both add the same branch.
+     * @throws IllegalArgumentException also if a branch already exists or is added twice, with {@code newBranchesOnly}
+     */
+    public CompactGraph apply(List<GraphMutation> mutations, boolean newBranchesOnly) {
+        PendingUpdate update = new PendingUpdate(mutations, newBranchesOnly);
+        pendingUpdates.add(update);
+        publishLock.lock();
+        try {
+            if (!update.done) {
+                publishPending();
+            }
+        } finally {
+            publishLock.unlock();
+        }
+        if (update.failure != null) {
+            throw update.failure;
+        }
+        return update.result;
     }
 
-    public void addEdge(String from, String to) {
-        neighborList.get(from).add(to);
+    /**
+     * Applies a bulk change written directly into a {@link CompactGraph.Builder}, for loads too large to hold as a
+     * list of mutations. The builder starts from the current snapshot and the result is published atomically;
+     * if the load throws, nothing is published. Other writers wait while the load runs, readers never do.
+     * Listeners receive {@link CompactGraph.Builder#mutations()}.
+     * @return the snapshot containing the load
+     */
+    public <E extends Exception> CompactGraph load(BulkLoad<E> load) throws E {
+        publishLock.lock();
+        try {
+            publishPending();
+            CompactGraph previous = snapshot;
+            CompactGraph.Builder builder = previous.toBuilder();
+            load.load(builder);
+            CompactGraph next = builder.build();
+            snapshot = next;
+            notifyListeners(previous, next, builder.mutations());
+            return next;
+        } finally {
+            publishLock.unlock();
+        }
     }
 
-    @Cacheable("branches")
+    /**
+     * Publishes a previously saved graph, typically one mapped by {@link GraphSnapshotFile#read}, as-is instead of
+     * rebuilding it. Listeners receive every branch and edge of it as mutations.
+     * @return the published snapshot, with the saved version unless the live graph is already past it
+     * @throws IllegalStateException if the graph already has branches
+     */
+    public CompactGraph restore(CompactGraph saved) {
+        publishLock.lock();
+        try {
+            publishPending();
+            CompactGraph previous = snapshot;
+            if (previous.size() > 0) {
+                throw new IllegalStateException("Cannot restore into a graph with " + previous.size() + " branches");
+            }
+            CompactGraph next = saved.withVersion(Math.max(saved.version(), previous.version() + 1));
+            snapshot = next;
+            notifyListeners(previous, next, next.asMutations());
+            return next;
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the current snapshot. This is a plain volatile read that bypasses the caching proxy,
+     * so search code should use it rather than {@link #getBranch(String)}.
+     * @return the current snapshot; callers should use the same snapshot for the whole of a query
+     */
+    public CompactGraph snapshot() {
+        return snapshot;
+    }
+
+    @Cacheable(value = "branches", unless = "#result == null")
     public Branch getBranch(String name) {
-        return branches.get(name);
+        return snapshot.getBranch(name);
     }
 
     public List<String> getNeighborList(String name) {
-        return neighborList.getOrDefault(name, Collections.emptyList());
+        return snapshot.getNeighborList(name);
+    }
+
+    private void publishPending() {
+        CompactGraph previous = snapshot;
+        CompactGraph.Builder builder = previous.toBuilder();
+        List<PendingUpdate> applied = new ArrayList<>();
+        CompactGraph next;
+        try {
+            for (PendingUpdate update = pendingUpdates.poll(); update != null; update = pendingUpdates.poll()) {
+                applied.add(update);
+                try {
+                    validate(builder, update.mutations, update.newBranchesOnly);
+                } catch (IllegalArgumentException e) {
+                    applied.remove(applied.size() - 1);
+                    update.failure = e;
+                    update.done = true;
+                    continue;
+                }
+                for (GraphMutation mutation : update.mutations) {
+                    if (mutation.getType() == GraphMutation.Type.ADD_BRANCH) {
+                        builder.addBranch(mutation.getName(), mutation.getCost());
+                    } else {
+                        builder.addEdge(mutation.getFrom(), mutation.getTo());
+                    }
+                }
+            }
+            if (applied.isEmpty()) {
+                return;
+            }
+            next = builder.build();
+        } catch (RuntimeException | Error e) {
+            // The builder may be half-written, so none of the polled updates can be published; their callers must
+            // not be left without a result
+            logger.error("Graph update of {} queued changes failed", applied.size(), e);
+            RuntimeException failure = e instanceof RuntimeException runtime
+                    ? runtime : new IllegalStateException("Graph update failed", e);
+            for (PendingUpdate update : applied) {
+                update.failure = failure;
+                update.done = true;
+            }
+            return;
+        }
+
+        snapshot = next;
+        List<GraphMutation> mutations = new ArrayList<>();
+        for (PendingUpdate update : applied) {
+            update.result = next;
+            update.done = true;
+            mutations.addAll(update.mutations);
+        }
+        notifyListeners(previous, next, mutations);
+    }
+
+    private void notifyListeners(CompactGraph previous, CompactGraph next, List<GraphMutation> mutations) {
+        for (GraphListener listener : listeners) {
+            try {
+                listener.graphChanged(previous, next, mutations);
+            } catch (RuntimeException e) {
+                logger.error("Graph listener failed for version {}", next.version(), e);
+            }
+        }
+    }
+
+    // The builder holds every update applied before this one, including those of the same publish
+    private static void validate(CompactGraph.Builder builder, List<GraphMutation> mutations, boolean newBranchesOnly) {
+        Set<String> added = new HashSet<>();
+        for (GraphMutation mutation : mutations) {
+            if (mutation == null) {
+                throw new IllegalArgumentException("Missing mutation");
+            }
+            if (mutation.getType() == GraphMutation.Type.ADD_BRANCH) {
+                if (mutation.getName() == null) {
+                    throw new IllegalArgumentException("Branch name must not be null");
+                }
+                if (mutation.getCost() < 0) {
+                    throw new IllegalArgumentException(
+                            "Branch " + mutation.getName() + " has a negative cost: " + mutation.getCost());
+                }
+                if (newBranchesOnly && builder.idOf(mutation.getName()) >= 0) {
+                    throw new IllegalArgumentException("Branch " + mutation.getName() + " already exists");
+                }
+                if (!added.add(mutation.getName()) && newBranchesOnly) {
+                    throw new IllegalArgumentException("Branch " + mutation.getName() + " is added twice");
+                }
+            } else if (!exists(builder, added, mutation.getFrom()) || !exists(builder, added, mutation.getTo())) {
+                throw new IllegalArgumentException(
+                        "Cannot add edge " + mutation.getFrom() + " -> " + mutation.getTo() + ": unknown branch");
+            }
+        }
+    }
+
+    private static boolean exists(CompactGraph.Builder builder, Set<String> added, String name) {
+        return name != null && (builder.idOf(name) >= 0 || added.contains(name));
+    }
+
+    /**
+     * Writes branches and edges into a builder, see {@link #load(BulkLoad)}.
+     */
+    @FunctionalInterface
+    public interface BulkLoad<E extends Exception> {
+        void load(CompactGraph.Builder builder) throws E;
+    }
+
+    // Fields are written and read while holding publishLock
+    private static final class PendingUpdate {
+        private final List<GraphMutation> mutations;
+        private final boolean newBranchesOnly;
+        private CompactGraph result;
+        private RuntimeException failure;
+        private boolean done;
+
+        private PendingUpdate(List<GraphMutation> mutations, boolean newBranchesOnly) {
+            this.mutations = mutations;
+            this.newBranchesOnly = newBranchesOnly;
+        }
     }
 }
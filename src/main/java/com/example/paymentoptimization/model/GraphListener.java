@@ -0,0 +1,18 @@
+package com.example.paymentoptimization.model;
+
+import java.util.List;
+
+/**
+ * Notified by the {@link Graph} after a new snapshot has been published.
+ * Listeners are called on the publishing thread while further publications wait, so they must be cheap
+ * and hand any heavy work (index rebuilds, cache repair) to another thread.
+ */
+@FunctionalInterface
+public interface GraphListener {
+    /**
+     * @param previous the snapshot that was replaced
+     * @param current the snapshot that has just been published
+     * @param mutations every mutation folded into the new snapshot, in the order they were applied
+     */
+    void graphChanged(CompactGraph previous, CompactGraph current, List<GraphMutation> mutations);
+}
@@ -0,0 +1,33 @@
+package com.example.paymentoptimization.model;
+
+import lombok.Data;
+
+/**
+ * A single branch or edge addition, applied to the {@link Graph} as part of a batch.
+ */
+@Data
+public class GraphMutation {
+    public enum Type { ADD_BRANCH, ADD_EDGE }
+
+    private final Type type;
+    private final String name;
+    private final int cost;
+    private final String from;
+    private final String to;
+
+    private GraphMutation(Type type, String name, int cost, String from, String to) {
+        this.type = type;
+        this.name = name;
+        this.cost = cost;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static GraphMutation addBranch(String name, int cost) {
+        return new GraphMutation(Type.ADD_BRANCH, name, cost, null, null);
+    }
+
+    public static GraphMutation addEdge(String from, String to) {
+        return new GraphMutation(Type.ADD_EDGE, null, 0, from, to);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.paymentoptimization.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation of a bulk graph change: {@code ADD_BRANCH} with a name and cost, or {@code ADD_EDGE} with the
+ * names of both branches.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GraphOperation {
+    private GraphMutation.Type type;
+    private String name;
+    private int cost;
+    private String from;
+    private String to;
+
+    public static GraphOperation addBranch(String name, int cost) {
+        return new GraphOperation(GraphMutation.Type.ADD_BRANCH, name, cost, null, null);
+    }
+
+    public static GraphOperation addEdge(String from, String to) {
+        return new GraphOperation(GraphMutation.Type.ADD_EDGE, null, 0, from, to);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.paymentoptimization.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary image of a {@link CompactGraph} that is mapped into memory instead of parsed.
+ * <p>
+ * Layout, little-endian: a 40-byte header (magic {@code PGRF}, format version, graph version, branch count, edge
+ * count, length of the name data, CRC-32C of everything after the header) followed by the int sections costs,
+ * offsets, targets, reverse offsets, sources and name offsets, and finally the UTF-8 bytes of all branch names.
+ * Reading maps the file and serves the int sections straight from the mapping; only the names are decoded, because
+ * looking a branch up by name needs them interned on the heap.
+ * Files are written to a temporary sibling and moved into place, so a reader never sees a partial file.
+ */
+public final class GraphSnapshotFile {
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x50475246; // "PGRF"
+    private static final int HEADER_BYTES = 40;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private GraphSnapshotFile() {
+    }
+
+    public static void write(CompactGraph graph, Path path) throws IOException {
+        int size = graph.size();
+        int edges = graph.edgeCount();
+        byte[][] names = new byte[size][];
+        long nameBytes = 0;
+        for (int id = 0; id < size; id++) {
+            names[id] = graph.nameOf(id).getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[id].length;
+        }
+        if (nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("Branch names of " + nameBytes + " bytes do not fit a snapshot");
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output output = new Output(channel);
+            output.buffer.position(HEADER_BYTES);
+            output.checksumFrom = HEADER_BYTES;
+            for (int id = 0; id < size; id++) {
+                output.putInt(graph.cost(id));
+            }
+            for (int id = 0; id <= size; id++) {
+                output.putInt(id < size ? graph.edgesStart(id) : edges);
+            }
+            for (int edge = 0; edge < edges; edge++) {
+                output.putInt(graph.target(edge));
+            }
+            for (int id = 0; id <= size; id++) {
+                output.putInt(id < size ? graph.reverseEdgesStart(id) : edges);
+            }
+            for (int edge = 0; edge < edges; edge++) {
+                output.putInt(graph.source(edge));
+            }
+            int nameOffset = 0;
+            for (int id = 0; id <= size; id++) {
+                output.putInt(nameOffset);
+                nameOffset += id < size ? names[id].length : 0;
+            }
+            for (byte[] name : names) {
+                output.put(name);
+            }
+            output.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(graph.version())
+                    .putInt(size).putInt(edges).putInt((int) nameBytes).putInt(0)
+                    .putLong(output.checksum.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write(CompactGraph, Path)}.
+     * @return the graph, with the version it had when it was written
+     * @throws IOException if the file cannot be read, has another format version, or fails its checksum
+     */
+    public static CompactGraph read(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw corrupt(path, "larger than 2 GB");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer file = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.limit() < HEADER_BYTES || file.getInt(0) != MAGIC) {
+            throw corrupt(path, "not a graph snapshot");
+        }
+        if (file.getInt(4) != FORMAT_VERSION) {
+            throw corrupt(path, "format version " + file.getInt(4) + ", expected " + FORMAT_VERSION);
+        }
+        long version = file.getLong(8);
+        int size = file.getInt(16);
+        int edges = file.getInt(20);
+        int nameBytes = file.getInt(24);
+        long expected = HEADER_BYTES + 4L * (size + 2L * (size + 1) + 2L * edges + size + 1) + nameBytes;
+        if (size < 0 || edges < 0 || nameBytes < 0 || file.limit() != expected) {
+            throw corrupt(path, "truncated");
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(file.slice(HEADER_BYTES, file.limit() - HEADER_BYTES));
+        if (checksum.getValue() != file.getLong(32)) {
+            throw corrupt(path, "checksum mismatch");
+        }
+
+        Sections sections = new Sections(file);
+        IntArray costs = sections.next(size);
+        IntArray offsets = sections.next(size + 1);
+        IntArray targets = sections.next(edges);
+        IntArray reverseOffsets = sections.next(size + 1);
+        IntArray sources = sections.next(edges);
+        IntArray nameOffsets = sections.next(size + 1);
+        NameTable names = new NameTable(size);
+        byte[] name = new byte[0];
+        for (int id = 0; id < size; id++) {
+            int length = nameOffsets.get(id + 1) - nameOffsets.get(id);
+            if (name.length < length) {
+                name = new byte[length];
+            }
+            file.get(sections.position + nameOffsets.get(id), name, 0, length);
+            if (names.intern(new String(name, 0, length, StandardCharsets.UTF_8)) != id) {
+                throw corrupt(path, "duplicate branch name");
+            }
+        }
+        return new CompactGraph(version, names, size, costs, offsets, targets, reverseOffsets, sources);
+    }
+
+    private static IOException corrupt(Path path, String reason) {
+        return new IOException("Unreadable graph snapshot " + path + ": " + reason);
+    }
+
+    private static final class Sections {
+        private final ByteBuffer file;
+        private int position = HEADER_BYTES;
+
+        private Sections(ByteBuffer file) {
+            this.file = file;
+        }
+
+        private IntArray next(int length) {
+            IntBuffer section = file.slice(position, 4 * length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            position += 4 * length;
+            return IntArray.of(section);
+        }
+    }
+
+    // Buffered, checksummed sequential writes
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C checksum = new CRC32C();
+        private int checksumFrom;
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            for (int written = 0; written < bytes.length; ) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.slice(checksumFrom, buffer.limit() - checksumFrom));
+            checksumFrom = 0;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
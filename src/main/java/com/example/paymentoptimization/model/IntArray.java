@@ -0,0 +1,81 @@
+package com.example.paymentoptimization.model;
+
+import java.nio.IntBuffer;
+
+/**
+ * Read-only sequence of ints backing a {@link CompactGraph}: a heap array for graphs built in memory, or a region
+ * of a memory-mapped snapshot file, read in place without copying it onto the heap.
+ * There are exactly two final implementations, so accessor calls in search loops stay inlineable.
+ */
+abstract class IntArray {
+    static final IntArray EMPTY = of(new int[0]);
+
+    static IntArray of(int[] values) {
+        return new Heap(values);
+    }
+
+    static IntArray of(IntBuffer buffer) {
+        return new Mapped(buffer);
+    }
+
+    abstract int get(int index);
+
+    abstract int length();
+
+    abstract void copyTo(int from, int[] target, int targetFrom, int length);
+
+    /**
+     * @return a heap copy of the values, with room for at least {@code capacity} entries
+     */
+    int[] toArray(int capacity) {
+        int[] copy = new int[Math.max(capacity, length())];
+        copyTo(0, copy, 0, length());
+        return copy;
+    }
+
+    private static final class Heap extends IntArray {
+        private final int[] values;
+
+        private Heap(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int get(int index) {
+            return values[index];
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        void copyTo(int from, int[] target, int targetFrom, int length) {
+            System.arraycopy(values, from, target, targetFrom, length);
+        }
+    }
+
+    private static final class Mapped extends IntArray {
+        private final IntBuffer buffer;
+
+        private Mapped(IntBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        int get(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        void copyTo(int from, int[] target, int targetFrom, int length) {
+            buffer.get(from, target, targetFrom, length);
+        }
+    }
+}
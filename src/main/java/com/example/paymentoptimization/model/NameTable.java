@@ -0,0 +1,110 @@
+package com.example.paymentoptimization.model;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing table that interns branch names to dense int ids (0, 1, 2, ...).
+ * Ids are assigned in insertion order and never change, so they can index primitive arrays.
+ * A table is mutated only while a {@link CompactGraph.Builder} owns it and is read-only afterwards.
+ */
+final class NameTable {
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] slots;
+    private String[] names;
+    private int size;
+
+    NameTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.slots = new int[capacity];
+        this.names = new String[Math.max(expectedSize, MIN_CAPACITY)];
+    }
+
+    private NameTable(NameTable other) {
+        this.keys = other.keys.clone();
+        this.slots = other.slots.clone();
+        this.names = Arrays.copyOf(other.names, Math.max(other.names.length, MIN_CAPACITY));
+        this.size = other.size;
+    }
+
+    NameTable copy() {
+        return new NameTable(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the id of the name or -1 if it has not been interned
+     */
+    int get(String name) {
+        int mask = keys.length - 1;
+        for (int i = spread(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+            String key = keys[i];
+            if (key == null) {
+                return -1;
+            }
+            if (key.equals(name)) {
+                return slots[i];
+            }
+        }
+    }
+
+    /**
+     * @return the existing id of the name, or a newly assigned one
+     */
+    int intern(String name) {
+        int mask = keys.length - 1;
+        int i = spread(name.hashCode()) & mask;
+        for (String key = keys[i]; key != null; key = keys[i]) {
+            if (key.equals(name)) {
+                return slots[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        int id = size++;
+        keys[i] = name;
+        slots[i] = id;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[id] = name;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new String[capacity];
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = spread(oldKeys[j].hashCode()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                slots[i] = oldSlots[j];
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
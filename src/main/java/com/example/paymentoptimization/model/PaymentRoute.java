@@ -0,0 +1,27 @@
+package com.example.paymentoptimization.model;
+
+import lombok.Data;
+
+/**
+ * Result of a route query together with the graph version it was computed against.
+ */
+@Data
+public class PaymentRoute {
+    private final String path;
+    private final int cost;
+    private final long graphVersion;
+
+    public PaymentRoute(String path, int cost, long graphVersion) {
+        this.path = path;
+        this.cost = cost;
+        this.graphVersion = graphVersion;
+    }
+
+    public static PaymentRoute noPath(long graphVersion) {
+        return new PaymentRoute(null, -1, graphVersion);
+    }
+
+    public boolean isFound() {
+        return path != null;
+    }
+}
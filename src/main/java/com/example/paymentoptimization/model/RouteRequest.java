@@ -0,0 +1,16 @@
+package com.example.paymentoptimization.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One origin/destination pair of a batch route request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteRequest {
+    private String origin;
+    private String destination;
+}
@@ -0,0 +1,41 @@
+package com.example.paymentoptimization.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * The answer to one {@link RouteRequest} of a batch: either the cheapest path and its cost, or an error
+ * explaining why no path was returned.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RouteResult {
+    private final String origin;
+    private final String destination;
+    private final String path;
+    private final int cost;
+    private final String error;
+
+    public RouteResult(String origin, String destination, String path, int cost, String error) {
+        this.origin = origin;
+        this.destination = destination;
+        this.path = path;
+        this.cost = cost;
+        this.error = error;
+    }
+
+    public static RouteResult of(RouteRequest request, PaymentRoute route) {
+        if (!route.isFound()) {
+            return error(request, "No valid path found");
+        }
+        return new RouteResult(request.getOrigin(), request.getDestination(), route.getPath(), route.getCost(), null);
+    }
+
+    public static RouteResult error(RouteRequest request, String error) {
+        return new RouteResult(request.getOrigin(), request.getDestination(), null, -1, error);
+    }
+
+    public boolean isFound() {
+        return path != null;
+    }
+}
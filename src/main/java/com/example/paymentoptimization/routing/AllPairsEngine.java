@@ -0,0 +1,121 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Answers queries from a precomputed {@link AllPairsTable} with a lookup instead of a search.
+ * The table is maintained by a {@link BackgroundIndex}; added edges are folded into a copy of the table instead
+ * of rebuilding it, see {@link AllPairsTable#update}. While it is being updated after a change, queries are
+ * answered from the previous table when {@code routing-config.all-pairs.serve-stale} is set: graphs only grow,
+ * so its routes are still valid paths, but they are returned as provisional and re-costed against the queried
+ * snapshot. Graphs larger than {@code routing-config.all-pairs.max-branches} are not tabulated at all and are
+ * routed by {@link WorkspaceDijkstraEngine}, as are queries before the first table is ready.
+ * The table is only maintained when {@code all-pairs} is the configured engine or
+ * {@code routing-config.all-pairs.enabled} is set.
+ */
+@Component
+public class AllPairsEngine implements RoutingEngine {
+    public static final String NAME = "all-pairs";
+    private static final Logger logger = LoggerFactory.getLogger(AllPairsEngine.class);
+
+    private final RoutingEngine fallback = new WorkspaceDijkstraEngine();
+    private final int maxBranches;
+    private final boolean serveStale;
+    private final BackgroundIndex<AllPairsTable> index;
+
+    public AllPairsEngine(Graph graph, RoutingConfig routingConfig) {
+        RoutingConfig.AllPairs config = routingConfig.getAllPairs();
+        this.maxBranches = Math.min(config.getMaxBranches(), AllPairsTable.MAX_BRANCHES);
+        this.serveStale = config.isServeStale();
+        if (config.isEnabled() || NAME.equals(routingConfig.getEngine())) {
+            logger.info("All-pairs routing enabled for up to {} branches ({} KB of tables)",
+                    maxBranches, AllPairsTable.footprintBytes(maxBranches) / 1024);
+            this.index = new BackgroundIndex<>(graph, "all-pairs", this::buildTable, this::updateTable);
+        } else {
+            this.index = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return true if queries on the graph are answered from a table built for exactly this snapshot
+     */
+    @Override
+    public boolean isReady(CompactGraph graph) {
+        return index != null && index.get(graph) != null;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        if (index == null) {
+            return fallback.route(graph, origin, destination);
+        }
+        AllPairsTable table = index.get(graph);
+        boolean provisional = false;
+        if (table == null && serveStale) {
+            table = index.latest();
+            provisional = table != null;
+        }
+        if (table == null) {
+            return fallback.route(graph, origin, destination);
+        }
+        if (origin >= table.size() || destination >= table.size()) {
+            // Added after the table was built: only the current snapshot knows its edges
+            return fallback.route(graph, origin, destination);
+        }
+
+        int[] path = table.path(origin, destination);
+        if (path == null) {
+            return provisional ? fallback.route(graph, origin, destination) : null;
+        }
+        if (!provisional) {
+            return new Route(path, table.cost(origin, destination));
+        }
+        int cost = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            cost += graph.cost(path[i]);
+        }
+        return new Route(path, cost, 0, true);
+    }
+
+    /**
+     * Rebuilds the table for the current snapshot on the calling thread.
+     */
+    void rebuildNow() {
+        index.rebuildNow();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (index != null) {
+            index.shutdown();
+        }
+    }
+
+    private AllPairsTable buildTable(CompactGraph graph) {
+        if (graph.size() > maxBranches) {
+            logger.warn("Not building an all-pairs table for {} branches ({} KB), the limit is {} branches; "
+                            + "routing by search instead", graph.size(),
+                    AllPairsTable.footprintBytes(graph.size()) / 1024, maxBranches);
+            return null;
+        }
+        return AllPairsTable.build(graph);
+    }
+
+    private AllPairsTable updateTable(AllPairsTable table, CompactGraph graph, List<GraphMutation> insertions) {
+        return graph.size() > maxBranches ? null : table.update(graph, insertions);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.GraphMutation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed cheapest routes between every ordered pair of branches of one graph snapshot.
+ * Two row-major {@code n * n} matrices hold, for origin {@code s} and destination {@code t}, the route cost and
+ * the branch before {@code t} on the route, so a route is read off in O(path length) by walking back from
+ * {@code t} within row {@code s}. Walking one shortest-path tree cannot loop, unlike chaining next hops taken from
+ * different trees, which can cycle through branches that cost nothing.
+ * Predecessors are stored as {@code char}s and the matrices are indexed by {@code int}, which limits tables to
+ * {@value #MAX_BRANCHES} branches; in practice the footprint limit configured for the engine is far lower.
+ */
+final class AllPairsTable {
+    static final int MAX_BRANCHES = 46_340;
+    /**
+     * Each inserted edge costs one pass over the matrix, so past this many a fresh build is cheaper on sparse graphs.
+     */
+    static final int MAX_INCREMENTAL_EDGES = 32;
+    private static final char NONE = Character.MAX_VALUE;
+
+    private final int size;
+    private final int[] costs;
+    private final char[] predecessors;
+
+    private AllPairsTable(int size, int[] costs, char[] predecessors) {
+        this.size = size;
+        this.costs = costs;
+        this.predecessors = predecessors;
+    }
+
+    /**
+     * Runs one single-source search per origin, in parallel on the common fork-join pool.
+     * Each search fills its own row, so the rows need no coordination.
+     */
+    static AllPairsTable build(CompactGraph graph) {
+        int n = graph.size();
+        if (n > MAX_BRANCHES) {
+            throw new IllegalArgumentException("All-pairs tables support at most " + MAX_BRANCHES + " branches");
+        }
+        int[] costs = new int[n * n];
+        char[] predecessors = new char[n * n];
+        IntStream.range(0, n).parallel().forEach(origin -> {
+            int row = origin * n;
+            Arrays.fill(costs, row, row + n, ShortestPathTree.UNREACHABLE);
+            Arrays.fill(predecessors, row, row + n, NONE);
+            ShortestPathTree tree = ShortestPathTree.search(graph, origin, null);
+            for (int i = 0; i < tree.size(); i++) {
+                int branch = tree.branch(i);
+                costs[row + branch] = tree.cost(i);
+                predecessors[row + branch] = tree.predecessor(i) < 0 ? NONE : (char) tree.predecessor(i);
+            }
+        });
+        return new AllPairsTable(n, costs, predecessors);
+    }
+
+    /**
+     * Derives the table for a snapshot that only added branches and edges to the one this table was built for,
+     * without searching. A new edge {@code u -> v} can only improve a route {@code s -> t} to
+     * {@code cost(s, u) + cost(u) + cost(v, t)}, and both terms are already in the table; applying the edges one at
+     * a time keeps that exact for the next edge. Origins that already reach {@code v} at least as cheaply are skipped,
+     * so an edge that shortens nothing costs one pass over a column. The table is copied, never modified, because
+     * queries may still be reading it.
+     * @param graph      the new snapshot
+     * @param insertions the branches and edges added since this table was built
+     * @return the updated table, or null if the change is too large to apply incrementally
+     */
+    AllPairsTable update(CompactGraph graph, List<GraphMutation> insertions) {
+        int n = graph.size();
+        long edges = insertions.stream().filter(mutation -> mutation.getType() == GraphMutation.Type.ADD_EDGE).count();
+        if (n > MAX_BRANCHES || edges > MAX_INCREMENTAL_EDGES) {
+            return null;
+        }
+        int[] nextCosts = new int[n * n];
+        char[] nextPredecessors = new char[n * n];
+        Arrays.fill(nextCosts, ShortestPathTree.UNREACHABLE);
+        Arrays.fill(nextPredecessors, NONE);
+        for (int origin = 0; origin < n; origin++) {
+            if (origin < size) {
+                System.arraycopy(costs, origin * size, nextCosts, origin * n, size);
+                System.arraycopy(predecessors, origin * size, nextPredecessors, origin * n, size);
+            } else {
+                nextCosts[origin * n + origin] = 0;  // A new branch only reaches itself until its edges are applied
+            }
+        }
+        for (GraphMutation mutation : insertions) {
+            if (mutation.getType() == GraphMutation.Type.ADD_EDGE) {
+                insertEdge(graph, n, nextCosts, nextPredecessors, graph.idOf(mutation.getFrom()), graph.idOf(mutation.getTo()));
+            }
+        }
+        return new AllPairsTable(n, nextCosts, nextPredecessors);
+    }
+
+    // Row `to` never changes (routes from `to` cannot improve by returning to it), so rows update independently
+    private static void insertEdge(CompactGraph graph, int n, int[] costs, char[] predecessors, int from, int to) {
+        int viaCost = graph.cost(from);
+        int toRow = to * n;
+        IntStream.range(0, n).parallel().forEach(origin -> {
+            int row = origin * n;
+            int toFrom = costs[row + from];
+            if (toFrom == ShortestPathTree.UNREACHABLE) {
+                return;
+            }
+            int viaEdge = toFrom + viaCost;
+            int current = costs[row + to];
+            if (current != ShortestPathTree.UNREACHABLE && current <= viaEdge) {
+                return;
+            }
+            for (int destination = 0; destination < n; destination++) {
+                int rest = costs[toRow + destination];
+                if (rest == ShortestPathTree.UNREACHABLE) {
+                    continue;
+                }
+                int candidate = viaEdge + rest;
+                int known = costs[row + destination];
+                if (known == ShortestPathTree.UNREACHABLE || candidate < known) {
+                    costs[row + destination] = candidate;
+                    predecessors[row + destination] = destination == to ? (char) from : predecessors[toRow + destination];
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of bytes a table for this many branches occupies
+     */
+    static long footprintBytes(int branches) {
+        return (long) branches * branches * (Integer.BYTES + Character.BYTES);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the cost of the cheapest route, or {@link ShortestPathTree#UNREACHABLE}
+     */
+    int cost(int origin, int destination) {
+        return costs[origin * size + destination];
+    }
+
+    /**
+     * @return the branches of the cheapest route, or null if there is none
+     */
+    int[] path(int origin, int destination) {
+        int row = origin * size;
+        if (costs[row + destination] == ShortestPathTree.UNREACHABLE) {
+            return null;
+        }
+        int length = 1;
+        for (int v = destination; v != origin; v = predecessors[row + v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = destination; ; v = predecessors[row + v]) {
+            path[--length] = v;
+            if (v == origin) {
+                return path;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "all-pairs table of " + size + " branches (" + footprintBytes(size) / 1024 + " KB)";
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Goal-directed A* search with landmark lower bounds (ALT).
+ * The {@link LandmarkIndex} is maintained by a {@link BackgroundIndex}; until an index matching the queried
+ * snapshot is available, queries are answered by {@link WorkspaceDijkstraEngine}.
+ * The index is only maintained when {@code alt} is the configured engine or {@code routing-config.alt.enabled} is set.
+ */
+@Component
+public class AltEngine implements RoutingEngine {
+    public static final String NAME = "alt";
+
+    private final RoutingEngine fallback = new WorkspaceDijkstraEngine();
+    private final int activeLandmarks;
+    private final BackgroundIndex<LandmarkIndex> index;
+
+    public AltEngine(Graph graph, RoutingConfig routingConfig) {
+        int landmarkCount = Math.min(routingConfig.getAlt().getLandmarks(), 64);
+        this.activeLandmarks = routingConfig.getAlt().getActiveLandmarks();
+        if (routingConfig.getAlt().isEnabled() || NAME.equals(routingConfig.getEngine())) {
+            this.index = new BackgroundIndex<>(graph, "landmarks", snapshot -> LandmarkIndex.build(snapshot, landmarkCount));
+        } else {
+            this.index = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return true if queries on the graph are answered with landmark bounds rather than the fallback
+     */
+    @Override
+    public boolean isReady(CompactGraph graph) {
+        return index != null && index.get(graph) != null;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        LandmarkIndex landmarks = index == null ? null : index.get(graph);
+        if (landmarks == null) {
+            return fallback.route(graph, origin, destination);
+        }
+
+        long active = selectLandmarks(landmarks, origin, destination);
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace space = workspace.forward();
+            IndexedMinHeap heap = space.heap();
+            space.relax(origin, 0, -1, lowerBound(landmarks, active, origin, destination));
+
+            while (!heap.isEmpty()) {
+                int current = space.pollSettled();
+                if (current == destination) {
+                    return space.route(destination);
+                }
+
+                int newCost = space.distance(current) + graph.cost(current);
+                for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                    int neighbor = graph.target(edge);
+                    if (newCost < space.distance(neighbor)) {
+                        space.relax(neighbor, newCost, current, newCost + lowerBound(landmarks, active, neighbor, destination));
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Rebuilds the index for the current snapshot on the calling thread.
+     */
+    void rebuildNow() {
+        index.rebuildNow();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (index != null) {
+            index.shutdown();
+        }
+    }
+
+    /**
+     * @return a bit set of the landmarks giving the best bounds for this query
+     */
+    private long selectLandmarks(LandmarkIndex landmarks, int origin, int destination) {
+        int k = landmarks.landmarkCount();
+        if (k <= activeLandmarks) {
+            return k == 64 ? -1L : (1L << k) - 1;
+        }
+        long active = 0;
+        for (int n = 0; n < activeLandmarks; n++) {
+            int best = -1;
+            int bestBound = -1;
+            for (int i = 0; i < k; i++) {
+                if ((active & (1L << i)) == 0) {
+                    int bound = landmarks.lowerBound(i, origin, destination);
+                    if (bound > bestBound) {
+                        bestBound = bound;
+                        best = i;
+                    }
+                }
+            }
+            active |= 1L << best;
+        }
+        return active;
+    }
+
+    private static int lowerBound(LandmarkIndex landmarks, long active, int v, int target) {
+        int bound = 0;
+        for (long remaining = active; remaining != 0; remaining &= remaining - 1) {
+            bound = Math.max(bound, landmarks.lowerBound(Long.numberOfTrailingZeros(remaining), v, target));
+        }
+        return bound;
+    }
+}
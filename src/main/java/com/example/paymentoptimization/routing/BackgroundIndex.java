@@ -0,0 +1,235 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A preprocessed routing index kept up to date with the {@link Graph} on a dedicated background thread.
+ * The index is built once the graph has been loaded and rebuilt after every change that can shorten routes;
+ * adding unconnected branches only relabels the existing index for the new version, because branches without
+ * edges cannot make any existing route cheaper. Indexes that can absorb added edges provide an {@link Updater},
+ * which is given the insertions published since the last index instead of a rebuild; consecutive insertions are
+ * folded into one update. Engines ask for the index of the snapshot they are querying and fall back to a plain
+ * search while it is not available.
+ */
+final class BackgroundIndex<I> {
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundIndex.class);
+
+    private final Graph graph;
+    private final String name;
+    private final Function<CompactGraph, I> builder;
+    private final Updater<I> updater;
+    private final ExecutorService rebuilder;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile Versioned<I> current;
+    // Guarded by this: a full rebuild is due, or else the insertions not yet applied to the current index
+    private boolean rebuildRequired = true;
+    private PendingInsertions pending;
+
+    /**
+     * @param name    the name of the index, used for the rebuild thread and in log messages
+     * @param builder builds the index for a snapshot; runs on the rebuild thread
+     */
+    BackgroundIndex(Graph graph, String name, Function<CompactGraph, I> builder) {
+        this(graph, name, builder, null);
+    }
+
+    /**
+     * @param updater applies added branches and edges to an index; runs on the rebuild thread
+     */
+    BackgroundIndex(Graph graph, String name, Function<CompactGraph, I> builder, Updater<I> updater) {
+        this.graph = graph;
+        this.name = name;
+        this.builder = builder;
+        this.updater = updater;
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        graph.addListener(this::graphChanged);
+        scheduleRebuild();
+    }
+
+    /**
+     * @return the index built for the snapshot, or null if it is not (yet) available
+     */
+    I get(CompactGraph snapshot) {
+        Versioned<I> versioned = current;
+        return versioned != null && versioned.version == snapshot.version() ? versioned.index : null;
+    }
+
+    /**
+     * @return the most recently built index, possibly for an older graph version, or null if there is none
+     */
+    I latest() {
+        Versioned<I> versioned = current;
+        return versioned == null ? null : versioned.index;
+    }
+
+    /**
+     * Rebuilds the index for the current snapshot on the calling thread.
+     * A builder may return null to decline a snapshot, which discards any older index.
+     */
+    void rebuildNow() {
+        CompactGraph snapshot = graph.snapshot();
+        if (snapshot.size() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        I built = builder.apply(snapshot);
+        synchronized (this) {
+            if (current == null || current.version < snapshot.version()) {
+                current = built == null ? null : new Versioned<>(snapshot.version(), built);
+            }
+        }
+        if (built != null) {
+            logger.info("Built {} for graph version {} in {} ms", built, snapshot.version(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void graphChanged(CompactGraph previous, CompactGraph next, List<GraphMutation> mutations) {
+        synchronized (this) {
+            boolean upToDate = current != null && current.version == previous.version();
+            if (upToDate && onlyNewBranches(previous, mutations)) {
+                current = new Versioned<>(next.version(), current.index);
+                return;
+            }
+            if (!rebuildRequired && updater != null && onlyInsertions(previous, mutations)) {
+                if (pending != null && pending.snapshot.version() == previous.version()) {
+                    pending.add(next, mutations);
+                    return;  // The update is already scheduled and has not taken the insertions yet
+                }
+                if (pending == null && upToDate) {
+                    pending = new PendingInsertions(previous.version(), next, mutations);
+                    scheduleRebuild();
+                    return;
+                }
+            }
+            rebuildRequired = true;
+            pending = null;
+        }
+        scheduleRebuild();
+    }
+
+    private static boolean onlyNewBranches(CompactGraph previous, List<GraphMutation> mutations) {
+        for (GraphMutation mutation : mutations) {
+            if (mutation.getType() != GraphMutation.Type.ADD_BRANCH || previous.idOf(mutation.getName()) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Changing the cost of an existing branch can make routes more expensive, which no update can express
+    private static boolean onlyInsertions(CompactGraph previous, List<GraphMutation> mutations) {
+        for (GraphMutation mutation : mutations) {
+            if (mutation.getType() == GraphMutation.Type.ADD_BRANCH && previous.idOf(mutation.getName()) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the pending insertions to the current index.
+     * @return false if a full rebuild is needed instead
+     */
+    private boolean updateNow() {
+        PendingInsertions insertions;
+        Versioned<I> base;
+        synchronized (this) {
+            insertions = pending;
+            pending = null;
+            base = current;
+            if (rebuildRequired || insertions == null || base == null || base.version != insertions.baseVersion) {
+                rebuildRequired = false;
+                return false;
+            }
+        }
+        long start = System.nanoTime();
+        I updated = updater.update(base.index, insertions.snapshot, insertions.mutations);
+        if (updated == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (current == base) {
+                current = new Versioned<>(insertions.snapshot.version(), updated);
+            }
+        }
+        logger.info("Updated {} with {} changes for graph version {} in {} ms", updated, insertions.mutations.size(),
+                insertions.snapshot.version(), (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                // Cleared before building so that changes published meanwhile schedule another rebuild
+                rebuildScheduled.set(false);
+                try {
+                    if (!updateNow()) {
+                        rebuildNow();
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Rebuilding {} failed", name, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies added branches and edges to an index built for an earlier snapshot.
+     */
+    @FunctionalInterface
+    interface Updater<I> {
+        /**
+         * @param index      the index built for the snapshot before the insertions; must not be modified
+         * @param snapshot   the snapshot to update the index for
+         * @param insertions the branches and edges added since the index was built, in the order they were added
+         * @return the index for the snapshot, or null to rebuild it instead
+         */
+        I update(I index, CompactGraph snapshot, List<GraphMutation> insertions);
+    }
+
+    private static final class PendingInsertions {
+        private final long baseVersion;
+        private final List<GraphMutation> mutations = new ArrayList<>();
+        private CompactGraph snapshot;
+
+        private PendingInsertions(long baseVersion, CompactGraph snapshot, List<GraphMutation> mutations) {
+            this.baseVersion = baseVersion;
+            add(snapshot, mutations);
+        }
+
+        private void add(CompactGraph snapshot, List<GraphMutation> mutations) {
+            this.snapshot = snapshot;
+            this.mutations.addAll(mutations);
+        }
+    }
+
+    private static final class Versioned<I> {
+        private final long version;
+        private final I index;
+
+        private Versioned(long version, I index) {
+            this.version = version;
+            this.index = index;
+        }
+    }
+}
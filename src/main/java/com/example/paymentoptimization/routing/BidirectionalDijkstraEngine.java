@@ -0,0 +1,113 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bidirectional Dijkstra: a forward search from the origin over the adjacency and a backward search from the
+ * destination over the reverse index, alternating on whichever frontier is closer.
+ * The fee is charged on the branch being left, so an edge {@code u -> v} weighs {@code cost(u)} in both
+ * directions: the forward search adds the cost of the branch it settles, the backward search the cost of the
+ * branch it reaches. {@code best} is the cheapest origin-destination route seen through any edge joining the
+ * two searches, and the search stops once the two queue minima together cannot beat it.
+ */
+@Component
+public class BidirectionalDijkstraEngine implements RoutingEngine {
+    public static final String NAME = "bidirectional-dijkstra";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        if (origin == destination) {
+            return new Route(new int[]{origin}, 0);
+        }
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace forward = workspace.forward();
+            SearchSpace backward = workspace.backward();
+            IndexedMinHeap forwardHeap = forward.heap();
+            IndexedMinHeap backwardHeap = backward.heap();
+            forward.relax(origin, 0, -1, 0);
+            backward.relax(destination, 0, -1, 0);
+
+            int best = SearchSpace.UNREACHED;
+            int meetFrom = -1;
+            int meetTo = -1;
+            while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+                int forwardTop = forwardHeap.peekKey();
+                int backwardTop = backwardHeap.peekKey();
+                if ((long) forwardTop + backwardTop >= best) {
+                    break;
+                }
+
+                if (forwardTop <= backwardTop) {
+                    int current = forward.pollSettled();
+                    int newCost = forward.distance(current) + graph.cost(current);
+                    for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                        int neighbor = graph.target(edge);
+                        if (newCost < forward.distance(neighbor)) {
+                            forward.relax(neighbor, newCost, current, newCost);
+                        }
+                        int remaining = backward.distance(neighbor);
+                        if (remaining != SearchSpace.UNREACHED && (long) newCost + remaining < best) {
+                            best = newCost + remaining;
+                            meetFrom = current;
+                            meetTo = neighbor;
+                        }
+                    }
+                } else {
+                    int current = backward.pollSettled();
+                    int distance = backward.distance(current);
+                    for (int edge = graph.reverseEdgesStart(current), end = graph.reverseEdgesEnd(current); edge < end; edge++) {
+                        int neighbor = graph.source(edge);
+                        int newCost = distance + graph.cost(neighbor);
+                        if (newCost < backward.distance(neighbor)) {
+                            backward.relax(neighbor, newCost, current, newCost);
+                        }
+                        int reached = forward.distance(neighbor);
+                        if (reached != SearchSpace.UNREACHED && (long) reached + newCost < best) {
+                            best = reached + newCost;
+                            meetFrom = neighbor;
+                            meetTo = current;
+                        }
+                    }
+                }
+            }
+
+            if (meetFrom < 0) {
+                return null;
+            }
+            return joinRoute(forward, backward, meetFrom, meetTo, best);
+        }
+    }
+
+    /**
+     * Concatenates the forward tree path origin..from with the backward tree path to..destination.
+     */
+    private static Route joinRoute(SearchSpace forward, SearchSpace backward, int from, int to, int cost) {
+        int head = 0;
+        for (int id = from; id >= 0; id = forward.predecessor(id)) {
+            head++;
+        }
+        int tail = 0;
+        for (int id = to; id >= 0; id = backward.predecessor(id)) {
+            tail++;
+        }
+        int[] branches = new int[head + tail];
+        int i = head;
+        for (int id = from; id >= 0; id = forward.predecessor(id)) {
+            branches[--i] = id;
+        }
+        i = head;
+        for (int id = to; id >= 0; id = backward.predecessor(id)) {
+            branches[i++] = id;
+        }
+        return new Route(branches, cost, forward.settledCount() + backward.settledCount(),
+                forward.relaxedCount() + backward.relaxedCount(),
+                forward.heap().peakSize() + backward.heap().peakSize());
+    }
+}
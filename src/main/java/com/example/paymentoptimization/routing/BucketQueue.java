@@ -0,0 +1,104 @@
+package com.example.paymentoptimization.routing;
+
+/**
+ * Monotone cyclic bucket queue for Dial's algorithm.
+ * With integer edge weights of at most {@code C}, every queued distance lies within {@code C} of the current
+ * minimum, so {@code C + 1} buckets indexed by {@code distance % (C + 1)} never collide.
+ * Buckets are intrusive doubly-linked lists over per-branch arrays, so insert, move and poll are O(1)
+ * and nothing is allocated once the arrays have grown to the graph size.
+ */
+final class BucketQueue {
+    private int[] heads = new int[0];
+    private int[] headStamps = new int[0];
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    private int generation;
+    private int bucketCount;
+    private int size;
+    private int peakSize;
+    private int current;
+
+    void reset(int nodes, int bucketCount) {
+        if (next.length < nodes) {
+            int capacity = nodes + (nodes >>> 3);
+            next = new int[capacity];
+            previous = new int[capacity];
+        }
+        if (heads.length < bucketCount) {
+            heads = new int[bucketCount];
+            headStamps = new int[bucketCount];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(headStamps, 0);
+            generation = 1;
+        }
+        this.bucketCount = bucketCount;
+        this.size = 0;
+        this.peakSize = 0;
+        this.current = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the largest number of branches queued at once since the last reset
+     */
+    int peakSize() {
+        return peakSize;
+    }
+
+    void insert(int id, int distance) {
+        int bucket = distance % bucketCount;
+        int head = head(bucket);
+        next[id] = head;
+        previous[id] = -1;
+        if (head >= 0) {
+            previous[head] = id;
+        }
+        heads[bucket] = id;
+        headStamps[bucket] = generation;
+        if (++size > peakSize) {
+            peakSize = size;
+        }
+    }
+
+    void move(int id, int oldDistance, int newDistance) {
+        remove(id, oldDistance % bucketCount);
+        insert(id, newDistance);
+    }
+
+    /**
+     * @return a branch with the smallest queued distance
+     */
+    int poll() {
+        int bucket = current % bucketCount;
+        while (head(bucket) < 0) {
+            current++;
+            bucket = current % bucketCount;
+        }
+        int id = heads[bucket];
+        remove(id, bucket);
+        return id;
+    }
+
+    private int head(int bucket) {
+        return headStamps[bucket] == generation ? heads[bucket] : -1;
+    }
+
+    private void remove(int id, int bucket) {
+        int before = previous[id];
+        int after = next[id];
+        if (before >= 0) {
+            next[before] = after;
+        } else {
+            heads[bucket] = after;
+        }
+        if (after >= 0) {
+            previous[after] = before;
+        }
+        size--;
+    }
+}
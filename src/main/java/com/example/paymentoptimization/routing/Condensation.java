@@ -0,0 +1,259 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.GraphMutation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reachability labels of one graph snapshot, computed on its condensation: every strongly connected component
+ * is collapsed into one vertex, which leaves a DAG. Components are numbered in the order Tarjan's algorithm
+ * completes them, a reverse topological order, so a component can only reach components with a lower number.
+ * Each component additionally carries {@value #TRAVERSALS} interval labels (GRAIL): a depth-first traversal of the
+ * DAG assigns it its post-order rank and the lowest rank below it, and a component can only reach components whose
+ * interval lies within its own. A pair is answered by those checks alone unless all of them pass, in which case
+ * a search of the DAG, pruned by the same checks, confirms it; for unreachable pairs that search is rare and short.
+ */
+final class Condensation {
+    static final int TRAVERSALS = 2;
+
+    private final int size;
+    private final int[] components;
+    private final int componentCount;
+    private final int[] dagOffsets;
+    private final int[] dagTargets;
+    private final int[] low;   // [traversal * componentCount + component]
+    private final int[] rank;  // post-order rank, same layout
+
+    private Condensation(int size, int[] components, int componentCount, int[] dagOffsets, int[] dagTargets,
+                         int[] low, int[] rank) {
+        this.size = size;
+        this.components = components;
+        this.componentCount = componentCount;
+        this.dagOffsets = dagOffsets;
+        this.dagTargets = dagTargets;
+        this.low = low;
+        this.rank = rank;
+    }
+
+    static Condensation build(CompactGraph graph) {
+        int n = graph.size();
+        int[] components = new int[n];
+        int componentCount = stronglyConnectedComponents(graph, components);
+
+        int[] dagOffsets = new int[componentCount + 1];
+        for (int branch = 0; branch < n; branch++) {
+            for (int edge = graph.edgesStart(branch), end = graph.edgesEnd(branch); edge < end; edge++) {
+                if (components[graph.target(edge)] != components[branch]) {
+                    dagOffsets[components[branch] + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < componentCount; c++) {
+            dagOffsets[c + 1] += dagOffsets[c];
+        }
+        int[] dagTargets = new int[dagOffsets[componentCount]];
+        int[] cursor = Arrays.copyOf(dagOffsets, componentCount);
+        for (int branch = 0; branch < n; branch++) {
+            for (int edge = graph.edgesStart(branch), end = graph.edgesEnd(branch); edge < end; edge++) {
+                int target = components[graph.target(edge)];
+                if (target != components[branch]) {
+                    dagTargets[cursor[components[branch]]++] = target;
+                }
+            }
+        }
+
+        int[] low = new int[TRAVERSALS * componentCount];
+        int[] rank = new int[TRAVERSALS * componentCount];
+        for (int traversal = 0; traversal < TRAVERSALS; traversal++) {
+            label(componentCount, dagOffsets, dagTargets, traversal, low, rank);
+        }
+        return new Condensation(n, components, componentCount, dagOffsets, dagTargets, low, rank);
+    }
+
+    /**
+     * Keeps the labels for a snapshot whose added edges only connect branches that were already connected, which
+     * leaves the reachability relation, and therefore every label, unchanged. Added branches without edges only
+     * reach themselves and need no labels. The components and labels are not maintained incrementally: a single edge
+     * that creates a new route, or merges components, discards them all.
+     * @return this, or null if an added edge creates new routes and the labels must be rebuilt
+     */
+    Condensation update(CompactGraph graph, List<GraphMutation> insertions) {
+        for (GraphMutation mutation : insertions) {
+            if (mutation.getType() == GraphMutation.Type.ADD_EDGE) {
+                int from = graph.idOf(mutation.getFrom());
+                int to = graph.idOf(mutation.getTo());
+                if (from >= size || to >= size || !isReachable(from, to)) {
+                    return null;
+                }
+            }
+        }
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int componentCount() {
+        return componentCount;
+    }
+
+    boolean isReachable(int origin, int destination) {
+        if (origin >= size || destination >= size) {
+            return origin == destination;  // Added after the build without edges, so isolated
+        }
+        int from = components[origin];
+        int to = components[destination];
+        if (from == to) {
+            return true;
+        }
+        if (!mayReach(from, to)) {
+            return false;
+        }
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(componentCount)) {
+            SearchSpace space = workspace.forward();
+            IndexedMinHeap heap = space.heap();
+            // Components closest to the target in topological order first
+            space.relax(from, 0, -1, from - to);
+            while (!heap.isEmpty()) {
+                int component = space.pollSettled();
+                for (int edge = dagOffsets[component], end = dagOffsets[component + 1]; edge < end; edge++) {
+                    int next = dagTargets[edge];
+                    if (next == to) {
+                        return true;
+                    }
+                    if (!space.isReached(next) && mayReach(next, to)) {
+                        space.relax(next, 0, component, next - to);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean mayReach(int from, int to) {
+        if (from < to) {
+            return false;
+        }
+        for (int offset = 0; offset < TRAVERSALS * componentCount; offset += componentCount) {
+            if (low[offset + to] < low[offset + from] || rank[offset + to] > rank[offset + from]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Iterative Tarjan, so that long chains cannot overflow the stack.
+     * @return the number of components
+     */
+    private static int stronglyConnectedComponents(CompactGraph graph, int[] components) {
+        int n = graph.size();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        int[] cursor = new int[n];
+        int[] callStack = new int[n];
+        int[] componentStack = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        int nextIndex = 0;
+        int componentCount = 0;
+        int componentTop = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int callTop = 0;
+            callStack[callTop++] = root;
+            index[root] = lowLink[root] = nextIndex++;
+            cursor[root] = graph.edgesStart(root);
+            componentStack[componentTop++] = root;
+            onStack[root] = true;
+            while (callTop > 0) {
+                int branch = callStack[callTop - 1];
+                if (cursor[branch] < graph.edgesEnd(branch)) {
+                    int next = graph.target(cursor[branch]++);
+                    if (index[next] < 0) {
+                        index[next] = lowLink[next] = nextIndex++;
+                        cursor[next] = graph.edgesStart(next);
+                        componentStack[componentTop++] = next;
+                        onStack[next] = true;
+                        callStack[callTop++] = next;
+                    } else if (onStack[next]) {
+                        lowLink[branch] = Math.min(lowLink[branch], index[next]);
+                    }
+                    continue;
+                }
+                callTop--;
+                if (lowLink[branch] == index[branch]) {
+                    int member;
+                    do {
+                        member = componentStack[--componentTop];
+                        onStack[member] = false;
+                        components[member] = componentCount;
+                    } while (member != branch);
+                    componentCount++;
+                }
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[branch]);
+                }
+            }
+        }
+        return componentCount;
+    }
+
+    /**
+     * One depth-first traversal of the DAG from its sources, visiting children in ascending order on even
+     * traversals and descending order on odd ones so that the intervals of different traversals disagree.
+     */
+    private static void label(int componentCount, int[] dagOffsets, int[] dagTargets, int traversal,
+                              int[] low, int[] rank) {
+        int offset = traversal * componentCount;
+        boolean descending = (traversal & 1) == 1;
+        boolean[] visited = new boolean[componentCount];
+        int[] cursor = new int[componentCount];
+        int[] stack = new int[componentCount];
+        int nextRank = 0;
+        // Higher numbers come first in topological order, so sources are visited before what they reach
+        for (int root = componentCount - 1; root >= 0; root--) {
+            if (visited[root]) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = root;
+            visited[root] = true;
+            cursor[root] = 0;
+            while (top > 0) {
+                int component = stack[top - 1];
+                int start = dagOffsets[component];
+                int degree = dagOffsets[component + 1] - start;
+                if (cursor[component] < degree) {
+                    int i = cursor[component]++;
+                    int child = dagTargets[descending ? start + degree - 1 - i : start + i];
+                    if (!visited[child]) {
+                        visited[child] = true;
+                        cursor[child] = 0;
+                        stack[top++] = child;
+                    }
+                    continue;
+                }
+                top--;
+                int lowest = nextRank;
+                for (int edge = start; edge < start + degree; edge++) {
+                    lowest = Math.min(lowest, low[offset + dagTargets[edge]]);
+                }
+                rank[offset + component] = nextRank++;
+                low[offset + component] = lowest;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "reachability index of " + size + " branches in " + componentCount + " components";
+    }
+}
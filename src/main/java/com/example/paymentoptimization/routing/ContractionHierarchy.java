@@ -0,0 +1,421 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * A contraction hierarchy of one graph snapshot.
+ * Branches are contracted one at a time, least important first; contracting {@code v} adds a shortcut
+ * {@code u -> w} for every pair of remaining neighbours whose cheapest connection runs through {@code v}.
+ * The fee is charged on the branch being left, so the original edge {@code u -> v} weighs {@code cost(u)} and a
+ * shortcut weighs the sum of the edges it replaces: {@code cost(u) + cost(v)} for {@code u -> v -> w}. Weights
+ * therefore depend only on the branches a shortcut passes through, and the destination's own cost is never added.
+ * <p>
+ * Every edge is stored once, at its lower-ranked end: {@code up} lists edges to higher-ranked branches and
+ * {@code down} lists edges arriving from higher-ranked branches. A query only ever follows edges upwards, forward
+ * from the origin over {@code up} and backward from the destination over {@code down}. Between any two branches
+ * only the cheapest edge is kept, so a shortcut can be unpacked by looking up its two halves by their endpoints.
+ * Branches added after the hierarchy was built are not part of it and have no edges.
+ */
+final class ContractionHierarchy {
+    // Witness searches give up after settling this many branches and add the shortcut anyway,
+    // which is always correct but may add shortcuts that are not strictly needed
+    private static final int WITNESS_SETTLE_LIMIT = 200;
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    private final int size;
+    private final int[] rank;
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upMiddles;
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downWeights;
+    private final int[] downMiddles;
+    private final int shortcuts;
+
+    private ContractionHierarchy(int size, int[] rank, EdgeRows up, EdgeRows down, int shortcuts) {
+        this.size = size;
+        this.rank = rank;
+        this.upOffsets = up.offsets();
+        this.upTargets = up.flatten(up.neighbors);
+        this.upWeights = up.flatten(up.weights);
+        this.upMiddles = up.flatten(up.middles);
+        this.downOffsets = down.offsets();
+        this.downSources = down.flatten(down.neighbors);
+        this.downWeights = down.flatten(down.weights);
+        this.downMiddles = down.flatten(down.middles);
+        this.shortcuts = shortcuts;
+    }
+
+    /**
+     * Orders the branches by edge difference (shortcuts added minus edges removed) plus the number of
+     * already contracted neighbours, which keeps the contraction spread evenly over the graph.
+     * Priorities are updated lazily: a branch whose recomputed priority is no longer the smallest is re-queued.
+     */
+    static ContractionHierarchy build(CompactGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    int size() {
+        return size;
+    }
+
+    int rank(int id) {
+        return rank[id];
+    }
+
+    int shortcutCount() {
+        return shortcuts;
+    }
+
+    int upStart(int id) {
+        return upOffsets[id];
+    }
+
+    int upEnd(int id) {
+        return upOffsets[id + 1];
+    }
+
+    int upTarget(int edge) {
+        return upTargets[edge];
+    }
+
+    int upWeight(int edge) {
+        return upWeights[edge];
+    }
+
+    int downStart(int id) {
+        return downOffsets[id];
+    }
+
+    int downEnd(int id) {
+        return downOffsets[id + 1];
+    }
+
+    int downSource(int edge) {
+        return downSources[edge];
+    }
+
+    int downWeight(int edge) {
+        return downWeights[edge];
+    }
+
+    /**
+     * Appends the original branches of the edge {@code from -> to} to {@code path}, excluding {@code from}.
+     * @return the new length of the path
+     */
+    int unpack(int from, int to, int[] path, int length) {
+        int middle = middle(from, to);
+        if (middle < 0) {
+            path[length] = to;
+            return length + 1;
+        }
+        return unpack(middle, to, path, unpack(from, middle, path, length));
+    }
+
+    /**
+     * @return the number of original edges the hierarchy edge {@code from -> to} stands for
+     */
+    int hops(int from, int to) {
+        int middle = middle(from, to);
+        return middle < 0 ? 1 : hops(from, middle) + hops(middle, to);
+    }
+
+    /**
+     * @return approximate heap footprint of the hierarchy in bytes
+     */
+    long footprintBytes() {
+        return 4L * (rank.length + upOffsets.length + downOffsets.length
+                + 3L * upTargets.length + 3L * downSources.length);
+    }
+
+    @Override
+    public String toString() {
+        return "contraction hierarchy (" + shortcuts + " shortcuts, " + footprintBytes() / 1024 + " KB)";
+    }
+
+    private int middle(int from, int to) {
+        if (rank[to] > rank[from]) {
+            for (int edge = upOffsets[from], end = upOffsets[from + 1]; edge < end; edge++) {
+                if (upTargets[edge] == to) {
+                    return upMiddles[edge];
+                }
+            }
+        } else {
+            for (int edge = downOffsets[to], end = downOffsets[to + 1]; edge < end; edge++) {
+                if (downSources[edge] == from) {
+                    return downMiddles[edge];
+                }
+            }
+        }
+        throw new IllegalStateException("No hierarchy edge " + from + " -> " + to);
+    }
+
+    /**
+     * Growable per-branch edge lists, used both for the remaining graph during contraction and for the result.
+     */
+    private static final class EdgeRows {
+        private final int[][] neighbors;
+        private final int[][] weights;
+        private final int[][] middles;
+        private final int[] degrees;
+
+        private EdgeRows(int size) {
+            this.neighbors = new int[size][];
+            this.weights = new int[size][];
+            this.middles = new int[size][];
+            this.degrees = new int[size];
+        }
+
+        /**
+         * Adds the edge or lowers the weight of an existing one between the same branches.
+         * @return true if a new edge was added
+         */
+        boolean addOrImprove(int row, int neighbor, int weight, int middle) {
+            int degree = degrees[row];
+            int[] rowNeighbors = neighbors[row];
+            for (int i = 0; i < degree; i++) {
+                if (rowNeighbors[i] == neighbor) {
+                    if (weight < weights[row][i]) {
+                        weights[row][i] = weight;
+                        middles[row][i] = middle;
+                    }
+                    return false;
+                }
+            }
+            if (rowNeighbors == null || degree == rowNeighbors.length) {
+                int capacity = Math.max(4, degree * 2);
+                neighbors[row] = rowNeighbors == null ? new int[capacity] : Arrays.copyOf(rowNeighbors, capacity);
+                weights[row] = weights[row] == null ? new int[capacity] : Arrays.copyOf(weights[row], capacity);
+                middles[row] = middles[row] == null ? new int[capacity] : Arrays.copyOf(middles[row], capacity);
+            }
+            neighbors[row][degree] = neighbor;
+            weights[row][degree] = weight;
+            middles[row][degree] = middle;
+            degrees[row]++;
+            return true;
+        }
+
+        int[] offsets() {
+            int[] offsets = new int[degrees.length + 1];
+            for (int i = 0; i < degrees.length; i++) {
+                offsets[i + 1] = offsets[i] + degrees[i];
+            }
+            return offsets;
+        }
+
+        int[] flatten(int[][] rows) {
+            int total = 0;
+            for (int degree : degrees) {
+                total += degree;
+            }
+            int[] flat = new int[total];
+            int position = 0;
+            for (int i = 0; i < degrees.length; i++) {
+                if (degrees[i] > 0) {
+                    System.arraycopy(rows[i], 0, flat, position, degrees[i]);
+                    position += degrees[i];
+                }
+            }
+            return flat;
+        }
+    }
+
+    private static final class Builder {
+        private final int size;
+        private final EdgeRows out;
+        private final EdgeRows in;
+        private final EdgeRows up;
+        private final EdgeRows down;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        private final int[] rank;
+        // Witness search labels, generation-stamped like SearchSpace
+        private final int[] witnessStamps;
+        private final int[] witnessDistances;
+        private final IndexedMinHeap witnessHeap = new IndexedMinHeap();
+        private int generation;
+        private int shortcuts;
+
+        private Builder(CompactGraph graph) {
+            this.size = graph.size();
+            this.out = new EdgeRows(size);
+            this.in = new EdgeRows(size);
+            this.up = new EdgeRows(size);
+            this.down = new EdgeRows(size);
+            this.contracted = new boolean[size];
+            this.contractedNeighbors = new int[size];
+            this.rank = new int[size];
+            this.witnessStamps = new int[size];
+            this.witnessDistances = new int[size];
+            witnessHeap.reset(size);
+
+            for (int u = 0; u < size; u++) {
+                for (int edge = graph.edgesStart(u), end = graph.edgesEnd(u); edge < end; edge++) {
+                    int v = graph.target(edge);
+                    if (v != u) {
+                        out.addOrImprove(u, v, graph.cost(u), -1);
+                        in.addOrImprove(v, u, graph.cost(u), -1);
+                    }
+                }
+            }
+        }
+
+        private ContractionHierarchy build() {
+            LongMinHeap queue = new LongMinHeap(size);
+            for (int v = 0; v < size; v++) {
+                queue.add(pack(priority(v), v));
+            }
+
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = (int) queue.poll();
+                int priority = priority(v);
+                if (!queue.isEmpty() && priority > unpackPriority(queue.peek())) {
+                    queue.add(pack(priority, v));
+                    continue;
+                }
+                contract(v);
+                rank[v] = order++;
+            }
+            return new ContractionHierarchy(size, rank, up, down, shortcuts);
+        }
+
+        private static long pack(int priority, int id) {
+            // Priorities may be negative: offset them so that the packed keys order like the priorities
+            return ((long) (priority + Integer.MAX_VALUE / 2) << 32) | id;
+        }
+
+        private static int unpackPriority(long key) {
+            return (int) (key >>> 32) - Integer.MAX_VALUE / 2;
+        }
+
+        private int priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < in.degrees[v]; i++) {
+                removed += contracted[in.neighbors[v][i]] ? 0 : 1;
+            }
+            for (int i = 0; i < out.degrees[v]; i++) {
+                removed += contracted[out.neighbors[v][i]] ? 0 : 1;
+            }
+            return shortcutsNeeded(v, false) - removed + contractedNeighbors[v];
+        }
+
+        private void contract(int v) {
+            for (int i = 0; i < out.degrees[v]; i++) {
+                int w = out.neighbors[v][i];
+                if (!contracted[w]) {
+                    up.addOrImprove(v, w, out.weights[v][i], out.middles[v][i]);
+                    contractedNeighbors[w]++;
+                }
+            }
+            for (int i = 0; i < in.degrees[v]; i++) {
+                int u = in.neighbors[v][i];
+                if (!contracted[u]) {
+                    down.addOrImprove(v, u, in.weights[v][i], in.middles[v][i]);
+                    contractedNeighbors[u]++;
+                }
+            }
+            shortcutsNeeded(v, true);
+            contracted[v] = true;
+        }
+
+        /**
+         * Counts, and when {@code add} is set inserts, the shortcuts contracting {@code v} requires.
+         */
+        private int shortcutsNeeded(int v, boolean add) {
+            int count = 0;
+            int maxOut = 0;
+            for (int j = 0; j < out.degrees[v]; j++) {
+                if (!contracted[out.neighbors[v][j]]) {
+                    maxOut = Math.max(maxOut, out.weights[v][j]);
+                }
+            }
+            for (int i = 0; i < in.degrees[v]; i++) {
+                int u = in.neighbors[v][i];
+                if (contracted[u]) {
+                    continue;
+                }
+                int inWeight = in.weights[v][i];
+                witnessSearch(u, v, inWeight, inWeight + maxOut, add ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT);
+                for (int j = 0; j < out.degrees[v]; j++) {
+                    int w = out.neighbors[v][j];
+                    if (w == u || contracted[w]) {
+                        continue;
+                    }
+                    int via = inWeight + out.weights[v][j];
+                    if (witnessDistance(w) <= via) {
+                        continue;
+                    }
+                    count++;
+                    if (add) {
+                        if (out.addOrImprove(u, w, via, v)) {
+                            shortcuts++;
+                        }
+                        in.addOrImprove(w, u, via, v);
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Dijkstra from {@code source} over the remaining graph without {@code excluded}, bounded by cost and
+         * by the number of settled branches. In dense graphs direct edges usually witness every pair already,
+         * so the search ends right after settling the source if they do.
+         */
+        private void witnessSearch(int source, int excluded, int inWeight, int maxCost, int settleLimit) {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(witnessStamps, 0);
+                generation = 1;
+            }
+            witnessHeap.reset(size);
+            witnessStamps[source] = generation;
+            witnessDistances[source] = 0;
+            witnessHeap.insert(source, 0);
+
+            for (int settled = 0; !witnessHeap.isEmpty() && settled < settleLimit; settled++) {
+                if (witnessHeap.peekKey() > maxCost) {
+                    break;
+                }
+                int current = witnessHeap.poll();
+                int distance = witnessDistances[current];
+                for (int i = 0; i < out.degrees[current]; i++) {
+                    int neighbor = out.neighbors[current][i];
+                    if (neighbor == excluded || contracted[neighbor]) {
+                        continue;
+                    }
+                    int newCost = distance + out.weights[current][i];
+                    if (witnessStamps[neighbor] != generation) {
+                        witnessStamps[neighbor] = generation;
+                        witnessDistances[neighbor] = newCost;
+                        witnessHeap.insert(neighbor, newCost);
+                    } else if (newCost < witnessDistances[neighbor]) {
+                        witnessDistances[neighbor] = newCost;
+                        witnessHeap.decreaseKey(neighbor, newCost);
+                    }
+                }
+                if (current == source && directlyWitnessed(source, excluded, inWeight)) {
+                    break;
+                }
+            }
+        }
+
+        private boolean directlyWitnessed(int source, int excluded, int inWeight) {
+            for (int j = 0; j < out.degrees[excluded]; j++) {
+                int w = out.neighbors[excluded][j];
+                if (w != source && !contracted[w] && witnessDistance(w) > inWeight + out.weights[excluded][j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int witnessDistance(int id) {
+            return witnessStamps[id] == generation ? witnessDistances[id] : SearchSpace.UNREACHED;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Queries a {@link ContractionHierarchy}: a forward search from the origin and a backward search from the
+ * destination, each following only edges towards more important branches. Both searches meet at the highest
+ * branch of the cheapest route, and its shortcuts are then unpacked into the original branches.
+ * The hierarchy is maintained by a {@link BackgroundIndex}; until one matching the queried snapshot is available,
+ * queries are answered by {@link WorkspaceDijkstraEngine}. It is only maintained when {@code contraction-hierarchy}
+ * is the configured engine or {@code routing-config.contraction-hierarchy.enabled} is set.
+ */
+@Component
+public class ContractionHierarchyEngine implements RoutingEngine {
+    public static final String NAME = "contraction-hierarchy";
+
+    private final RoutingEngine fallback = new WorkspaceDijkstraEngine();
+    private final BackgroundIndex<ContractionHierarchy> index;
+
+    public ContractionHierarchyEngine(Graph graph, RoutingConfig routingConfig) {
+        if (routingConfig.getContractionHierarchy().isEnabled() || NAME.equals(routingConfig.getEngine())) {
+            this.index = new BackgroundIndex<>(graph, "contraction-hierarchy", ContractionHierarchy::build);
+        } else {
+            this.index = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return true if queries on the graph are answered from the hierarchy rather than the fallback
+     */
+    @Override
+    public boolean isReady(CompactGraph graph) {
+        return index != null && index.get(graph) != null;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        ContractionHierarchy hierarchy = index == null ? null : index.get(graph);
+        if (hierarchy == null) {
+            return fallback.route(graph, origin, destination);
+        }
+        if (origin == destination) {
+            return new Route(new int[]{origin}, 0);
+        }
+        if (origin >= hierarchy.size() || destination >= hierarchy.size()) {
+            // Added after the hierarchy was built without any edges
+            return null;
+        }
+
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace forward = workspace.forward();
+            SearchSpace backward = workspace.backward();
+            IndexedMinHeap forwardHeap = forward.heap();
+            IndexedMinHeap backwardHeap = backward.heap();
+            forward.relax(origin, 0, -1, 0);
+            backward.relax(destination, 0, -1, 0);
+
+            int best = SearchSpace.UNREACHED;
+            int meeting = -1;
+            while (true) {
+                boolean forwardActive = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+                boolean backwardActive = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+                if (!forwardActive && !backwardActive) {
+                    break;
+                }
+
+                if (forwardActive && (!backwardActive || forwardHeap.peekKey() <= backwardHeap.peekKey())) {
+                    int current = forward.pollSettled();
+                    int distance = forward.distance(current);
+                    int remaining = backward.distance(current);
+                    if (remaining != SearchSpace.UNREACHED && (long) distance + remaining < best) {
+                        best = distance + remaining;
+                        meeting = current;
+                    }
+                    for (int edge = hierarchy.upStart(current), end = hierarchy.upEnd(current); edge < end; edge++) {
+                        int neighbor = hierarchy.upTarget(edge);
+                        int newCost = distance + hierarchy.upWeight(edge);
+                        if (newCost < forward.distance(neighbor)) {
+                            forward.relax(neighbor, newCost, current, newCost);
+                        }
+                    }
+                } else {
+                    int current = backward.pollSettled();
+                    int distance = backward.distance(current);
+                    int reached = forward.distance(current);
+                    if (reached != SearchSpace.UNREACHED && (long) reached + distance < best) {
+                        best = reached + distance;
+                        meeting = current;
+                    }
+                    for (int edge = hierarchy.downStart(current), end = hierarchy.downEnd(current); edge < end; edge++) {
+                        int neighbor = hierarchy.downSource(edge);
+                        int newCost = distance + hierarchy.downWeight(edge);
+                        if (newCost < backward.distance(neighbor)) {
+                            backward.relax(neighbor, newCost, current, newCost);
+                        }
+                    }
+                }
+            }
+
+            if (meeting < 0) {
+                return null;
+            }
+            return unpackRoute(hierarchy, forward, backward, meeting, best);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (index != null) {
+            index.shutdown();
+        }
+    }
+
+    /**
+     * Rebuilds the hierarchy for the current snapshot on the calling thread.
+     */
+    void rebuildNow() {
+        index.rebuildNow();
+    }
+
+    /**
+     * Expands the hierarchy path origin..meeting..destination into original branches.
+     */
+    private static Route unpackRoute(ContractionHierarchy hierarchy, SearchSpace forward, SearchSpace backward,
+                                     int meeting, int cost) {
+        int hops = 0;
+        int origin = meeting;
+        for (int id = meeting, previous = forward.predecessor(id); previous >= 0; id = previous, previous = forward.predecessor(id)) {
+            hops += hierarchy.hops(previous, id);
+            origin = previous;
+        }
+        for (int id = meeting, next = backward.predecessor(id); next >= 0; id = next, next = backward.predecessor(id)) {
+            hops += hierarchy.hops(id, next);
+        }
+
+        int[] branches = new int[hops + 1];
+        branches[0] = origin;
+        int[] upward = new int[hops + 1];
+        int upwardLength = 0;
+        for (int id = meeting; id >= 0; id = forward.predecessor(id)) {
+            upward[upwardLength++] = id;
+        }
+        int length = 1;
+        for (int i = upwardLength - 1; i > 0; i--) {
+            length = hierarchy.unpack(upward[i], upward[i - 1], branches, length);
+        }
+        for (int id = meeting, next = backward.predecessor(id); next >= 0; id = next, next = backward.predecessor(id)) {
+            length = hierarchy.unpack(id, next, branches, length);
+        }
+        return new Route(branches, cost, forward.settledCount() + backward.settledCount(),
+                forward.relaxedCount() + backward.relaxedCount(),
+                forward.heap().peakSize() + backward.heap().peakSize());
+    }
+}
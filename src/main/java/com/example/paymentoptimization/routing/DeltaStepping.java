@@ -0,0 +1,306 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One single-source search by delta-stepping, spreading the work of a bucket over a fork-join pool.
+ * Branches are kept in buckets of width {@code delta} by tentative cost. The lowest non-empty bucket is taken as a
+ * frontier, and its branches relax their edges in parallel; branches whose cost drops into the same bucket form the
+ * next frontier of it, so a bucket is done when it stays empty. Costs below the current bucket are then final, and
+ * every frontier has as many independent branches as the bucket holds, where Dijkstra settles one at a time. Labels
+ * pack the cost and the predecessor into one long that threads update by compare-and-set, so a branch never shows
+ * the cost of one route with the predecessor of another. A branch may be relaxed more than once when its cost
+ * improves within a bucket, which a wide {@code delta} makes more likely and a narrow one trades for more buckets.
+ */
+final class DeltaStepping {
+    // Frontiers smaller than this are relaxed on the calling thread, where forking would cost more than it saves
+    private static final int SEQUENTIAL_FRONTIER = 512;
+
+    private final CompactGraph graph;
+    private final int delta;
+    private final ForkJoinPool pool;
+    // (cost + 1) << 32 | (predecessor + 1), so that the zeroed array means unreached
+    private final AtomicLongArray labels;
+    private final List<List<Segment>> buckets = new ArrayList<>();
+    private long settledNodes;
+
+    private DeltaStepping(CompactGraph graph, int delta, ForkJoinPool pool) {
+        this.graph = graph;
+        this.delta = delta;
+        this.pool = pool;
+        this.labels = new AtomicLongArray(graph.size());
+    }
+
+    /**
+     * @param destinations the search stops once all of them have their final cost, or null to search everything
+     */
+    static DeltaStepping search(CompactGraph graph, int origin, int[] destinations, int delta, ForkJoinPool pool) {
+        DeltaStepping search = new DeltaStepping(graph, Math.max(1, delta), pool);
+        search.run(origin, destinations);
+        return search;
+    }
+
+    private void run(int origin, int[] destinations) {
+        labels.set(origin, label(0, -1));
+        add(0, new Segment(new int[]{origin}, 1));
+        int pending = 0;  // Destinations before this one have their final cost
+        for (int bucket = nextBucket(0); bucket >= 0; bucket = nextBucket(bucket)) {
+            long settledBelow = (long) bucket * delta;
+            while (destinations != null && pending < destinations.length
+                    && isReached(destinations[pending]) && distance(destinations[pending]) < settledBelow) {
+                pending++;
+            }
+            if (destinations != null && pending == destinations.length) {
+                return;
+            }
+            int[] frontier = take(bucket);
+            if (frontier.length < SEQUENTIAL_FRONTIER || pool.getParallelism() == 1) {
+                merge(relax(frontier, 0, frontier.length, bucket));
+            } else {
+                Queue<Buckets> results = new ConcurrentLinkedQueue<>();
+                int grain = Math.max(SEQUENTIAL_FRONTIER / 2, frontier.length / (pool.getParallelism() * 4));
+                pool.invoke(new RelaxTask(frontier, 0, frontier.length, bucket, grain, results));
+                results.forEach(this::merge);
+            }
+        }
+    }
+
+    private Buckets relax(int[] frontier, int from, int to, int bucket) {
+        Buckets next = new Buckets(bucket);
+        long lower = (long) bucket * delta;
+        for (int i = from; i < to; i++) {
+            int current = frontier[i];
+            int distance = distance(current);
+            if (distance < lower) {
+                continue;  // Improved into a bucket that has already been processed
+            }
+            next.settled++;
+            int newCost = distance + graph.cost(current);
+            long newLabel = label(newCost, current);
+            for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                if (improve(neighbor, newLabel)) {
+                    next.add(newCost / delta, neighbor);
+                }
+            }
+        }
+        return next;
+    }
+
+    private boolean improve(int branch, long newLabel) {
+        while (true) {
+            long current = labels.get(branch);
+            if (current != 0 && current >>> 32 <= newLabel >>> 32) {
+                return false;
+            }
+            if (labels.compareAndSet(branch, current, newLabel)) {
+                return true;
+            }
+        }
+    }
+
+    private static long label(int cost, int predecessor) {
+        return (long) cost + 1 << 32 | predecessor + 1;
+    }
+
+    private void merge(Buckets next) {
+        settledNodes += next.settled;
+        for (int i = 0; i < next.lists.length; i++) {
+            if (next.sizes[i] > 0) {
+                add(next.base + i, new Segment(next.lists[i], next.sizes[i]));
+            }
+        }
+    }
+
+    private void add(int bucket, Segment segment) {
+        while (buckets.size() <= bucket) {
+            buckets.add(null);
+        }
+        if (buckets.get(bucket) == null) {
+            buckets.set(bucket, new ArrayList<>());
+        }
+        buckets.get(bucket).add(segment);
+    }
+
+    private int nextBucket(int from) {
+        for (int bucket = from; bucket < buckets.size(); bucket++) {
+            if (buckets.get(bucket) != null) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    private int[] take(int bucket) {
+        List<Segment> segments = buckets.set(bucket, null);
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        int[] frontier = new int[size];
+        int offset = 0;
+        for (Segment segment : segments) {
+            System.arraycopy(segment.branches, 0, frontier, offset, segment.size);
+            offset += segment.size;
+        }
+        return frontier;
+    }
+
+    boolean isReached(int branch) {
+        return labels.get(branch) != 0;
+    }
+
+    /**
+     * @return the cost of the cheapest route to the branch, or {@link SearchSpace#UNREACHED}
+     */
+    int distance(int branch) {
+        long label = labels.get(branch);
+        return label == 0 ? SearchSpace.UNREACHED : (int) ((label >>> 32) - 1);
+    }
+
+    /**
+     * @return the branch before it on its cheapest route, or -1 for the origin and unreached branches
+     */
+    int predecessor(int branch) {
+        return (int) labels.get(branch) - 1;
+    }
+
+    /**
+     * @return the number of frontier branches whose edges were relaxed, counting a branch once per relaxation
+     */
+    int settledNodes() {
+        return (int) Math.min(settledNodes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the cheapest route to a destination passed to {@link #search}, or null if it cannot be reached
+     */
+    Route route(int destination) {
+        if (!isReached(destination)) {
+            return null;
+        }
+        int length = 1;
+        for (int branch = destination; predecessor(branch) >= 0; branch = predecessor(branch)) {
+            length++;
+        }
+        int[] branches = new int[length];
+        for (int branch = destination, i = length - 1; i >= 0; branch = predecessor(branch), i--) {
+            branches[i] = branch;
+        }
+        return new Route(branches, distance(destination), settledNodes());
+    }
+
+    /**
+     * @param destinations the destinations passed to {@link #search}, or null for every reachable branch by
+     * increasing cost
+     */
+    ShortestPathTree tree(int origin, int[] destinations) {
+        int[] branches = destinations == null ? reachedByCost() : destinations.clone();
+        int[] costs = new int[branches.length];
+        int[] predecessors = new int[branches.length];
+        for (int i = 0; i < branches.length; i++) {
+            boolean reached = isReached(branches[i]);
+            costs[i] = reached ? distance(branches[i]) : ShortestPathTree.UNREACHABLE;
+            predecessors[i] = reached ? predecessor(branches[i]) : -1;
+        }
+        return ShortestPathTree.of(origin, branches, costs, predecessors, settledNodes());
+    }
+
+    private int[] reachedByCost() {
+        int count = 0;
+        for (int branch = 0; branch < graph.size(); branch++) {
+            if (isReached(branch)) {
+                count++;
+            }
+        }
+        long[] keys = new long[count];
+        for (int branch = 0, i = 0; branch < graph.size(); branch++) {
+            if (isReached(branch)) {
+                keys[i++] = (long) distance(branch) << 32 | branch;
+            }
+        }
+        Arrays.parallelSort(keys);
+        int[] branches = new int[count];
+        for (int i = 0; i < count; i++) {
+            branches[i] = (int) keys[i];
+        }
+        return branches;
+    }
+
+    private static final class Segment {
+        final int[] branches;
+        final int size;
+
+        Segment(int[] branches, int size) {
+            this.branches = branches;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Branches one task moved into later buckets, indexed from the bucket being processed.
+     */
+    private static final class Buckets {
+        final int base;
+        int[][] lists = new int[1][];
+        int[] sizes = new int[1];
+        long settled;
+
+        Buckets(int base) {
+            this.base = base;
+        }
+
+        void add(int bucket, int branch) {
+            int i = bucket - base;
+            if (i >= lists.length) {
+                int length = Math.max(i + 1, lists.length * 2);
+                lists = Arrays.copyOf(lists, length);
+                sizes = Arrays.copyOf(sizes, length);
+            }
+            if (lists[i] == null) {
+                lists[i] = new int[16];
+            } else if (sizes[i] == lists[i].length) {
+                lists[i] = Arrays.copyOf(lists[i], sizes[i] * 2);
+            }
+            lists[i][sizes[i]++] = branch;
+        }
+    }
+
+    private final class RelaxTask extends RecursiveAction {
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final int bucket;
+        private final int grain;
+        private final Queue<Buckets> results;
+
+        RelaxTask(int[] frontier, int from, int to, int bucket, int grain, Queue<Buckets> results) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.bucket = bucket;
+            this.grain = grain;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                results.add(relax(frontier, from, to, bucket));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RelaxTask(frontier, from, middle, bucket, grain, results),
+                    new RelaxTask(frontier, middle, to, bucket, grain, results));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parallel single-source search by {@link DeltaStepping}, which uses every worker of a fork-join pool for one
+ * query instead of one core. It pays off on graphs of millions of branches, where a search settles a large part of
+ * the graph and each bucket holds enough branches to share out; on smaller graphs the sequential engines are
+ * faster. {@link RoutingEngines} therefore selects it automatically for graphs of at least
+ * {@code routing-config.delta-stepping.min-branches} branches when a plain search engine is configured, and for
+ * cost tables, as long as the pool has more than one worker. It can also be configured as {@code delta-stepping}.
+ */
+@Component
+public class DeltaSteppingEngine implements RoutingEngine {
+    public static final String NAME = "delta-stepping";
+
+    private final boolean enabled;
+    private final int minBranches;
+    private final int delta;
+    private final ForkJoinPool pool;
+
+    public DeltaSteppingEngine(RoutingConfig routingConfig) {
+        RoutingConfig.DeltaStepping config = routingConfig.getDeltaStepping();
+        this.enabled = config.isEnabled();
+        this.minBranches = config.getMinBranches();
+        this.delta = config.getDelta();
+        this.pool = config.getParallelism() > 0 ? new ForkJoinPool(config.getParallelism()) : ForkJoinPool.commonPool();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * @return true if the graph is large enough for a parallel search to beat a sequential one
+     */
+    public boolean isWorthwhile(CompactGraph graph) {
+        return enabled && graph.size() >= minBranches && pool.getParallelism() > 1;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        return search(graph, origin, new int[]{destination}).route(destination);
+    }
+
+    @Override
+    public Route[] routes(CompactGraph graph, int origin, int[] destinations) {
+        DeltaStepping search = search(graph, origin, destinations);
+        Route[] routes = new Route[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            routes[i] = search.route(destinations[i]);
+        }
+        return routes;
+    }
+
+    /**
+     * The parallel counterpart of {@link ShortestPathTree#search}, with the same costs; branches of equal cost may
+     * be listed in a different order and reached through a different predecessor.
+     */
+    public ShortestPathTree tree(CompactGraph graph, int origin, int[] destinations) {
+        return search(graph, origin, destinations).tree(origin, destinations);
+    }
+
+    private DeltaStepping search(CompactGraph graph, int origin, int[] destinations) {
+        return DeltaStepping.search(graph, origin, destinations, deltaOf(graph), pool);
+    }
+
+    // Half the highest cost approximates the mean of evenly spread costs, and keeps the number of buckets
+    // proportional to the number of hops of the longest route
+    private int deltaOf(CompactGraph graph) {
+        return delta > 0 ? delta : Math.max(1, graph.maxCost() / 2);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Textbook Dijkstra that allocates its labels and a lazy-deletion heap for every query.
+ * Kept as the reference implementation the other engines are checked and benchmarked against.
+ */
+@Component
+public class DijkstraEngine implements RoutingEngine {
+    public static final String NAME = "dijkstra";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        int[] distances = new int[graph.size()];
+        int[] previousBranch = new int[graph.size()];
+        boolean[] visited = new boolean[graph.size()]; // to avoid processing again the same branch
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        Arrays.fill(previousBranch, -1);
+
+        LongMinHeap priorityQueue = new LongMinHeap(graph.size());
+        int settled = 0;
+        int relaxed = 1;
+        int queuePeak = 1;
+        distances[origin] = 0;
+        priorityQueue.add(LongMinHeap.pack(0, origin));
+
+        while (!priorityQueue.isEmpty()) {
+            int current = LongMinHeap.id(priorityQueue.poll());
+            if (visited[current]) { // continue if branch already checked
+                continue;
+            }
+            visited[current] = true;
+            settled++;
+
+            if (current == destination) {
+                return createRoute(previousBranch, distances, destination, settled, relaxed, queuePeak);
+            }
+
+            int newCost = distances[current] + graph.cost(current);
+            for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                if (newCost < distances[neighbor]) {
+                    distances[neighbor] = newCost;
+                    previousBranch[neighbor] = current;
+                    priorityQueue.add(LongMinHeap.pack(newCost, neighbor));
+                    relaxed++;
+                }
+            }
+            queuePeak = Math.max(queuePeak, priorityQueue.size());
+        }
+        return null;
+    }
+
+    private static Route createRoute(int[] previous, int[] distances, int destination,
+                                     int settled, int relaxed, int queuePeak) {
+        int length = 0;
+        for (int d = destination; d >= 0; d = previous[d]) {
+            length++;
+        }
+        int[] branches = new int[length];
+        for (int d = destination; d >= 0; d = previous[d]) {
+            branches[--length] = d;
+        }
+        return new Route(branches, distances[destination], settled, relaxed, queuePeak);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+/**
+ * Decides which known routes an added edge can make cheaper, without searching each of them again.
+ * A route from {@code s} to {@code t} that uses the new edge {@code u -> v} costs at least
+ * {@code cost(s, u) + cost(u) + cost(v, t)}; one backward search from {@code u} and one forward search from
+ * {@code v} give those terms for every {@code s} and {@code t} at once. Distances are taken in the snapshot that
+ * contains the edge, so for a batch of edges a route is affected exactly when the check of some edge of the batch
+ * succeeds: the new cheapest route, if it is new, runs over at least one of them.
+ */
+public final class EdgeInsertion {
+    private final int viaCost;
+    private final int[] toFrom;  // cost(s, u) for every s
+    private final int[] fromTo;  // cost(v, t) for every t
+
+    private EdgeInsertion(int viaCost, int[] toFrom, int[] fromTo) {
+        this.viaCost = viaCost;
+        this.toFrom = toFrom;
+        this.fromTo = fromTo;
+    }
+
+    /**
+     * Runs the two searches for the edge {@code from -> to}.
+     * @param graph a snapshot containing the edge
+     */
+    public static EdgeInsertion of(CompactGraph graph, int from, int to) {
+        int[] toFrom = new int[graph.size()];
+        int[] fromTo = new int[graph.size()];
+        SingleSourceSearch.distances(graph, from, true, toFrom);
+        SingleSourceSearch.distances(graph, to, false, fromTo);
+        return new EdgeInsertion(graph.cost(from), toFrom, fromTo);
+    }
+
+    /**
+     * @param cost the cost of the known route, or {@link ShortestPathTree#UNREACHABLE} if there was none
+     * @return true if a route over the edge is cheaper than the known one
+     */
+    public boolean canImprove(int origin, int destination, int cost) {
+        if (toFrom[origin] == SearchSpace.UNREACHED || fromTo[destination] == SearchSpace.UNREACHED) {
+            return false;
+        }
+        return cost == ShortestPathTree.UNREACHABLE || (long) toFrom[origin] + viaCost + fromTo[destination] < cost;
+    }
+}
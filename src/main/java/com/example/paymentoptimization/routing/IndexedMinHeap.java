@@ -0,0 +1,100 @@
+package com.example.paymentoptimization.routing;
+
+/**
+ * Binary min-heap of branch ids with decrease-key, backed by primitive arrays that are reused across searches.
+ * Entries are ordered by key and then by id, so every engine settles equal-cost branches in the same order.
+ * The position table is only meaningful for ids currently in the heap; callers track membership themselves.
+ */
+final class IndexedMinHeap {
+    private long[] entries = new long[0];
+    private int[] positions = new int[0];
+    private int size;
+    private int peakSize;
+
+    void reset(int capacity) {
+        if (positions.length < capacity) {
+            entries = new long[capacity];
+            positions = new int[capacity];
+        }
+        size = 0;
+        peakSize = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the largest number of ids held at once since the last reset
+     */
+    int peakSize() {
+        return peakSize;
+    }
+
+    int peekKey() {
+        return (int) (entries[0] >>> 32);
+    }
+
+    void insert(int id, int key) {
+        int i = size++;
+        if (size > peakSize) {
+            peakSize = size;
+        }
+        siftUp(i, ((long) key << 32) | id);
+    }
+
+    void decreaseKey(int id, int key) {
+        siftUp(positions[id], ((long) key << 32) | id);
+    }
+
+    /**
+     * @return the id with the smallest key
+     */
+    int poll() {
+        int top = (int) entries[0];
+        long last = entries[--size];
+        if (size > 0) {
+            siftDown(last);
+        }
+        return top;
+    }
+
+    private void siftUp(int i, long entry) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            long p = entries[parent];
+            if (p <= entry) {
+                break;
+            }
+            entries[i] = p;
+            positions[(int) p] = i;
+            i = parent;
+        }
+        entries[i] = entry;
+        positions[(int) entry] = i;
+    }
+
+    private void siftDown(long entry) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            long c = entries[child];
+            if (child + 1 < size && entries[child + 1] < c) {
+                c = entries[++child];
+            }
+            if (entry <= c) {
+                break;
+            }
+            entries[i] = c;
+            positions[(int) c] = i;
+            i = child;
+        }
+        entries[i] = entry;
+        positions[(int) entry] = i;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+/**
+ * Distance tables to and from a set of landmark branches, used as A* lower bounds (ALT).
+ * By the triangle inequality, for every landmark {@code L}:
+ * {@code d(v, t) >= d(v, L) - d(t, L)} and {@code d(v, t) >= d(L, t) - d(L, v)}.
+ * Tables are laid out branch-major ({@code [branch * landmarks + i]}) so the bounds of one branch share a cache line.
+ * Branches added after the index was built have no entries and get a lower bound of zero.
+ */
+final class LandmarkIndex {
+    private final int size;
+    private final int[] landmarks;
+    private final int[] fromLandmark; // d(L, v)
+    private final int[] toLandmark;   // d(v, L)
+
+    private LandmarkIndex(int size, int[] landmarks, int[] fromLandmark, int[] toLandmark) {
+        this.size = size;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Picks landmarks by farthest selection: each new landmark is the branch farthest from those chosen so far,
+     * preferring branches no landmark reaches, which spreads them over the periphery and across components.
+     */
+    static LandmarkIndex build(CompactGraph graph, int count) {
+        int size = graph.size();
+        int k = Math.min(count, size);
+        int[] landmarks = new int[k];
+        int[] fromLandmark = new int[size * k];
+        int[] toLandmark = new int[size * k];
+        int[] distances = new int[size];
+        long[] closest = new long[size];
+        java.util.Arrays.fill(closest, Long.MAX_VALUE);
+
+        int next = 0;
+        for (int i = 0; i < k; i++) {
+            landmarks[i] = next;
+            SingleSourceSearch.distances(graph, next, false, distances);
+            for (int v = 0; v < size; v++) {
+                fromLandmark[v * k + i] = distances[v];
+                if (distances[v] != SearchSpace.UNREACHED) {
+                    closest[v] = Math.min(closest[v], distances[v]);
+                }
+            }
+            SingleSourceSearch.distances(graph, next, true, distances);
+            for (int v = 0; v < size; v++) {
+                toLandmark[v * k + i] = distances[v];
+            }
+
+            closest[next] = -1; // never pick the same landmark twice
+            long farthest = -1;
+            for (int v = 0; v < size; v++) {
+                if (closest[v] > farthest) {
+                    farthest = closest[v];
+                    next = v;
+                }
+            }
+        }
+        return new LandmarkIndex(size, landmarks, fromLandmark, toLandmark);
+    }
+
+    int landmarkCount() {
+        return landmarks.length;
+    }
+
+    int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * @return a lower bound of the cost from {@code v} to {@code target} using landmark {@code i}
+     */
+    int lowerBound(int i, int v, int target) {
+        if (v >= size || target >= size) {
+            return 0;
+        }
+        int k = landmarks.length;
+        int bound = 0;
+        int vTo = toLandmark[v * k + i];
+        int tTo = toLandmark[target * k + i];
+        if (vTo != SearchSpace.UNREACHED && tTo != SearchSpace.UNREACHED) {
+            bound = vTo - tTo;
+        }
+        int lFromT = fromLandmark[target * k + i];
+        int lFromV = fromLandmark[v * k + i];
+        if (lFromT != SearchSpace.UNREACHED && lFromV != SearchSpace.UNREACHED) {
+            bound = Math.max(bound, lFromT - lFromV);
+        }
+        return bound;
+    }
+
+    /**
+     * @return approximate heap footprint of the distance tables in bytes
+     */
+    long footprintBytes() {
+        return 4L * (fromLandmark.length + toLandmark.length + landmarks.length);
+    }
+
+    @Override
+    public String toString() {
+        return landmarks.length + " landmarks (" + footprintBytes() / 1024 + " KB)";
+    }
+}
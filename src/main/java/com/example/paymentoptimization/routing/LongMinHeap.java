@@ -0,0 +1,76 @@
+package com.example.paymentoptimization.routing;
+
+import java.util.Arrays;
+
+/**
+ * Growable binary min-heap of primitive longs.
+ * Used with keys packed as {@code (cost << 32) | branchId} so that no boxing happens while searching.
+ */
+final class LongMinHeap {
+    private long[] heap;
+    private int size;
+
+    LongMinHeap(int initialCapacity) {
+        this.heap = new long[Math.max(initialCapacity, 16)];
+    }
+
+    static long pack(int cost, int id) {
+        return ((long) cost << 32) | id;
+    }
+
+    static int cost(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int id(long key) {
+        return (int) key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long peek() {
+        return heap[0];
+    }
+
+    void add(long key) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    long poll() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
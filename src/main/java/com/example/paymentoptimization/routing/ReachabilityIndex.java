@@ -0,0 +1,62 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Answers whether any route exists between two branches without searching the graph, so that pairs without one,
+ * which would otherwise exhaust everything the origin reaches, are rejected up front.
+ * The {@link Condensation} is maintained by a {@link BackgroundIndex}: added branches and edges between already
+ * connected branches keep it, other edges rebuild it from scratch in the background. Until it matches the queried
+ * snapshot, {@link #isReachable} falls back to a search. Most pairs without a route are rejected in constant time,
+ * but pairs with one are confirmed by a search of the condensation. The index is maintained unless
+ * {@code routing-config.reachability.enabled} is cleared.
+ */
+@Component
+public class ReachabilityIndex {
+    private final RoutingEngine fallback = new WorkspaceDijkstraEngine();
+    private final BackgroundIndex<Condensation> index;
+
+    public ReachabilityIndex(Graph graph, RoutingConfig routingConfig) {
+        if (routingConfig.getReachability().isEnabled()) {
+            this.index = new BackgroundIndex<>(graph, "reachability", Condensation::build, Condensation::update);
+        } else {
+            this.index = null;
+        }
+    }
+
+    /**
+     * @return true if {@link #isReachable} answers for this snapshot from the index rather than by searching
+     */
+    public boolean isReady(CompactGraph graph) {
+        return index != null && index.get(graph) != null;
+    }
+
+    /**
+     * @return true if the graph has a route from the origin to the destination
+     */
+    public boolean isReachable(CompactGraph graph, int origin, int destination) {
+        Condensation condensation = index == null ? null : index.get(graph);
+        if (condensation == null) {
+            return fallback.route(graph, origin, destination) != null;
+        }
+        return condensation.isReachable(origin, destination);
+    }
+
+    /**
+     * Rebuilds the index for the current snapshot on the calling thread.
+     */
+    void rebuildNow() {
+        index.rebuildNow();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (index != null) {
+            index.shutdown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.paymentoptimization.routing;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * A route found by a {@link RoutingEngine}, expressed as branch ids of the snapshot it was computed on,
+ * together with statistics of the search that found it: the branches it settled, the labels it improved and the
+ * largest number of branches its queue held at once.
+ * A provisional route was answered from an index built for an older graph version: it is a valid path in the
+ * queried snapshot and its cost is correct for that path, but a cheaper route may exist. Callers should not cache it.
+ */
+@Data
+public class Route {
+    private final int[] branches;
+    private final int cost;
+    @EqualsAndHashCode.Exclude
+    private final int settledNodes;
+    @EqualsAndHashCode.Exclude
+    private final int relaxedEdges;
+    @EqualsAndHashCode.Exclude
+    private final int queuePeak;
+    @EqualsAndHashCode.Exclude
+    private final boolean provisional;
+
+    public Route(int[] branches, int cost) {
+        this(branches, cost, 0);
+    }
+
+    public Route(int[] branches, int cost, int settledNodes) {
+        this(branches, cost, settledNodes, false);
+    }
+
+    public Route(int[] branches, int cost, int settledNodes, boolean provisional) {
+        this(branches, cost, settledNodes, 0, 0, provisional);
+    }
+
+    public Route(int[] branches, int cost, int settledNodes, int relaxedEdges, int queuePeak) {
+        this(branches, cost, settledNodes, relaxedEdges, queuePeak, false);
+    }
+
+    public Route(int[] branches, int cost, int settledNodes, int relaxedEdges, int queuePeak, boolean provisional) {
+        this.branches = branches;
+        this.cost = cost;
+        this.settledNodes = settledNodes;
+        this.relaxedEdges = relaxedEdges;
+        this.queuePeak = queuePeak;
+        this.provisional = provisional;
+    }
+
+    public int origin() {
+        return branches[0];
+    }
+
+    public int destination() {
+        return branches[branches.length - 1];
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+/**
+ * Point-to-point shortest path search over a graph snapshot.
+ * The cost of a route is the sum of the costs of every branch it leaves, i.e. all branches except the destination.
+ * Implementations must be thread-safe and must not keep references to the snapshot after returning.
+ */
+public interface RoutingEngine {
+    /**
+     * @return the name used to select the engine with {@code routing-config.engine}
+     */
+    String getName();
+
+    /**
+     * @param graph the snapshot to search; {@code origin} and {@code destination} are ids in it
+     * @return the cheapest route, or null if the destination cannot be reached
+     */
+    Route route(CompactGraph graph, int origin, int destination);
+
+    /**
+     * @return false while queries on the graph are answered by a fallback because the engine's
+     * preprocessed index for it is not ready yet
+     */
+    default boolean isReady(CompactGraph graph) {
+        return true;
+    }
+
+    /**
+     * Finds the cheapest routes from one origin to several destinations.
+     * The default runs one query per destination; engines whose search naturally covers many destinations
+     * override it to answer them all from a single search.
+     * @return the routes in the order of {@code destinations}, null where a destination cannot be reached
+     */
+    default Route[] routes(CompactGraph graph, int origin, int[] destinations) {
+        Route[] routes = new Route[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            routes[i] = route(graph, origin, destinations[i]);
+        }
+        return routes;
+    }
+}
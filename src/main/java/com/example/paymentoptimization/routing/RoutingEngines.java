@@ -0,0 +1,62 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the available {@link RoutingEngine}s, choosing the one configured with {@code routing-config.engine}.
+ * On graphs large enough for a parallel search, see {@link DeltaSteppingEngine#isWorthwhile}, the engines that run
+ * a plain sequential search are replaced by {@link DeltaSteppingEngine}; engines with a preprocessed index are
+ * kept, since they settle only a small part of the graph.
+ */
+@Component
+public class RoutingEngines {
+    private static final Set<String> SEQUENTIAL = Set.of(DijkstraEngine.NAME, WorkspaceDijkstraEngine.NAME, DialEngine.NAME);
+
+    private final Map<String, RoutingEngine> engines = new LinkedHashMap<>();
+    private final RoutingEngine configured;
+    private final DeltaSteppingEngine parallel;
+
+    public RoutingEngines(List<RoutingEngine> engines, RoutingConfig routingConfig) {
+        for (RoutingEngine engine : engines) {
+            this.engines.put(engine.getName(), engine);
+        }
+        this.configured = get(routingConfig.getEngine());
+        this.parallel = (DeltaSteppingEngine) this.engines.get(DeltaSteppingEngine.NAME);
+    }
+
+    /**
+     * @return the engine to use for a point-to-point query on the graph
+     */
+    public RoutingEngine select(CompactGraph graph) {
+        if (parallel != null && SEQUENTIAL.contains(configured.getName()) && parallel.isWorthwhile(graph)) {
+            return parallel;
+        }
+        return configured;
+    }
+
+    /**
+     * Runs a single-source search for a cost table, in parallel on large graphs whichever engine is configured.
+     * @see ShortestPathTree#search
+     */
+    public ShortestPathTree tree(CompactGraph graph, int origin, int[] destinations) {
+        if (parallel != null && parallel.isWorthwhile(graph)) {
+            return parallel.tree(graph, origin, destinations);
+        }
+        return ShortestPathTree.search(graph, origin, destinations);
+    }
+
+    public RoutingEngine get(String name) {
+        RoutingEngine engine = engines.get(name);
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown routing engine '" + name + "', available: " + engines.keySet());
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.paymentoptimization.routing;
+
+/**
+ * Distance and predecessor labels of one search direction, together with its priority queue.
+ * Labels are generation-stamped: starting a new search only bumps the generation instead of clearing the arrays,
+ * so a reused space costs nothing per query regardless of the graph size.
+ */
+final class SearchSpace {
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final IndexedMinHeap heap = new IndexedMinHeap();
+    private int[] stamps = new int[0];
+    private int[] distances = new int[0];
+    private int[] predecessors = new int[0];
+    private int generation;
+    private int settled;
+    private int relaxed;
+
+    void begin(int size) {
+        if (stamps.length < size) {
+            int capacity = size + (size >>> 3);
+            stamps = new int[capacity];
+            distances = new int[capacity];
+            predecessors = new int[capacity];
+            generation = 0;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        heap.reset(stamps.length);
+        settled = 0;
+        relaxed = 0;
+    }
+
+    IndexedMinHeap heap() {
+        return heap;
+    }
+
+    boolean isReached(int id) {
+        return stamps[id] == generation;
+    }
+
+    int distance(int id) {
+        return stamps[id] == generation ? distances[id] : UNREACHED;
+    }
+
+    int predecessor(int id) {
+        return predecessors[id];
+    }
+
+    /**
+     * Records a better distance and queues (or re-prioritises) the branch with the given key.
+     */
+    void relax(int id, int distance, int predecessor, int key) {
+        relaxed++;
+        if (stamps[id] == generation) {
+            heap.decreaseKey(id, key);
+        } else {
+            stamps[id] = generation;
+            heap.insert(id, key);
+        }
+        distances[id] = distance;
+        predecessors[id] = predecessor;
+    }
+
+    /**
+     * Records a better distance without touching the heap, for engines that bring their own queue.
+     */
+    void label(int id, int distance, int predecessor) {
+        relaxed++;
+        stamps[id] = generation;
+        distances[id] = distance;
+        predecessors[id] = predecessor;
+    }
+
+    void setPredecessor(int id, int predecessor) {
+        predecessors[id] = predecessor;
+    }
+
+    void countSettled() {
+        settled++;
+    }
+
+    int pollSettled() {
+        settled++;
+        return heap.poll();
+    }
+
+    int settledCount() {
+        return settled;
+    }
+
+    /**
+     * @return the number of labels set or improved since the search began, including the one for its origin
+     */
+    int relaxedCount() {
+        return relaxed;
+    }
+
+    /**
+     * @return the route from the search origin to the branch, following predecessors
+     */
+    Route route(int destination) {
+        return route(destination, heap.peakSize());
+    }
+
+    /**
+     * @param queuePeak the peak size of the queue the engine used in place of the heap
+     */
+    Route route(int destination, int queuePeak) {
+        int length = 0;
+        for (int id = destination; id >= 0; id = predecessors[id]) {
+            length++;
+        }
+        int[] branches = new int[length];
+        for (int id = destination; id >= 0; id = predecessors[id]) {
+            branches[--length] = id;
+        }
+        return new Route(branches, distances[destination], settled, relaxed, queuePeak);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.paymentoptimization.routing;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reusable per-thread scratch memory for searches: a forward and a backward {@link SearchSpace}.
+ * Workspaces live in a small pool striped by thread id, so a thread normally gets the same workspace back
+ * query after query without touching the allocator. Unlike a {@code ThreadLocal}, the pool bounds the
+ * footprint to roughly the number of concurrent searches, even with large request pools or virtual threads.
+ * Use with try-with-resources so the workspace goes back to the pool.
+ */
+final class SearchWorkspace implements AutoCloseable {
+    private static final int POOL_SIZE = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+    private static final AtomicReferenceArray<SearchWorkspace> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    private final SearchSpace forward = new SearchSpace();
+    private final SearchSpace backward = new SearchSpace();
+    private final BucketQueue buckets = new BucketQueue();
+    private int size;
+
+    private SearchWorkspace() {
+    }
+
+    /**
+     * @param size the number of branches of the graph about to be searched
+     */
+    static SearchWorkspace acquire(int size) {
+        int start = (int) Thread.currentThread().getId() & (POOL_SIZE - 1);
+        SearchWorkspace workspace = null;
+        for (int i = 0; i < POOL_SIZE && workspace == null; i++) {
+            int slot = (start + i) & (POOL_SIZE - 1);
+            if (POOL.get(slot) != null) {
+                workspace = POOL.getAndSet(slot, null);
+            }
+        }
+        if (workspace == null) {
+            workspace = new SearchWorkspace();
+        }
+        workspace.size = size;
+        return workspace;
+    }
+
+    SearchSpace forward() {
+        forward.begin(size);
+        return forward;
+    }
+
+    SearchSpace backward() {
+        backward.begin(size);
+        return backward;
+    }
+
+    BucketQueue buckets(int bucketCount) {
+        buckets.reset(size, bucketCount);
+        return buckets;
+    }
+
+    @Override
+    public void close() {
+        int start = (int) Thread.currentThread().getId() & (POOL_SIZE - 1);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int slot = (start + i) & (POOL_SIZE - 1);
+            if (POOL.get(slot) == null && POOL.compareAndSet(slot, null, this)) {
+                return;
+            }
+        }
+        // Pool is full: let this workspace be collected
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * The result of one single-source search: the cost of the cheapest route from the origin to each branch and the
+ * branch preceding it on that route. A full tree lists every reachable branch in the order the search settled
+ * them, i.e. by increasing cost; a tree restricted to destinations lists exactly those, in the order requested,
+ * and the search stops as soon as all of them are settled.
+ */
+public final class ShortestPathTree {
+    public static final int UNREACHABLE = -1;
+
+    private final int origin;
+    private final int[] branches;
+    private final int[] costs;
+    private final int[] predecessors;
+    private final int size;
+    private final int settledNodes;
+
+    private ShortestPathTree(int origin, int[] branches, int[] costs, int[] predecessors, int size, int settledNodes) {
+        this.origin = origin;
+        this.branches = branches;
+        this.costs = costs;
+        this.predecessors = predecessors;
+        this.size = size;
+        this.settledNodes = settledNodes;
+    }
+
+    /**
+     * @param destinations the branches to report, or null for every reachable branch
+     */
+    public static ShortestPathTree search(CompactGraph graph, int origin, int[] destinations) {
+        int[] targets = destinations == null ? null : Arrays.stream(destinations).sorted().distinct().toArray();
+        int[] order = targets == null ? new int[Math.min(graph.size(), 1024)] : null;
+        int settled = 0;
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace space = workspace.forward();
+            IndexedMinHeap heap = space.heap();
+            space.relax(origin, 0, -1, 0);
+
+            int remaining = targets == null ? Integer.MAX_VALUE : targets.length;
+            while (!heap.isEmpty() && remaining > 0) {
+                int current = space.pollSettled();
+                if (targets == null) {
+                    if (settled == order.length) {
+                        order = Arrays.copyOf(order, Math.min(graph.size(), settled * 2));
+                    }
+                    order[settled] = current;
+                } else if (Arrays.binarySearch(targets, current) >= 0) {
+                    remaining--;
+                }
+                settled++;
+
+                int newCost = space.distance(current) + graph.cost(current);
+                for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                    int neighbor = graph.target(edge);
+                    if (newCost < space.distance(neighbor)) {
+                        space.relax(neighbor, newCost, current, newCost);
+                    }
+                }
+            }
+
+            // Every reached branch is settled: either all destinations were, or the heap ran empty
+            int[] branches = targets == null ? order : destinations.clone();
+            int size = targets == null ? settled : destinations.length;
+            int[] costs = new int[size];
+            int[] predecessors = new int[size];
+            for (int i = 0; i < size; i++) {
+                int branch = branches[i];
+                boolean reached = space.isReached(branch);
+                costs[i] = reached ? space.distance(branch) : UNREACHABLE;
+                predecessors[i] = reached ? space.predecessor(branch) : -1;
+            }
+            return new ShortestPathTree(origin, branches, costs, predecessors, size, settled);
+        }
+    }
+
+    /**
+     * Wraps the result of another search; {@code branches} lists the entries as described above.
+     */
+    static ShortestPathTree of(int origin, int[] branches, int[] costs, int[] predecessors, int settledNodes) {
+        return new ShortestPathTree(origin, branches, costs, predecessors, branches.length, settledNodes);
+    }
+
+    public int origin() {
+        return origin;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    public int branch(int i) {
+        return branches[i];
+    }
+
+    /**
+     * @return the cost of the cheapest route to the branch of entry {@code i}, or {@link #UNREACHABLE}
+     */
+    public int cost(int i) {
+        return costs[i];
+    }
+
+    /**
+     * @return the branch before the branch of entry {@code i} on its cheapest route, or -1 for the origin
+     * and unreachable branches
+     */
+    public int predecessor(int i) {
+        return predecessors[i];
+    }
+
+    /**
+     * @return the number of branches the search settled
+     */
+    public int settledNodes() {
+        return settledNodes;
+    }
+}
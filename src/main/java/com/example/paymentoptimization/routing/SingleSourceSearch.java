@@ -0,0 +1,49 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Full single-source searches used to build routing indexes.
+ */
+final class SingleSourceSearch {
+
+    private SingleSourceSearch() {
+    }
+
+    /**
+     * Fills {@code distances} with the cost from {@code source} to every branch (forward), or from every branch
+     * to {@code source} (backward, over the reverse index). Unreachable branches get {@link SearchSpace#UNREACHED}.
+     */
+    static void distances(CompactGraph graph, int source, boolean backward, int[] distances) {
+        Arrays.fill(distances, 0, graph.size(), SearchSpace.UNREACHED);
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace space = workspace.forward();
+            IndexedMinHeap heap = space.heap();
+            space.relax(source, 0, -1, 0);
+            while (!heap.isEmpty()) {
+                int current = space.pollSettled();
+                int distance = space.distance(current);
+                distances[current] = distance;
+                if (backward) {
+                    for (int edge = graph.reverseEdgesStart(current), end = graph.reverseEdgesEnd(current); edge < end; edge++) {
+                        int neighbor = graph.source(edge);
+                        int newCost = distance + graph.cost(neighbor);
+                        if (newCost < space.distance(neighbor)) {
+                            space.relax(neighbor, newCost, current, newCost);
+                        }
+                    }
+                } else {
+                    int newCost = distance + graph.cost(current);
+                    for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                        int neighbor = graph.target(edge);
+                        if (newCost < space.distance(neighbor)) {
+                            space.relax(neighbor, newCost, current, newCost);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra on reusable, generation-stamped workspaces with an indexed heap (decrease-key, no duplicates).
+ * A steady-state query allocates nothing but the returned {@link Route}.
+ * Routes to several destinations are answered by one search that stops once every destination is settled.
+ */
+@Component
+public class WorkspaceDijkstraEngine implements RoutingEngine {
+    public static final String NAME = "workspace-dijkstra";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Route route(CompactGraph graph, int origin, int destination) {
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace space = workspace.forward();
+            IndexedMinHeap heap = space.heap();
+            space.relax(origin, 0, -1, 0);
+
+            while (!heap.isEmpty()) {
+                int current = space.pollSettled();
+                if (current == destination) {
+                    return space.route(destination);
+                }
+
+                int newCost = space.distance(current) + graph.cost(current);
+                for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                    int neighbor = graph.target(edge);
+                    if (newCost < space.distance(neighbor)) {
+                        space.relax(neighbor, newCost, current, newCost);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public Route[] routes(CompactGraph graph, int origin, int[] destinations) {
+        int[] targets = Arrays.stream(destinations).sorted().distinct().toArray();
+        try (SearchWorkspace workspace = SearchWorkspace.acquire(graph.size())) {
+            SearchSpace space = workspace.forward();
+            IndexedMinHeap heap = space.heap();
+            space.relax(origin, 0, -1, 0);
+
+            int remaining = targets.length;
+            while (!heap.isEmpty() && remaining > 0) {
+                int current = space.pollSettled();
+                if (Arrays.binarySearch(targets, current) >= 0) {
+                    remaining--;
+                }
+
+                int newCost = space.distance(current) + graph.cost(current);
+                for (int edge = graph.edgesStart(current), end = graph.edgesEnd(current); edge < end; edge++) {
+                    int neighbor = graph.target(edge);
+                    if (newCost < space.distance(neighbor)) {
+                        space.relax(neighbor, newCost, current, newCost);
+                    }
+                }
+            }
+
+            // Every reached destination is settled: either all of them were, or the heap ran empty
+            Route[] routes = new Route[destinations.length];
+            for (int i = 0; i < destinations.length; i++) {
+                routes[i] = space.isReached(destinations[i]) ? space.route(destinations[i]) : null;
+            }
+            return routes;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.model.CompactGraph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams branches and edges from CSV into a {@link CompactGraph.Builder} in a single pass.
+ * Branch lines are {@code name,cost} and edge lines {@code from,to}. Blank lines, lines starting with {@code #} and
+ * an optional header ({@code name,cost} or {@code from,to}) are skipped, and fields are trimmed.
+ * Nothing but the current line is held besides the builder's own arrays, so memory grows with the graph rather
+ * than with the size of the files.
+ */
+final class CsvGraphLoader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CsvGraphLoader() {
+    }
+
+    /**
+     * @param source names the input in error messages
+     * @return the number of branch lines read
+     * @throws IllegalArgumentException if a line is malformed or has a negative cost
+     */
+    static int readBranches(InputStream input, String source, CompactGraph.Builder builder) throws IOException {
+        int count = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = reader(input)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (isSkipped(line, lineNumber, "name,cost")) {
+                    continue;
+                }
+                int comma = separator(line, source, lineNumber);
+                String name = field(line, 0, comma, source, lineNumber);
+                String cost = field(line, comma + 1, line.length(), source, lineNumber);
+                int value;
+                try {
+                    value = Integer.parseInt(cost);
+                } catch (NumberFormatException e) {
+                    throw malformed(source, lineNumber, "invalid cost '" + cost + "'");
+                }
+                if (value < 0) {
+                    throw malformed(source, lineNumber, "negative cost " + value);
+                }
+                builder.addBranch(name, value);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param source names the input in error messages
+     * @return the number of edge lines read
+     * @throws IllegalArgumentException if a line is malformed or references a branch that does not exist
+     */
+    static int readEdges(InputStream input, String source, CompactGraph.Builder builder) throws IOException {
+        int count = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = reader(input)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (isSkipped(line, lineNumber, "from,to")) {
+                    continue;
+                }
+                int comma = separator(line, source, lineNumber);
+                String from = field(line, 0, comma, source, lineNumber);
+                String to = field(line, comma + 1, line.length(), source, lineNumber);
+                int fromId = builder.idOf(from);
+                int toId = builder.idOf(to);
+                if (fromId < 0 || toId < 0) {
+                    throw malformed(source, lineNumber, "edge " + from + " -> " + to + " references an unknown branch");
+                }
+                builder.addEdge(fromId, toId);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static BufferedReader reader(InputStream input) {
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static boolean isSkipped(String line, int lineNumber, String header) {
+        String trimmed = line.strip();
+        return trimmed.isEmpty() || trimmed.charAt(0) == '#'
+                || lineNumber == 1 && trimmed.replace(" ", "").equalsIgnoreCase(header);
+    }
+
+    private static int separator(String line, String source, int lineNumber) {
+        int comma = line.indexOf(',');
+        if (comma < 0 || line.indexOf(',', comma + 1) >= 0) {
+            throw malformed(source, lineNumber, "expected two comma-separated fields");
+        }
+        return comma;
+    }
+
+    private static String field(String line, int start, int end, String source, int lineNumber) {
+        String field = line.substring(start, end).strip();
+        if (field.isEmpty()) {
+            throw malformed(source, lineNumber, "empty field");
+        }
+        return field;
+    }
+
+    private static IllegalArgumentException malformed(String source, int lineNumber, String reason) {
+        return new IllegalArgumentException(source + " line " + lineNumber + ": " + reason);
+    }
+}
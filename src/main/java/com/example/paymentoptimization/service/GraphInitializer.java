@@ -2,31 +2,151 @@ package com.example.paymentoptimization.service;
 
 import com.example.paymentoptimization.config.BranchConfig;
 import com.example.paymentoptimization.config.EdgeConfig;
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.model.CompactGraph;
 import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 public class GraphInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(GraphInitializer.class);
 
     private final Graph graph;
     private final BranchConfig branchConfig;
     private final EdgeConfig edgeConfig;
+    private final GraphLoaderConfig graphLoaderConfig;
+    private final PersistenceConfig persistenceConfig;
 
-    public GraphInitializer(Graph graph, BranchConfig branchConfig, EdgeConfig edgeConfig) {
+    public GraphInitializer(Graph graph, BranchConfig branchConfig, EdgeConfig edgeConfig,
+                            GraphLoaderConfig graphLoaderConfig, PersistenceConfig persistenceConfig) {
         this.graph = graph;
         this.branchConfig = branchConfig;
         this.edgeConfig = edgeConfig;
+        this.graphLoaderConfig = graphLoaderConfig;
+        this.persistenceConfig = persistenceConfig;
     }
 
+    /**
+     * Maps the snapshot if there is one, and otherwise builds the graph from configuration. With a mutation log the
+     * snapshot is the only copy of the changes compacted from the log, so an unreadable snapshot, or a missing one
+     * next to an existing log, fails startup instead of being replaced by the configuration.
+     */
     @PostConstruct
     public void init() {
-        for (BranchConfig.Branch branch : branchConfig.getBranches()) {
-            graph.addBranch(branch.getName(), branch.getCost());
+        Path snapshot = graphLoaderConfig.getSnapshot();
+        Path log = persistenceConfig.getLog();
+        if (snapshot != null && Files.exists(snapshot)) {
+            try {
+                restoreSnapshot(snapshot);
+                return;
+            } catch (IOException e) {
+                if (log != null) {
+                    throw new UncheckedIOException("Graph snapshot " + snapshot + " cannot be read and holds the "
+                            + "changes compacted from mutation log " + log + "; restore it instead of rebuilding", e);
+                }
+                logger.warn("Ignoring graph snapshot, rebuilding the graph from configuration", e);
+            }
+        } else if (snapshot != null && log != null && Files.exists(log)) {
+            throw new IllegalStateException("Graph snapshot " + snapshot + " is missing but mutation log " + log
+                    + " exists; the snapshot holds the changes compacted from the log, restore it instead of rebuilding");
+        }
+
+        List<GraphMutation> mutations = new ArrayList<>();
+        if (branchConfig.getBranches() != null) {
+            for (BranchConfig.Branch branch : branchConfig.getBranches()) {
+                mutations.add(GraphMutation.addBranch(branch.getName(), branch.getCost()));
+            }
+        }
+
+        if (edgeConfig.getEdges() != null) {
+            for (EdgeConfig.Edge edge : edgeConfig.getEdges()) {
+                mutations.add(GraphMutation.addEdge(edge.getFrom(), edge.getTo()));
+            }
+        }
+
+        // One snapshot for the whole configuration instead of one per branch and edge
+        if (!mutations.isEmpty()) {
+            graph.apply(mutations);
         }
 
-        for (EdgeConfig.Edge edge : edgeConfig.getEdges()) {
-            graph.addEdge(edge.getFrom(), edge.getTo());
+        if (graphLoaderConfig.getBranches() != null || graphLoaderConfig.getEdges() != null) {
+            try {
+                loadCsv(graphLoaderConfig.getBranches(), graphLoaderConfig.getEdges());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Loading the graph failed", e);
+            }
         }
+
+        if (snapshot != null) {
+            try {
+                saveSnapshot(snapshot);
+            } catch (IOException e) {
+                logger.warn("Could not save graph snapshot {}", snapshot, e);
+            }
+        }
+    }
+
+    /**
+     * Maps a snapshot file and publishes it; the graph must still be empty.
+     */
+    public CompactGraph restoreSnapshot(Path file) throws IOException {
+        long start = System.nanoTime();
+        CompactGraph restored = graph.restore(GraphSnapshotFile.read(file));
+        logger.info("Mapped graph snapshot {} with {} branches and {} edges in {} ms", file,
+                restored.size(), restored.edgeCount(), (System.nanoTime() - start) / 1_000_000);
+        return restored;
+    }
+
+    /**
+     * Writes the current snapshot of the graph to a file, replacing it atomically.
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        long start = System.nanoTime();
+        CompactGraph current = graph.snapshot();
+        GraphSnapshotFile.write(current, file);
+        logger.info("Saved graph snapshot {} with {} branches and {} edges in {} ms", file,
+                current.size(), current.edgeCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Streams the CSV files into the graph and publishes them as a single snapshot.
+     * @param branches the branch file, or null to only add edges
+     * @param edges the edge file, or null to only add branches
+     */
+    public CompactGraph loadCsv(Resource branches, Resource edges) throws IOException {
+        long start = System.nanoTime();
+        int[] counts = new int[2];
+        CompactGraph loaded = graph.load(builder -> {
+            if (branches != null) {
+                try (InputStream input = branches.getInputStream()) {
+                    counts[0] = CsvGraphLoader.readBranches(input, branches.getDescription(), builder);
+                }
+            }
+            if (edges != null) {
+                try (InputStream input = edges.getInputStream()) {
+                    counts[1] = CsvGraphLoader.readEdges(input, edges.getDescription(), builder);
+                }
+            }
+        });
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Loaded {} branches and {} edges in {} ms ({} lines/s), graph has {} branches and {} edges",
+                counts[0], counts[1], millis, (counts[0] + counts[1]) * 1000L / millis,
+                loaded.size(), loaded.edgeCount());
+        return loaded;
     }
 }
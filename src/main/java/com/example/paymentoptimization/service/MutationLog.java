@@ -0,0 +1,403 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of the changes published by the {@link Graph}, see {@link PersistenceConfig}.
+ * Each published batch of mutations is encoded as one record, tagged with the version of the snapshot it produced,
+ * on the publishing thread. A single writer thread appends whatever has accumulated during the sync interval and
+ * syncs it with one call (group commit), then completes the futures of the callers waiting for those versions.
+ * The publish lock is never held across disk I/O, and one sync acknowledges many changes.
+ * <p>
+ * On startup the graph has already been restored from the snapshot by {@link GraphInitializer}; records newer than
+ * that snapshot are replayed as one bulk load, after which the graph is saved again and the log emptied.
+ * A record cut short by a crash in the middle of a write is dropped. Additions are logged apart from cost changes of
+ * existing branches, so a replayed addition of a branch the graph already has, or an edge or cost change naming a
+ * branch it lacks, shows that the log does not belong to the snapshot; it is skipped with a warning.
+ */
+@Component
+@DependsOn("graphInitializer")
+public class MutationLog {
+    private static final Logger logger = LoggerFactory.getLogger(MutationLog.class);
+
+    private static final int MAGIC = 0x5047574C; // "PGWL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final byte ADD_BRANCH = 0;
+    private static final byte ADD_EDGE = 1;
+    private static final byte UPDATE_COST = 2;
+
+    private final Graph graph;
+    private final PersistenceConfig config;
+    private final Path snapshotFile;
+    private final NavigableMap<Long, CompletableFuture<Void>> waiters = new ConcurrentSkipListMap<>();
+
+    // Guarded by this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingMutations;
+    private long appendedVersion;
+    private boolean closed;
+
+    private volatile long durableVersion;
+    private volatile IOException failure;
+    private FileChannel channel;
+    private Thread writer;
+    private int mutationsSinceSnapshot; // writer thread only
+
+    public MutationLog(Graph graph, PersistenceConfig persistenceConfig, GraphLoaderConfig graphLoaderConfig) {
+        this.graph = graph;
+        this.config = persistenceConfig;
+        this.snapshotFile = graphLoaderConfig.getSnapshot();
+    }
+
+    /**
+     * Replays the log onto the graph and starts logging its changes; does nothing without a log file.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Path log = config.getLog();
+        if (log == null) {
+            return;
+        }
+        if (snapshotFile == null) {
+            throw new IllegalStateException("persistence.log requires graph-loader.snapshot");
+        }
+
+        List<LoggedRecord> tail = Files.exists(log) && Files.size(log) > 0 ? readTail(log) : List.of();
+        channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+        }
+        if (!tail.isEmpty()) {
+            replay(tail);
+            // The replay was published as a single version, so the records no longer line up with the graph
+            compact();
+        }
+
+        durableVersion = graph.snapshot().version();
+        appendedVersion = durableVersion;
+        graph.addListener(this::append);
+        writer = new Thread(this::run, "mutation-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return a future that completes once the snapshot with the given version, and all before it, are on disk;
+     * it completes immediately without a log, and fails if writing the log has failed
+     */
+    public CompletableFuture<Void> whenDurable(long version) {
+        if (channel == null || version <= durableVersion) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = waiters.computeIfAbsent(version, v -> new CompletableFuture<>());
+        // The writer may have passed this version, or failed, while the future was registered
+        if (version <= durableVersion) {
+            waiters.remove(version);
+            future.complete(null);
+        } else if (failure != null) {
+            future.completeExceptionally(failure);
+        }
+        return future;
+    }
+
+    /**
+     * Writes what is still pending, saves the graph and closes the log.
+     */
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (channel == null) {
+            return;
+        }
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        writer.join();
+        try {
+            if (failure == null && mutationsSinceSnapshot > 0) {
+                compact();
+            }
+        } finally {
+            channel.close();
+        }
+        waiters.values().forEach(future -> future.completeExceptionally(new IllegalStateException("Log is closed")));
+    }
+
+    // Called on the publishing thread while the publish lock is held, so records are in version order
+    private void append(CompactGraph previous, CompactGraph current, List<GraphMutation> mutations) {
+        if (failure != null) {
+            return;
+        }
+        byte[] body = encode(previous, current.version(), mutations);
+        CRC32C checksum = new CRC32C();
+        checksum.update(body);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            writeInt(pending, body.length);
+            writeInt(pending, (int) checksum.getValue());
+            pending.writeBytes(body);
+            pendingMutations += mutations.size();
+            appendedVersion = current.version();
+            notifyAll();
+        }
+    }
+
+    private void run() {
+        long syncNanos = config.getSyncInterval().toNanos();
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (pending.size() == 0 && !closed) {
+                        wait();
+                    }
+                    if (pending.size() == 0) {
+                        return;
+                    }
+                }
+                if (syncNanos > 0 && !isClosed()) {
+                    LockSupport.parkNanos(syncNanos); // let more changes join this write
+                }
+                writePending();
+                if (mutationsSinceSnapshot >= config.getCompactAfter()) {
+                    compact();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Writing the mutation log failed, further changes are not persisted", e);
+            failure = e instanceof IOException io ? io : new IOException(e);
+            waiters.values().forEach(future -> future.completeExceptionally(failure));
+        }
+    }
+
+    private void writePending() throws IOException {
+        byte[] batch;
+        long version;
+        synchronized (this) {
+            batch = pending.toByteArray();
+            pending.reset();
+            version = appendedVersion;
+            mutationsSinceSnapshot += pendingMutations;
+            pendingMutations = 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (config.isFsync()) {
+            channel.force(false);
+        }
+        durableVersion = version;
+        Map<Long, CompletableFuture<Void>> done = waiters.headMap(version, true);
+        for (CompletableFuture<Void> future : done.values()) {
+            future.complete(null);
+        }
+        done.clear();
+    }
+
+    // Every record in the file was written after its version had been published, so the snapshot covers them all
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        CompactGraph current = graph.snapshot();
+        GraphSnapshotFile.write(current, snapshotFile);
+        channel.truncate(HEADER_BYTES);
+        channel.force(true);
+        mutationsSinceSnapshot = 0;
+        logger.info("Compacted the mutation log into snapshot {} at version {} in {} ms", snapshotFile,
+                current.version(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private List<LoggedRecord> readTail(Path log) throws IOException {
+        long snapshotVersion = graph.snapshot().version();
+        List<LoggedRecord> tail = new ArrayList<>();
+        long position = HEADER_BYTES;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(log)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a mutation log of format version " + FORMAT_VERSION + ": " + log);
+            }
+            while (true) {
+                byte[] body;
+                try {
+                    int length = input.readInt();
+                    int expected = input.readInt();
+                    body = length < 0 ? null : input.readNBytes(length);
+                    if (body == null || body.length < length || !matches(body, expected)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                position += 8 + body.length;
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                long version = record.readLong();
+                if (version > snapshotVersion) {
+                    tail.add(decode(version, record));
+                }
+            }
+        }
+        if (position < Files.size(log)) {
+            logger.warn("Dropping {} bytes of incomplete records at the end of {}", Files.size(log) - position, log);
+            try (FileChannel truncate = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                truncate.truncate(position);
+            }
+        }
+        return tail;
+    }
+
+    private void replay(List<LoggedRecord> tail) {
+        long start = System.nanoTime();
+        int[] counts = new int[2];
+        String[] firstSkipped = new String[1];
+        graph.load(builder -> {
+            for (LoggedRecord record : tail) {
+                for (int i = 0; i < record.mutations.size(); i++) {
+                    GraphMutation mutation = record.mutations.get(i);
+                    boolean isEdge = mutation.getType() == GraphMutation.Type.ADD_EDGE;
+                    boolean fits = isEdge
+                            ? builder.idOf(mutation.getFrom()) >= 0 && builder.idOf(mutation.getTo()) >= 0
+                            // An addition needs a new branch, a cost change an existing one
+                            : builder.idOf(mutation.getName()) >= 0 == record.costUpdates[i];
+                    if (!fits) {
+                        if (counts[1]++ == 0) {
+                            firstSkipped[0] = describe(mutation, record.costUpdates[i]) + " of version " + record.version;
+                        }
+                        continue;
+                    }
+                    if (isEdge) {
+                        builder.addEdge(mutation.getFrom(), mutation.getTo());
+                    } else {
+                        builder.addBranch(mutation.getName(), mutation.getCost());
+                    }
+                    counts[0]++;
+                }
+            }
+        });
+        if (counts[1] > 0) {
+            logger.warn("Skipped {} logged changes that do not fit the snapshot, the first being {}",
+                    counts[1], firstSkipped[0]);
+        }
+        logger.info("Replayed {} logged changes in {} ms", counts[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String describe(GraphMutation mutation, boolean costUpdate) {
+        if (mutation.getType() == GraphMutation.Type.ADD_EDGE) {
+            return "edge " + mutation.getFrom() + " -> " + mutation.getTo() + " to a missing branch";
+        }
+        return costUpdate ? "cost change of missing branch " + mutation.getName()
+                : "addition of existing branch " + mutation.getName();
+    }
+
+    private static boolean matches(byte[] body, int expected) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(body);
+        return (int) checksum.getValue() == expected;
+    }
+
+    private static byte[] encode(CompactGraph previous, long version, List<GraphMutation> mutations) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 24 * mutations.size());
+        DataOutputStream output = new DataOutputStream(bytes);
+        Set<String> added = new HashSet<>();
+        try {
+            output.writeLong(version);
+            output.writeInt(mutations.size());
+            for (GraphMutation mutation : mutations) {
+                if (mutation.getType() == GraphMutation.Type.ADD_BRANCH) {
+                    boolean exists = previous.idOf(mutation.getName()) >= 0 || !added.add(mutation.getName());
+                    output.writeByte(exists ? UPDATE_COST : ADD_BRANCH);
+                    writeString(output, mutation.getName());
+                    output.writeInt(mutation.getCost());
+                } else {
+                    output.writeByte(ADD_EDGE);
+                    writeString(output, mutation.getFrom());
+                    writeString(output, mutation.getTo());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by in-memory streams
+        }
+        return bytes.toByteArray();
+    }
+
+    private static LoggedRecord decode(long version, DataInputStream record) throws IOException {
+        int count = record.readInt();
+        List<GraphMutation> mutations = new ArrayList<>(count);
+        boolean[] costUpdates = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            byte type = record.readByte();
+            if (type == ADD_EDGE) {
+                mutations.add(GraphMutation.addEdge(readString(record), readString(record)));
+            } else {
+                costUpdates[i] = type == UPDATE_COST;
+                mutations.add(GraphMutation.addBranch(readString(record), record.readInt()));
+            }
+        }
+        return new LoggedRecord(version, mutations, costUpdates);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    private static final class LoggedRecord {
+        private final long version;
+        private final List<GraphMutation> mutations;
+        // Whether each branch mutation changed the cost of a branch that already existed
+        private final boolean[] costUpdates;
+
+        private LoggedRecord(long version, List<GraphMutation> mutations, boolean[] costUpdates) {
+            this.version = version;
+            this.mutations = mutations;
+            this.costUpdates = costUpdates;
+        }
+    }
+}
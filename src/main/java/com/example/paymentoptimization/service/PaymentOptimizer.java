@@ -1,100 +1,355 @@
 package com.example.paymentoptimization.service;
 
-import com.example.paymentoptimization.model.Branch;
+import com.example.paymentoptimization.config.AsyncConfig;
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.CostTableEntry;
 import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
+import com.example.paymentoptimization.routing.ReachabilityIndex;
+import com.example.paymentoptimization.routing.Route;
+import com.example.paymentoptimization.routing.RoutingEngine;
+import com.example.paymentoptimization.routing.RoutingEngines;
+import com.example.paymentoptimization.routing.ShortestPathTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 @Service
 public class PaymentOptimizer implements PaymentService {
     private static final Logger logger = LoggerFactory.getLogger(PaymentOptimizer.class);
+    static final int MAX_BULK_ERRORS = 100;
+
     private final Graph graph;
+    private final RouteCache routeCache;
+    private final RoutingEngines routingEngines;
+    private final ReachabilityIndex reachability;
+    private final RoutingMetrics metrics;
+    private final SearchCoalescer coalescer;
+    private final MutationLog mutationLog;
+    private final Executor mutationExecutor;
 
-    public PaymentOptimizer(Graph graph) {
+    public PaymentOptimizer(Graph graph, RouteCache routeCache, RoutingEngines routingEngines,
+                            ReachabilityIndex reachability, RoutingMetrics metrics, MutationLog mutationLog,
+                            @Qualifier(AsyncConfig.MUTATION_EXECUTOR) Executor mutationExecutor) {
         this.graph = graph;
+        this.routeCache = routeCache;
+        this.routingEngines = routingEngines;
+        this.reachability = reachability;
+        this.metrics = metrics;
+        this.coalescer = new SearchCoalescer(metrics);
+        this.mutationLog = mutationLog;
+        this.mutationExecutor = mutationExecutor;
     }
 
     @Override
     public String processPayment(String originBranch, String destinationBranch) {
+        return findRoute(originBranch, destinationBranch).getPath();
+    }
+
+    @Override
+    public PaymentRoute findRoute(String originBranch, String destinationBranch) {
+        if (!metrics.sample()) {
+            return findRoute(originBranch, destinationBranch, false);
+        }
+        long start = System.nanoTime();
+        PaymentRoute route = findRoute(originBranch, destinationBranch, true);
+        metrics.recordRoute(System.nanoTime() - start);
+        return route;
+    }
+
+    private PaymentRoute findRoute(String originBranch, String destinationBranch, boolean sampled) {
         logger.info("Processing payment from {} to {}", originBranch, destinationBranch);
 
-        PriorityQueue<Branch> priorityQueue = new PriorityQueue<>(Comparator.comparingInt(Branch::getCost));
-        Map<String, Integer> distances = new ConcurrentHashMap<>();
-        Map<String, String> previousBranch = new ConcurrentHashMap<>();
-        Set<String> visited = Collections.newSetFromMap(new ConcurrentHashMap<>()); // to avoid processing again the same branch
+        CompactGraph compact = graph.snapshot();
+        int origin = compact.idOf(originBranch);
+        int destination = compact.idOf(destinationBranch);
+        if (origin < 0 || destination < 0) {
+            logger.warn("No valid path found from {} to {}", originBranch, destinationBranch);
+            metrics.invalidBranch();
+            return PaymentRoute.noPath(compact.version());
+        }
 
-        distances.put(originBranch, 0);
-        priorityQueue.add(new Branch(originBranch, 0));
+        PaymentRoute cached = routeCache.get(compact.version(), origin, destination);
+        if (cached != null) {
+            logger.debug("Route cache hit from {} to {}", originBranch, destinationBranch);
+            return cached;
+        }
+        if (isProvablyUnreachable(compact, origin, destination)) {
+            logger.warn("No valid path found from {} to {}", originBranch, destinationBranch);
+            metrics.noPath();
+            return PaymentRoute.noPath(compact.version());
+        }
+
+        RoutingEngine engine = routingEngines.select(compact);
+        Route found = coalescer.route(engine, compact, origin, destination);
+        PaymentRoute route = toPaymentRoute(compact, found);
+        if (isCacheable(found)) {
+            routeCache.put(origin, destination, route);
+        }
+        if (route.isFound()) {
+            logger.info("Found path: {}", route.getPath());
+            if (sampled) {
+                metrics.recordSearch(engine.getName(), found);
+            }
+        } else {
+            logger.warn("No valid path found from {} to {}", originBranch, destinationBranch);
+            metrics.noPath();
+        }
+        return route;
+    }
 
-        while (!priorityQueue.isEmpty()) {
-            Branch current = priorityQueue.poll();
-            if (!visited.add(current.getName())) { // continue if branch already checked
+    @Override
+    public List<RouteResult> findRoutes(List<RouteRequest> requests) {
+        logger.info("Processing {} payments", requests.size());
+
+        CompactGraph compact = graph.snapshot();
+        RouteResult[] results = new RouteResult[requests.size()];
+        Map<Integer, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            RouteRequest request = requests.get(i);
+            if (request == null || isBlank(request.getOrigin()) || isBlank(request.getDestination())) {
+                results[i] = RouteResult.error(request == null ? new RouteRequest() : request,
+                        "Invalid origin or destination branch");
+                metrics.invalidBranch();
+                continue;
+            }
+            int origin = compact.idOf(request.getOrigin());
+            int destination = compact.idOf(request.getDestination());
+            if (origin < 0 || destination < 0) {
+                results[i] = RouteResult.error(request, "One or both branches do not exist");
+                metrics.invalidBranch();
                 continue;
             }
+            PaymentRoute cached = routeCache.get(compact.version(), origin, destination);
+            if (cached != null) {
+                results[i] = RouteResult.of(request, cached);
+            } else if (isProvablyUnreachable(compact, origin, destination)) {
+                results[i] = RouteResult.of(request, PaymentRoute.noPath(compact.version()));
+                metrics.noPath();
+            } else {
+                pending.computeIfAbsent(origin, key -> new ArrayList<>()).add(i);
+            }
+        }
 
-            if (current.getName().equals(destinationBranch)) {
-                String path = createPath(previousBranch, destinationBranch);
-                logger.info("Found path: {}", path);
-                return path;
+        RoutingEngine engine = routingEngines.select(compact);
+        pending.entrySet().parallelStream().forEach(group -> {
+            int origin = group.getKey();
+            List<Integer> indexes = group.getValue();
+            int[] destinations = new int[indexes.size()];
+            for (int j = 0; j < destinations.length; j++) {
+                destinations[j] = compact.idOf(requests.get(indexes.get(j)).getDestination());
+            }
+            Route[] routes = engine.routes(compact, origin, destinations);
+            for (int j = 0; j < destinations.length; j++) {
+                PaymentRoute route = toPaymentRoute(compact, routes[j]);
+                if (isCacheable(routes[j])) {
+                    routeCache.put(origin, destinations[j], route);
+                }
+                if (!route.isFound()) {
+                    metrics.noPath();
+                }
+                // Each index belongs to exactly one group, and the join of the parallel stream publishes the writes
+                results[indexes.get(j)] = RouteResult.of(requests.get(indexes.get(j)), route);
             }
+        });
+        return Arrays.asList(results);
+    }
 
-            for (String neighbor : graph.getNeighborList(current.getName())) {
-                int newCost = current.getCost() + graph.getBranch(current.getName()).getCost();
-                if (newCost < distances.getOrDefault(neighbor, Integer.MAX_VALUE)) {
-                    distances.put(neighbor, newCost);
-                    previousBranch.put(neighbor, current.getName());
-                    priorityQueue.add(new Branch(neighbor, newCost));
+    @Override
+    public CostTable findCostTable(String originBranch, List<String> destinationBranches) {
+        logger.info("Computing cost table from {}", originBranch);
+
+        CompactGraph compact = graph.snapshot();
+        int origin = compact.idOf(originBranch);
+        int[] destinations = null;
+        if (destinationBranches != null && !destinationBranches.isEmpty()) {
+            destinations = new int[destinationBranches.size()];
+            for (int i = 0; i < destinations.length; i++) {
+                destinations[i] = compact.idOf(destinationBranches.get(i));
+                if (destinations[i] < 0) {
+                    logger.warn("Invalid branch: {}", destinationBranches.get(i));
+                    metrics.invalidBranch();
+                    return null;
                 }
             }
         }
+        if (origin < 0) {
+            logger.warn("Invalid branch: {}", originBranch);
+            metrics.invalidBranch();
+            return null;
+        }
 
-        logger.warn("No valid path found from {} to {}", originBranch, destinationBranch);
-        return null;  // If there is no path return null
+        ShortestPathTree tree = routingEngines.tree(compact, origin, destinations);
+        logger.info("Cost table from {} has {} branches, {} settled", originBranch, tree.size(), tree.settledNodes());
+        return new CostTable(originBranch, compact.version(), tree.size(), i -> new CostTableEntry(
+                compact.nameOf(tree.branch(i)),
+                tree.cost(i),
+                tree.predecessor(i) < 0 ? null : compact.nameOf(tree.predecessor(i))));
+    }
+
+    // Relies on the reachability index having been built for compact.version(): an index of an older version may
+    // lack edges that connect the pair. Until it is rebuilt this returns false and the search itself finds out
+    private boolean isProvablyUnreachable(CompactGraph compact, int origin, int destination) {
+        return reachability.isReady(compact) && !reachability.isReachable(compact, origin, destination);
+    }
+
+    // Provisional routes may be beaten once the engine's index catches up with the snapshot
+    private static boolean isCacheable(Route route) {
+        return route == null || !route.isProvisional();
+    }
+
+    static PaymentRoute toPaymentRoute(CompactGraph compact, Route route) {
+        if (route == null) {
+            return PaymentRoute.noPath(compact.version());  // If there is no path
+        }
+        return new PaymentRoute(createPath(compact, route), route.getCost(), compact.version());
+    }
+
+    private static boolean isBlank(String branch) {
+        return branch == null || branch.isEmpty();
     }
 
     @Override
     public boolean isInvalidBranch(String branch) {
-        boolean invalid = graph.getBranch(branch) == null;
+        boolean invalid = graph.snapshot().idOf(branch) < 0;
         if (invalid) {
             logger.warn("Invalid branch: {}", branch);
+            metrics.invalidBranch();
         }
         return invalid;
     }
 
-    @Async
+    @Override
+    public boolean isReachable(String originBranch, String destinationBranch) {
+        CompactGraph compact = graph.snapshot();
+        int origin = compact.idOf(originBranch);
+        int destination = compact.idOf(destinationBranch);
+        return origin >= 0 && destination >= 0 && reachability.isReachable(compact, origin, destination);
+    }
+
     @Override
     public CompletableFuture<Void> addBranchAsync(String name, int cost) {
-        return CompletableFuture.runAsync(() -> {
-            if (graph.getBranch(name) != null) {
+        return mutate(() -> {
+            if (graph.snapshot().idOf(name) >= 0) {
                 throw new RuntimeException("Branch already exists");
             }
-            graph.addBranch(name, cost);
+            // Checked again under the publish lock, in case a concurrent call adds the same branch
+            return metrics.timeMutation(GraphMutation.Type.ADD_BRANCH,
+                    () -> graph.apply(List.of(GraphMutation.addBranch(name, cost)), true));
         });
     }
 
-    @Async
     @Override
     public CompletableFuture<Void> addEdgeAsync(String from, String to) {
-        return CompletableFuture.runAsync(() -> {
-            if (isInvalidBranch(from) || isInvalidBranch(to)) {
+        return mutate(() -> {
+            // Callers have already checked and counted invalid branches, this only guards against a stale check
+            CompactGraph current = graph.snapshot();
+            if (current.idOf(from) < 0 || current.idOf(to) < 0) {
                 throw new RuntimeException("One or both branches do not exist");
             }
-            graph.addEdge(from, to);
+            return metrics.timeMutation(GraphMutation.Type.ADD_EDGE, () -> graph.addEdge(from, to));
         });
     }
 
-    private String createPath(Map<String, String> previous, String destination) {
-        List<String> path = new LinkedList<>();
-        for (String d = destination; d != null; d = previous.get(d)) {
-            path.add(d);
+    @Override
+    public CompletableFuture<BulkResult> applyBulkAsync(List<GraphOperation> operations) {
+        CompactGraph current = graph.snapshot();
+        Set<String> added = new HashSet<>();
+        for (GraphOperation operation : operations) {
+            if (operation != null && operation.getType() == GraphMutation.Type.ADD_BRANCH && !isBlank(operation.getName())) {
+                added.add(operation.getName());
+            }
+        }
+
+        // Reports every error found against this snapshot; Graph.apply checks the batch again under the publish lock
+        List<String> errors = new ArrayList<>();
+        List<GraphMutation> branches = new ArrayList<>();
+        List<GraphMutation> edges = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < operations.size() && errors.size() < MAX_BULK_ERRORS; i++) {
+            GraphOperation operation = operations.get(i);
+            String error = null;
+            if (operation == null) {
+                error = "missing operation";
+            } else if (operation.getType() == null) {
+                error = "missing type";
+            } else if (operation.getType() == GraphMutation.Type.ADD_BRANCH) {
+                String name = operation.getName();
+                if (isBlank(name)) {
+                    error = "missing branch name";
+                } else if (operation.getCost() < 0) {
+                    error = "branch " + name + " has a negative cost";
+                } else if (current.idOf(name) >= 0) {
+                    error = "branch " + name + " already exists";
+                } else if (!seen.add(name)) {
+                    error = "branch " + name + " is added twice";
+                } else {
+                    branches.add(GraphMutation.addBranch(name, operation.getCost()));
+                }
+            } else {
+                String from = operation.getFrom();
+                String to = operation.getTo();
+                if (isBlank(from) || isBlank(to)) {
+                    error = "missing edge endpoint";
+                } else if (current.idOf(from) < 0 && !added.contains(from)) {
+                    error = "unknown branch " + from;
+                } else if (current.idOf(to) < 0 && !added.contains(to)) {
+                    error = "unknown branch " + to;
+                } else {
+                    edges.add(GraphMutation.addEdge(from, to));
+                }
+            }
+            if (error != null) {
+                errors.add("operation " + i + ": " + error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            return CompletableFuture.completedFuture(BulkResult.rejected(errors));
+        }
+        if (operations.isEmpty()) {
+            return CompletableFuture.completedFuture(BulkResult.applied(0, 0, current.version()));
+        }
+
+        List<GraphMutation> mutations = new ArrayList<>(branches.size() + edges.size());
+        mutations.addAll(branches);
+        mutations.addAll(edges);
+        return CompletableFuture.supplyAsync(() -> metrics.timeBulk(() -> graph.apply(mutations, true)), mutationExecutor)
+                .thenCompose(published -> mutationLog.whenDurable(published.version())
+                        .thenApply(durable -> BulkResult.applied(branches.size(), edges.size(), published.version())))
+                .exceptionally(failure -> {
+                    // A concurrent change added one of the branches after the checks above
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof IllegalArgumentException) {
+                        return BulkResult.rejected(List.of(cause.getMessage()));
+                    }
+                    throw failure instanceof CompletionException completion ? completion : new CompletionException(failure);
+                });
+    }
+
+    // Applies the change on the mutation executor, then waits for the log without holding one of its threads
+    private CompletableFuture<Void> mutate(Supplier<CompactGraph> mutation) {
+        return CompletableFuture.supplyAsync(mutation, mutationExecutor)
+                .thenCompose(published -> mutationLog.whenDurable(published.version()));
+    }
+
+    private static String createPath(CompactGraph compact, Route route) {
+        StringJoiner path = new StringJoiner(",");
+        for (int branch : route.getBranches()) { // from origin to destination
+            path.add(compact.nameOf(branch));
         }
-        Collections.reverse(path); // from origin to destination
-        return String.join(",", path);
+        return path.toString();
     }
 }
@@ -1,5 +1,13 @@
 package com.example.paymentoptimization.service;
 
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
+
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public interface PaymentService {
@@ -12,6 +20,32 @@ public interface PaymentService {
      */
     String processPayment(String originBranch, String destinationBranch);
 
+    /**
+     * Same as {@link #processPayment(String, String)} but also reports the cost of the route and the version
+     * of the graph snapshot it was computed against.
+     * @param originBranch the starting branch
+     * @param destinationBranch the destination branch
+     * @return the route; {@link PaymentRoute#isFound()} is false if no sequence is available
+     */
+    PaymentRoute findRoute(String originBranch, String destinationBranch);
+
+    /**
+     * Finds the cheapest routes for many origin/destination pairs against one graph snapshot.
+     * Pairs sharing an origin are answered from a single search and different origins are searched in parallel.
+     * @param requests the pairs to route
+     * @return one result per request, in the same order; pairs that cannot be routed carry an error instead of a path
+     */
+    List<RouteResult> findRoutes(List<RouteRequest> requests);
+
+    /**
+     * Runs a single search from the origin and reports the cheapest cost to, and the predecessor of, each branch.
+     * @param originBranch the starting branch
+     * @param destinationBranches the branches to report, in this order, or null or empty for every reachable branch;
+     *                            the search stops as soon as all of them are settled
+     * @return the table, or null if the origin or one of the destinations does not exist
+     */
+    CostTable findCostTable(String originBranch, List<String> destinationBranches);
+
     /**
      * Checks if a branch is invalid.
      * @param branch the branch name
@@ -19,7 +53,34 @@ public interface PaymentService {
      */
     boolean isInvalidBranch(String branch);
 
+    /**
+     * Checks whether any route leads from the origin to the destination. Once the reachability index matches the
+     * current graph this is a label lookup rather than a search.
+     * @return true if there is a route, false if there is none or one of the branches does not exist
+     */
+    boolean isReachable(String originBranch, String destinationBranch);
+
+    /**
+     * Adds a branch on the mutation executor.
+     * @return a future that completes once the branch is in the mutation log, and fails if the branch already exists
+     * @throws org.springframework.core.task.TaskRejectedException if too many mutations are already pending
+     */
     CompletableFuture<Void> addBranchAsync(String name, int cost);
 
+    /**
+     * Adds an edge on the mutation executor.
+     * @return a future that completes once the edge is in the mutation log, and fails if one of the branches does
+     * not exist
+     * @throws org.springframework.core.task.TaskRejectedException if too many mutations are already pending
+     */
     CompletableFuture<Void> addEdgeAsync(String from, String to);
+
+    /**
+     * Validates a batch of operations as a whole and applies it as a single graph update on the mutation executor.
+     * Edges may name branches added anywhere in the batch. Nothing is applied if any operation is invalid.
+     * @return a future of the outcome, completing once the batch is in the mutation log; a rejected batch lists
+     * its first errors and completes immediately
+     * @throws org.springframework.core.task.TaskRejectedException if too many mutations are already pending
+     */
+    CompletableFuture<BulkResult> applyBulkAsync(List<GraphOperation> operations);
 }
@@ -0,0 +1,212 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.routing.EdgeInsertion;
+import com.example.paymentoptimization.routing.RoutingEngine;
+import com.example.paymentoptimization.routing.WorkspaceDijkstraEngine;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Size-bounded cache of computed routes keyed by (origin, destination, graph version).
+ * Keys carry the snapshot version, so a route computed against an older graph can never be served.
+ * When the {@link Graph} publishes a snapshot that only adds a few edges, the cache is repaired on a background
+ * thread instead of being cleared: routes none of the new edges can improve (see {@link EdgeInsertion}) are
+ * carried over to the new version, and only the affected ones are searched again. Any other change, such as a new
+ * cost for an existing branch, clears the cache. Eviction is Caffeine's W-TinyLFU, which keeps the small set of
+ * hot origin/destination pairs resident.
+ */
+@Component
+public class RouteCache implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(RouteCache.class);
+
+    private final Cache<RouteKey, PaymentRoute> cache;
+    private final boolean enabled;
+    private final int repairMaxEdges;
+    private final int repairMaxRoutes;
+    private final RoutingEngine engine = new WorkspaceDijkstraEngine();
+    private final ExecutorService repairer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "route-cache-repair");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RouteCache(Graph graph, RoutingConfig routingConfig) {
+        RoutingConfig.RouteCache config = routingConfig.getRouteCache();
+        this.enabled = config.isEnabled();
+        this.repairMaxEdges = config.getRepairMaxEdges();
+        this.repairMaxRoutes = config.getRepairMaxRoutes();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        graph.addListener(this::graphChanged);
+    }
+
+    /**
+     * @return the cached route or null if it has not been computed for this graph version
+     */
+    public PaymentRoute get(long graphVersion, int origin, int destination) {
+        return enabled ? cache.getIfPresent(new RouteKey(graphVersion, origin, destination)) : null;
+    }
+
+    public void put(int origin, int destination, PaymentRoute route) {
+        if (enabled) {
+            cache.put(new RouteKey(route.getGraphVersion(), origin, destination), route);
+        }
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * @return hit, miss and eviction counts since startup
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * Waits until the changes published so far have been repaired.
+     */
+    void awaitRepairs() throws InterruptedException, ExecutionException {
+        repairer.submit(() -> { }).get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        repairer.shutdownNow();
+    }
+
+    private void graphChanged(CompactGraph previous, CompactGraph current, List<GraphMutation> mutations) {
+        int[] edges = enabled ? insertedEdges(previous, current, mutations) : null;
+        if (edges == null) {
+            cache.invalidateAll();
+            return;
+        }
+        // Tasks run in publication order, so each one finds the routes its predecessor carried over
+        repairer.execute(() -> {
+            try {
+                repair(previous.version(), current, edges);
+            } catch (RuntimeException e) {
+                logger.error("Repairing cached routes for graph version {} failed", current.version(), e);
+                cache.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * @return the endpoints of the added edges as consecutive (from, to) pairs, or null if the change is not
+     * repairable
+     */
+    private int[] insertedEdges(CompactGraph previous, CompactGraph current, List<GraphMutation> mutations) {
+        int count = 0;
+        for (GraphMutation mutation : mutations) {
+            if (mutation.getType() == GraphMutation.Type.ADD_EDGE) {
+                count++;
+            } else if (previous.idOf(mutation.getName()) >= 0) {
+                return null;  // A cost change can make cached routes more expensive
+            }
+        }
+        if (count > repairMaxEdges) {
+            return null;
+        }
+        int[] edges = new int[2 * count];
+        int i = 0;
+        for (GraphMutation mutation : mutations) {
+            if (mutation.getType() == GraphMutation.Type.ADD_EDGE) {
+                edges[i++] = current.idOf(mutation.getFrom());
+                edges[i++] = current.idOf(mutation.getTo());
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Moves the routes cached for the previous version to the snapshot's version, searching again those an added
+     * edge can improve, and drops routes of any older version.
+     */
+    private void repair(long previousVersion, CompactGraph snapshot, int[] edges) {
+        Map<RouteKey, PaymentRoute> routes = cache.asMap();
+        List<Map.Entry<RouteKey, PaymentRoute>> outdated = new ArrayList<>();
+        boolean carried = false;
+        for (Map.Entry<RouteKey, PaymentRoute> entry : routes.entrySet()) {
+            if (entry.getKey().getGraphVersion() <= previousVersion) {
+                outdated.add(Map.entry(entry.getKey(), entry.getValue()));
+                carried |= entry.getKey().getGraphVersion() == previousVersion;
+            }
+        }
+        List<EdgeInsertion> insertions = new ArrayList<>();
+        for (int i = 0; carried && i < edges.length; i += 2) {
+            insertions.add(EdgeInsertion.of(snapshot, edges[i], edges[i + 1]));
+        }
+
+        int kept = 0;
+        int searched = 0;
+        for (Map.Entry<RouteKey, PaymentRoute> entry : outdated) {
+            RouteKey key = entry.getKey();
+            PaymentRoute route = entry.getValue();
+            if (key.getGraphVersion() == previousVersion) {
+                RouteKey next = new RouteKey(snapshot.version(), key.getOrigin(), key.getDestination());
+                if (!isAffected(insertions, key, route)) {
+                    routes.putIfAbsent(next, new PaymentRoute(route.getPath(), route.getCost(), snapshot.version()));
+                    kept++;
+                } else if (searched < repairMaxRoutes) {
+                    routes.putIfAbsent(next, PaymentOptimizer.toPaymentRoute(snapshot,
+                            engine.route(snapshot, key.getOrigin(), key.getDestination())));
+                    searched++;
+                }
+            }
+            routes.remove(key, route);
+        }
+        logger.debug("Repaired route cache for graph version {}: {} routes kept, {} searched again, {} dropped",
+                snapshot.version(), kept, searched, outdated.size() - kept - searched);
+    }
+
+    private static boolean isAffected(List<EdgeInsertion> insertions, RouteKey key, PaymentRoute route) {
+        for (EdgeInsertion insertion : insertions) {
+            if (insertion.canImprove(key.getOrigin(), key.getDestination(), route.getCost())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "routes");
+    }
+
+    @Data
+    private static class RouteKey {
+        private final long graphVersion;
+        private final int origin;
+        private final int destination;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.routing.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for route queries and graph mutations.
+ * Outcome counters and graph gauges are exact. Query latency and search statistics are only recorded for a random
+ * sample of queries: a histogram update costs about as much as a cached lookup, so recording every query would be
+ * a measurable share of the throughput, while a one percent sample gives the same percentiles under load.
+ * Graph mutations rebuild the snapshot and are rare by comparison, so every one of them is timed.
+ */
+@Component
+public class RoutingMetrics {
+    private final MeterRegistry registry;
+    private final double sampleRate;
+    private final Timer routeTimer;
+    private final Counter noPathCounter;
+    private final Counter invalidBranchCounter;
+    private final Counter coalescedCounter;
+    private final Map<GraphMutation.Type, Timer> mutationTimers = new EnumMap<>(GraphMutation.Type.class);
+    private final Timer bulkTimer;
+    private final Map<String, SearchSummaries> searchSummaries = new ConcurrentHashMap<>();
+
+    public RoutingMetrics(MeterRegistry registry, Graph graph, RoutingConfig routingConfig) {
+        this.registry = registry;
+        this.sampleRate = routingConfig.getMetrics().getSampleRate();
+        this.routeTimer = Timer.builder("payments.route")
+                .description("Latency of sampled route queries, including cache hits")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.noPathCounter = Counter.builder("payments.route.not.found")
+                .description("Route queries between existing branches that have no path")
+                .register(registry);
+        this.invalidBranchCounter = Counter.builder("payments.branch.invalid")
+                .description("Requests rejected because a branch does not exist")
+                .register(registry);
+        this.coalescedCounter = Counter.builder("routing.search.coalesced")
+                .description("Route queries answered by a search run for a concurrent query, i.e. searches saved")
+                .register(registry);
+        for (GraphMutation.Type type : GraphMutation.Type.values()) {
+            mutationTimers.put(type, mutationTimer(type.name().toLowerCase(Locale.ROOT)));
+        }
+        this.bulkTimer = mutationTimer("bulk");
+        Gauge.builder("graph.branches", graph, g -> g.snapshot().size()).register(registry);
+        Gauge.builder("graph.edges", graph, g -> g.snapshot().edgeCount()).register(registry);
+        Gauge.builder("graph.version", graph, g -> g.snapshot().version()).register(registry);
+    }
+
+    /**
+     * @return whether the caller should time the current query
+     */
+    public boolean sample() {
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    public void recordRoute(long nanos) {
+        routeTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the statistics of the search that found the route, tagged with the engine that was selected for it.
+     */
+    public void recordSearch(String engine, Route route) {
+        searchSummaries.computeIfAbsent(engine, SearchSummaries::new).record(route);
+    }
+
+    public void noPath() {
+        noPathCounter.increment();
+    }
+
+    public void invalidBranch() {
+        invalidBranchCounter.increment();
+    }
+
+    public void coalesced(int queries) {
+        coalescedCounter.increment(queries);
+    }
+
+    public <T> T timeMutation(GraphMutation.Type type, Supplier<T> mutation) {
+        return mutationTimers.get(type).record(mutation);
+    }
+
+    public <T> T timeBulk(Supplier<T> mutation) {
+        return bulkTimer.record(mutation);
+    }
+
+    private Timer mutationTimer(String type) {
+        return Timer.builder("graph.mutation")
+                .description("Time to publish a graph change")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private final class SearchSummaries {
+        private final DistributionSummary settled;
+        private final DistributionSummary relaxed;
+        private final DistributionSummary queuePeak;
+
+        private SearchSummaries(String engine) {
+            this.settled = summary("routing.search.settled", "Branches settled by a sampled search", engine);
+            this.relaxed = summary("routing.search.relaxed", "Labels improved by a sampled search", engine);
+            this.queuePeak = summary("routing.search.queue.peak", "Peak queue size of a sampled search", engine);
+        }
+
+        private DistributionSummary summary(String name, String description, String engine) {
+            return DistributionSummary.builder(name)
+                    .description(description)
+                    .baseUnit("branches")
+                    .tag("engine", engine)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private void record(Route route) {
+            settled.record(route.getSettledNodes());
+            relaxed.record(route.getRelaxedEdges());
+            queuePeak.record(route.getQueuePeak());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.routing.Route;
+import com.example.paymentoptimization.routing.RoutingEngine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lets concurrent route queries from the same origin share one search. Searches in flight are kept per engine,
+ * snapshot and origin: a query joins the search in flight if it has not started yet, or has started with its
+ * destination among those it covers, and otherwise becomes the leader of the next search for that origin. That
+ * leader waits for the running search, collecting the destinations of the queries that join meanwhile, and then
+ * asks the engine for all of them at once. A burst of identical queries therefore costs one search, and queries
+ * from one origin to different destinations share a one-to-many search. Queries from different origins never wait
+ * for each other, and a query for an origin with no search in flight searches at once, on its own thread.
+ */
+final class SearchCoalescer {
+    private final ConcurrentMap<Key, Flight> flights = new ConcurrentHashMap<>();
+    private final RoutingMetrics metrics;
+
+    SearchCoalescer(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the route, possibly found by a search another thread ran for the same origin and snapshot
+     */
+    Route route(RoutingEngine engine, CompactGraph graph, int origin, int destination) {
+        Key key = new Key(engine, graph, origin);
+        while (true) {
+            Flight current = flights.get(key);
+            if (current != null && current.join(destination)) {
+                metrics.coalesced(1);
+                return current.await(destination);
+            }
+            Flight next = new Flight(destination, current);
+            if (current == null ? flights.putIfAbsent(key, next) == null : flights.replace(key, current, next)) {
+                return lead(key, next, destination);
+            }
+            // Another query installed a search for this origin first: join that one instead
+        }
+    }
+
+    private Route lead(Key key, Flight flight, int destination) {
+        try {
+            Flight previous = flight.previous;
+            if (previous != null) {
+                // Queries for this origin join our search while the previous one runs
+                previous.result.handle((routes, failure) -> null).join();
+                flight.previous = null;  // Keeps a busy origin from retaining a chain of finished searches
+            }
+            int[] destinations = flight.start();
+            Route[] routes = destinations.length == 1
+                    // The engine's point-to-point search may be faster than its one-to-many search
+                    ? new Route[]{key.engine.route(key.graph, key.origin, destinations[0])}
+                    : key.engine.routes(key.graph, key.origin, destinations);
+            // Removed before completing, so that later queries search again instead of reusing a finished search
+            flights.remove(key, flight);
+            flight.result.complete(routes);
+            return routes[flight.indexes.get(destination)];
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);  // Never leave the queries that joined waiting
+            throw e;
+        }
+    }
+
+    private static final class Key {
+        private final RoutingEngine engine;
+        private final CompactGraph graph;
+        private final int origin;
+
+        private Key(RoutingEngine engine, CompactGraph graph, int origin) {
+            this.engine = engine;
+            this.graph = graph;
+            this.origin = origin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && key.engine == engine && key.graph == graph && key.origin == origin;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(graph.version()) * 31 + origin;
+        }
+    }
+
+    private static final class Flight {
+        private Flight previous;  // Only accessed by the leader
+        // Destination -> index in the engine's answer; only modified before start, under the flight's monitor
+        private final Map<Integer, Integer> indexes = new LinkedHashMap<>();
+        private final CompletableFuture<Route[]> result = new CompletableFuture<>();
+        private boolean started;
+
+        private Flight(int destination, Flight previous) {
+            this.previous = previous;
+            indexes.put(destination, 0);
+        }
+
+        /**
+         * @return true if the search answers the destination
+         */
+        private synchronized boolean join(int destination) {
+            if (!started) {
+                indexes.putIfAbsent(destination, indexes.size());
+                return true;
+            }
+            return indexes.containsKey(destination);
+        }
+
+        private synchronized int[] start() {
+            started = true;
+            return indexes.keySet().stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Completing the result publishes the indexes, which no longer change once the search has started
+        private Route await(int destination) {
+            try {
+                return result.join()[indexes.get(destination)];
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException failure) {
+                    throw failure;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -1,13 +1,28 @@
 package com.example.paymentoptimization.api;
 
+import com.example.paymentoptimization.config.AsyncConfig;
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.CostTableEntry;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
 import com.example.paymentoptimization.service.PaymentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -15,9 +30,13 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.openMocks;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class PaymentControllerTest {
@@ -27,24 +46,27 @@ public class PaymentControllerTest {
     @Mock
     private PaymentService paymentService;
 
-    @InjectMocks
+    private final AsyncConfig asyncConfig = new AsyncConfig();
     private PaymentController paymentController;
 
     @BeforeEach
     public void setUp() {
         openMocks(this);
+        asyncConfig.getMutations().setBulkMaxOperations(2);
+        paymentController = new PaymentController(paymentService, new ObjectMapper(), asyncConfig);
         mockMvc = MockMvcBuilders.standaloneSetup(paymentController).build();
     }
 
     @Test
     public void testProcessPayment() throws Exception {
         // Valid path
-        when(paymentService.processPayment("A", "B")).thenReturn("A,B");
+        when(paymentService.findRoute("A", "B")).thenReturn(new PaymentRoute("A,B", 5, 3));
         mockMvc.perform(get("/api/payments/process")
                         .param("origin", "A")
                         .param("destination", "B"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("A,B"));
+                .andExpect(content().string("A,B"))
+                .andExpect(header().string(PaymentController.GRAPH_VERSION_HEADER, "3"));
 
         // Invalid origin
         mockMvc.perform(get("/api/payments/process")
@@ -61,7 +83,7 @@ public class PaymentControllerTest {
                 .andExpect(content().string("Invalid origin or destination branch"));
 
         // No valid path
-        when(paymentService.processPayment("A", "Z")).thenReturn(null);
+        when(paymentService.findRoute("A", "Z")).thenReturn(PaymentRoute.noPath(3));
         mockMvc.perform(get("/api/payments/process")
                         .param("origin", "A")
                         .param("destination", "Z"))
@@ -78,11 +100,76 @@ public class PaymentControllerTest {
                 .andExpect(content().string("One or both branches do not exist"));
     }
 
+    @Test
+    public void testProcessPaymentsBatch() throws Exception {
+        RouteRequest found = new RouteRequest("A", "B");
+        RouteRequest missing = new RouteRequest("A", "Z");
+        when(paymentService.findRoutes(List.of(found, missing))).thenReturn(List.of(
+                RouteResult.of(found, new PaymentRoute("A,B", 5, 3)),
+                RouteResult.error(missing, "One or both branches do not exist")));
+
+        mockMvc.perform(post("/api/payments/process/batch")
+                        .contentType("application/json")
+                        .content("[{\"origin\":\"A\",\"destination\":\"B\"},{\"origin\":\"A\",\"destination\":\"Z\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].path").value("A,B"))
+                .andExpect(jsonPath("$[0].cost").value(5))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].destination").value("Z"))
+                .andExpect(jsonPath("$[1].path").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("One or both branches do not exist"));
+    }
+
+    @Test
+    public void testCostTableIsStreamedAsNdjson() throws Exception {
+        List<CostTableEntry> entries = List.of(
+                new CostTableEntry("A", 0, null),
+                new CostTableEntry("C", 5, "A"),
+                new CostTableEntry("Z", -1, null));
+        when(paymentService.findCostTable("A", null)).thenReturn(new CostTable("A", 4, entries.size(), entries::get));
+
+        MvcResult result = mockMvc.perform(get("/api/payments/costs").param("origin", "A"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string(PaymentController.GRAPH_VERSION_HEADER, "4"))
+                .andExpect(content().string("{\"branch\":\"A\",\"cost\":0}\n"
+                        + "{\"branch\":\"C\",\"cost\":5,\"predecessor\":\"A\"}\n"
+                        + "{\"branch\":\"Z\",\"cost\":-1}"));
+
+        // Unknown branches
+        when(paymentService.findCostTable("A", List.of("Q"))).thenReturn(null);
+        result = mockMvc.perform(get("/api/payments/costs")
+                        .param("origin", "A")
+                        .param("destinations", "Q"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("One or more branches do not exist"));
+    }
+
+    @Test
+    public void testCostTableUsesTheApplicationMapper() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE);
+        mockMvc = MockMvcBuilders.standaloneSetup(new PaymentController(paymentService, objectMapper, asyncConfig)).build();
+        List<CostTableEntry> entries = List.of(new CostTableEntry("A", 0, null));
+        when(paymentService.findCostTable("A", null)).thenReturn(new CostTable("A", 4, entries.size(), entries::get));
+
+        MvcResult result = mockMvc.perform(get("/api/payments/costs").param("origin", "A"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"Branch\":\"A\",\"Cost\":0}"));
+    }
+
     @Test
     public void testAddBranch() throws Exception {
         // Successful addition
         when(paymentService.addBranchAsync("H", 25)).thenReturn(CompletableFuture.completedFuture(null));
-        mockMvc.perform(post("/api/payments/addBranch")
+        performAsync(post("/api/payments/addBranch")
                         .param("name", "H")
                         .param("cost", "25"))
                 .andExpect(status().isOk())
@@ -91,7 +178,7 @@ public class PaymentControllerTest {
 
         // Branch already exists
         when(paymentService.addBranchAsync("H", 15)).thenThrow(new RuntimeException("Branch already exists"));
-        mockMvc.perform(post("/api/payments/addBranch")
+        performAsync(post("/api/payments/addBranch")
                         .param("name", "H")
                         .param("cost", "15"))
                 .andExpect(status().isInternalServerError())
@@ -102,12 +189,20 @@ public class PaymentControllerTest {
         CompletableFuture<Void> future = new CompletableFuture<>();
         future.completeExceptionally(new CompletionException(new RuntimeException("Branch cannot be added")));
         when(paymentService.addBranchAsync(anyString(), anyInt())).thenReturn(future);
-        mockMvc.perform(post("/api/payments/addBranch")
+        performAsync(post("/api/payments/addBranch")
                         .param("name", "TestBranch")
                         .param("cost", "10"))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string("Branch cannot be added"));
         verify(paymentService, times(1)).addBranchAsync("TestBranch", 10);
+
+        // Negative cost
+        performAsync(post("/api/payments/addBranch")
+                        .param("name", "N")
+                        .param("cost", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Branch cost must not be negative"));
+        verify(paymentService, never()).addBranchAsync("N", -1);
     }
 
     @Test
@@ -117,7 +212,7 @@ public class PaymentControllerTest {
         when(paymentService.isInvalidBranch("B")).thenReturn(false);
         when(paymentService.addEdgeAsync("A", "B")).thenReturn(CompletableFuture.completedFuture(null));
 
-        mockMvc.perform(post("/api/payments/addEdge")
+        performAsync(post("/api/payments/addEdge")
                         .param("from", "A")
                         .param("to", "B"))
                 .andExpect(status().isOk())
@@ -131,7 +226,7 @@ public class PaymentControllerTest {
         // Test invalid branches
         when(paymentService.isInvalidBranch("A")).thenReturn(true);
 
-        mockMvc.perform(post("/api/payments/addEdge")
+        performAsync(post("/api/payments/addEdge")
                         .param("from", "A")
                         .param("to", "B"))
                 .andExpect(status().isBadRequest())
@@ -149,7 +244,7 @@ public class PaymentControllerTest {
         future.completeExceptionally(new CompletionException(new RuntimeException("Edge cannot be added")));
         when(paymentService.addEdgeAsync("ValidBranch1", "ValidBranch2")).thenReturn(future);
 
-        mockMvc.perform(post("/api/payments/addEdge")
+        performAsync(post("/api/payments/addEdge")
                         .param("from", "ValidBranch1")
                         .param("to", "ValidBranch2"))
                 .andExpect(status().isInternalServerError())
@@ -157,4 +252,73 @@ public class PaymentControllerTest {
 
         verify(paymentService, times(1)).addEdgeAsync("ValidBranch1", "ValidBranch2");
     }
+
+    @Test
+    public void testMutationsAreRejectedWhenTheExecutorIsFull() throws Exception {
+        when(paymentService.addBranchAsync("H", 25)).thenThrow(new TaskRejectedException("Queue full"));
+
+        performAsync(post("/api/payments/addBranch")
+                        .param("name", "H")
+                        .param("cost", "25"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    public void testBulkChangeAcceptsAJsonArray() throws Exception {
+        when(paymentService.applyBulkAsync(List.of(GraphOperation.addBranch("H", 25), GraphOperation.addEdge("A", "H"))))
+                .thenReturn(CompletableFuture.completedFuture(BulkResult.applied(1, 1, 9)));
+
+        performAsync(post("/api/payments/graph/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\":\"ADD_BRANCH\",\"name\":\"H\",\"cost\":25},"
+                                + "{\"type\":\"ADD_EDGE\",\"from\":\"A\",\"to\":\"H\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PaymentController.GRAPH_VERSION_HEADER, "9"))
+                .andExpect(content().json("{\"branches\":1,\"edges\":1,\"graphVersion\":9}"));
+    }
+
+    @Test
+    public void testBulkChangeAcceptsNewlineDelimitedJson() throws Exception {
+        when(paymentService.applyBulkAsync(List.of(GraphOperation.addBranch("H", 25), GraphOperation.addEdge("A", "Z"))))
+                .thenReturn(CompletableFuture.completedFuture(
+                        BulkResult.rejected(List.of("operation 1: unknown branch Z"))));
+
+        performAsync(post("/api/payments/graph/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"type\":\"ADD_BRANCH\",\"name\":\"H\",\"cost\":25}\n"
+                                + "{\"type\":\"ADD_EDGE\",\"from\":\"A\",\"to\":\"Z\"}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"errors\":[\"operation 1: unknown branch Z\"]}"));
+    }
+
+    @Test
+    public void testMalformedBulkChangeIsRejected() throws Exception {
+        performAsync(post("/api/payments/graph/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\":\"REMOVE_BRANCH\",\"name\":\"H\"}]"))
+                .andExpect(status().isBadRequest());
+
+        verify(paymentService, never()).applyBulkAsync(any());
+    }
+
+    @Test
+    public void testOversizedBulkChangeIsRejected() throws Exception {
+        performAsync(post("/api/payments/graph/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\":\"ADD_BRANCH\",\"name\":\"H\",\"cost\":25},"
+                                + "{\"type\":\"ADD_BRANCH\",\"name\":\"I\",\"cost\":25},"
+                                + "{\"type\":\"ADD_EDGE\",\"from\":\"A\",\"to\":\"H\"}]"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(content().json("{\"errors\":[\"A bulk change may have at most 2 operations\"]}"));
+
+        verify(paymentService, never()).applyBulkAsync(any());
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.paymentoptimization.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveApplicationTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    public void testReactiveControllerReplacesServletController() {
+        assertTrue(context.getBeansOfType(PaymentController.class).isEmpty());
+
+        client.get().uri("/api/payments/process?origin=A&destination=D").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("A,C,E,D");
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.paymentoptimization.api;
+
+import com.example.paymentoptimization.config.AsyncConfig;
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.CostTableEntry;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
+import com.example.paymentoptimization.service.PaymentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ReactivePaymentControllerTest {
+
+    private WebTestClient client;
+    private Scheduler scheduler;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @BeforeEach
+    public void setUp() {
+        openMocks(this);
+        scheduler = Schedulers.newParallel("test-search", 2);
+        AsyncConfig asyncConfig = new AsyncConfig();
+        asyncConfig.getMutations().setBulkMaxOperations(2);
+        client = WebTestClient.bindToController(new ReactivePaymentController(paymentService, scheduler, asyncConfig))
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    public void testProcessPayment() {
+        // Valid path
+        when(paymentService.findRoute("A", "B")).thenReturn(new PaymentRoute("A,B", 5, 3));
+        client.get().uri("/api/payments/process?origin=A&destination=B").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(PaymentController.GRAPH_VERSION_HEADER, "3")
+                .expectBody(String.class).isEqualTo("A,B");
+
+        // Invalid origin
+        client.get().uri("/api/payments/process?origin=&destination=B").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Invalid origin or destination branch");
+
+        // No valid path
+        when(paymentService.findRoute("A", "Z")).thenReturn(PaymentRoute.noPath(3));
+        client.get().uri("/api/payments/process?origin=A&destination=Z").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("No valid path found");
+
+        // Branch invalid
+        when(paymentService.isInvalidBranch("A")).thenReturn(true);
+        client.get().uri("/api/payments/process?origin=A&destination=B").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("One or both branches do not exist");
+    }
+
+    @Test
+    public void testProcessPaymentsBatch() {
+        RouteRequest found = new RouteRequest("A", "B");
+        RouteRequest missing = new RouteRequest("A", "Z");
+        when(paymentService.findRoutes(List.of(found, missing))).thenReturn(List.of(
+                RouteResult.of(found, new PaymentRoute("A,B", 5, 3)),
+                RouteResult.error(missing, "One or both branches do not exist")));
+
+        client.post().uri("/api/payments/process/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"origin\":\"A\",\"destination\":\"B\"},{\"origin\":\"A\",\"destination\":\"Z\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].path").isEqualTo("A,B")
+                .jsonPath("$[1].error").isEqualTo("One or both branches do not exist");
+    }
+
+    @Test
+    public void testBulkChangeAcceptsNewlineDelimitedJson() {
+        when(paymentService.applyBulkAsync(List.of(GraphOperation.addBranch("H", 25), GraphOperation.addEdge("A", "H"))))
+                .thenReturn(CompletableFuture.completedFuture(BulkResult.applied(1, 1, 9)));
+
+        client.post().uri("/api/payments/graph/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"type\":\"ADD_BRANCH\",\"name\":\"H\",\"cost\":25}\n"
+                        + "{\"type\":\"ADD_EDGE\",\"from\":\"A\",\"to\":\"H\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(PaymentController.GRAPH_VERSION_HEADER, "9")
+                .expectBody().json("{\"branches\":1,\"edges\":1,\"graphVersion\":9}");
+    }
+
+    @Test
+    public void testOversizedBulkChangeIsRejected() {
+        client.post().uri("/api/payments/graph/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"type\":\"ADD_BRANCH\",\"name\":\"H\",\"cost\":25}\n"
+                        + "{\"type\":\"ADD_BRANCH\",\"name\":\"I\",\"cost\":25}\n"
+                        + "{\"type\":\"ADD_EDGE\",\"from\":\"A\",\"to\":\"H\"}\n")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE)
+                .expectBody().json("{\"errors\":[\"A bulk change may have at most 2 operations\"]}");
+
+        verify(paymentService, never()).applyBulkAsync(any());
+    }
+
+    @Test
+    public void testCostTableIsStreamedAsNdjson() {
+        List<CostTableEntry> entries = List.of(
+                new CostTableEntry("A", 0, null),
+                new CostTableEntry("C", 5, "A"));
+        when(paymentService.findCostTable("A", null)).thenReturn(new CostTable("A", 4, entries.size(), entries::get));
+
+        client.get().uri("/api/payments/costs?origin=A").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(PaymentController.NDJSON)
+                .expectHeader().valueEquals(PaymentController.GRAPH_VERSION_HEADER, "4")
+                .expectBodyList(CostTableEntry.class).isEqualTo(entries);
+
+        // Unknown branches
+        when(paymentService.findCostTable("A", List.of("Q"))).thenReturn(null);
+        client.get().uri("/api/payments/costs?origin=A&destinations=Q").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("One or more branches do not exist");
+    }
+
+    @Test
+    public void testMutations() {
+        when(paymentService.addBranchAsync("H", 25)).thenReturn(CompletableFuture.completedFuture(null));
+        client.post().uri("/api/payments/addBranch?name=H&cost=25").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Branch added successfully");
+
+        when(paymentService.addBranchAsync("H", 15))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Branch already exists")));
+        client.post().uri("/api/payments/addBranch?name=H&cost=15").exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody(String.class).isEqualTo("Branch already exists");
+
+        client.post().uri("/api/payments/addBranch?name=N&cost=-1").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Branch cost must not be negative");
+        verify(paymentService, never()).addBranchAsync("N", -1);
+
+        when(paymentService.addEdgeAsync("A", "B")).thenThrow(new TaskRejectedException("Queue full"));
+        client.post().uri("/api/payments/addEdge?from=A&to=B").exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().valueEquals("Retry-After", "1");
+
+        when(paymentService.isInvalidBranch("Z")).thenReturn(true);
+        client.post().uri("/api/payments/addEdge?from=A&to=Z").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("One or both branches do not exist");
+        verify(paymentService, never()).addEdgeAsync("A", "Z");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.paymentoptimization.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncConfigTest {
+
+    private AsyncConfig asyncConfig;
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        asyncConfig = new AsyncConfig();
+        asyncConfig.getMutations().setThreads(1);
+        asyncConfig.getMutations().setQueueCapacity(1);
+        executor = asyncConfig.graphMutationExecutor();
+        executor.initialize();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testFullQueueRejectsMutations() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> await(release)); // occupies the only thread
+            executor.execute(() -> await(release)); // fills the queue
+
+            assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { }));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testExecutorMetricsAreBound() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MeterBinder binder = asyncConfig.graphMutationExecutorMetrics(executor);
+
+        binder.bindTo(registry);
+
+        assertNotNull(registry.find("executor.queued").tag("name", AsyncConfig.MUTATION_EXECUTOR).gauge());
+        assertNotNull(registry.find("executor.pool.max").tag("name", AsyncConfig.MUTATION_EXECUTOR).gauge());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
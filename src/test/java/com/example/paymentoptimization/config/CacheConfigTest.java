@@ -0,0 +1,66 @@
+package com.example.paymentoptimization.config;
+
+import com.example.paymentoptimization.model.Branch;
+import com.example.paymentoptimization.model.Graph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheConfigTest {
+
+    private AnnotationConfigApplicationContext context;
+    private Graph graph;
+    private Cache branches;
+
+    @BeforeEach
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(Graph.class, CacheConfig.class);
+        graph = context.getBean(Graph.class);
+        branches = context.getBean(CacheManager.class).getCache(CacheConfig.BRANCHES_CACHE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void testUnknownBranchIsNotCached() {
+        assertNull(graph.getBranch("A"));
+        assertNull(branches.get("A"), "Null lookups must not be cached");
+
+        graph.addBranch("A", 5);
+
+        assertEquals(new Branch("A", 5), graph.getBranch("A"));
+    }
+
+    @Test
+    public void testAddBranchEvictsStaleEntry() {
+        graph.addBranch("A", 5);
+        assertEquals(5, graph.getBranch("A").getCost());
+        assertNotNull(branches.get("A"));
+
+        graph.addBranch("A", 7);
+
+        assertEquals(7, graph.getBranch("A").getCost());
+    }
+
+    @Test
+    public void testCacheIsBoundedAndRecordsStats() {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) branches).getNativeCache();
+        graph.addBranch("A", 5);
+
+        graph.getBranch("A");
+        graph.getBranch("A");
+
+        assertTrue(nativeCache.policy().eviction().isPresent(), "Cache should have a size bound");
+        assertEquals(1, nativeCache.stats().hitCount());
+        assertEquals(1, nativeCache.stats().missCount());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.paymentoptimization.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactGraphTest {
+
+    @Test
+    public void testBranchesAreInternedToDenseIds() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        assertEquals(0, builder.addBranch("A", 5));
+        assertEquals(1, builder.addBranch("B", 50));
+        assertEquals(0, builder.addBranch("A", 7), "Re-adding a branch keeps its id");
+
+        CompactGraph graph = builder.build();
+
+        assertEquals(2, graph.size());
+        assertEquals(0, graph.idOf("A"));
+        assertEquals(1, graph.idOf("B"));
+        assertEquals(-1, graph.idOf("Z"));
+        assertEquals("B", graph.nameOf(1));
+        assertEquals(7, graph.cost(0), "Re-adding a branch updates its cost");
+    }
+
+    @Test
+    public void testAdjacencyIsStoredAsCompressedRows() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 5);
+        builder.addBranch("B", 50);
+        builder.addBranch("C", 10);
+        builder.addEdge("A", "B");
+        builder.addEdge("C", "A");
+        builder.addEdge("A", "C");
+
+        CompactGraph graph = builder.build();
+
+        assertEquals(3, graph.edgeCount());
+        assertEquals(2, graph.edgesEnd(0) - graph.edgesStart(0));
+        assertEquals(1, graph.target(graph.edgesStart(0)));
+        assertEquals(2, graph.target(graph.edgesStart(0) + 1));
+        assertEquals(graph.edgesEnd(1), graph.edgesStart(1), "B has no outgoing edges");
+        assertEquals(0, graph.target(graph.edgesStart(2)));
+    }
+
+    @Test
+    public void testReverseIndexListsIncomingEdges() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 5);
+        builder.addBranch("B", 50);
+        builder.addBranch("C", 10);
+        builder.addEdge("A", "C");
+        builder.addEdge("B", "C");
+        CompactGraph base = builder.build();
+
+        CompactGraph.Builder next = base.toBuilder();
+        next.addEdge("C", "A");
+        CompactGraph graph = next.build();
+
+        assertEquals(2, graph.reverseEdgesEnd(2) - graph.reverseEdgesStart(2));
+        assertEquals(0, graph.source(graph.reverseEdgesStart(2)));
+        assertEquals(1, graph.source(graph.reverseEdgesStart(2) + 1));
+        assertEquals(1, graph.reverseEdgesEnd(0) - graph.reverseEdgesStart(0));
+        assertEquals(2, graph.source(graph.reverseEdgesStart(0)));
+        assertEquals(graph.reverseEdgesEnd(1), graph.reverseEdgesStart(1), "Nothing links to B");
+    }
+
+    @Test
+    public void testToBuilderLeavesBaseUntouched() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 5);
+        builder.addBranch("B", 50);
+        builder.addEdge("A", "B");
+        CompactGraph base = builder.build();
+
+        CompactGraph.Builder next = base.toBuilder();
+        next.addBranch("C", 10);
+        next.addEdge("A", "C");
+        next.addEdge("C", "B");
+        CompactGraph extended = next.build();
+
+        assertEquals(2, base.size());
+        assertEquals(-1, base.idOf("C"));
+        assertEquals(List.of("B"), base.getNeighborList("A"));
+
+        assertEquals(3, extended.size());
+        assertEquals(List.of("B", "C"), extended.getNeighborList("A"), "New edges are appended after existing ones");
+        assertEquals(List.of("B"), extended.getNeighborList("C"));
+    }
+
+    @Test
+    public void testManyBranchesSurviveRehashing() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        for (int i = 0; i < 10_000; i++) {
+            builder.addBranch("Branch" + i, i);
+        }
+        for (int i = 1; i < 10_000; i++) {
+            builder.addEdge("Branch" + (i - 1), "Branch" + i);
+        }
+
+        CompactGraph graph = builder.build();
+
+        assertEquals(10_000, graph.size());
+        assertEquals(9_999, graph.edgeCount());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, graph.idOf("Branch" + i));
+            assertEquals(i, graph.cost(i));
+        }
+    }
+
+    @Test
+    public void testAddEdgeToUnknownBranchIsRejected() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 5);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.addEdge("A", "Z"));
+    }
+
+    @Test
+    public void testCompatibilityViews() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 5);
+
+        CompactGraph graph = builder.build();
+
+        assertEquals(new Branch("A", 5), graph.getBranch("A"));
+        assertNull(graph.getBranch("Z"));
+        assertTrue(graph.getNeighborList("A").isEmpty());
+        assertTrue(graph.getNeighborList("Z").isEmpty());
+    }
+}
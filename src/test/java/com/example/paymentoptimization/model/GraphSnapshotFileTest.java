@@ -0,0 +1,109 @@
+package com.example.paymentoptimization.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTripKeepsBranchesEdgesAndVersion() throws IOException {
+        CompactGraph graph = randomGraph(500, 3);
+        Path file = directory.resolve("graph.snapshot");
+
+        GraphSnapshotFile.write(graph, file);
+        CompactGraph mapped = GraphSnapshotFile.read(file);
+
+        assertEquals(graph.version(), mapped.version());
+        assertEquals(graph.size(), mapped.size());
+        assertEquals(graph.edgeCount(), mapped.edgeCount());
+        assertEquals(graph.maxCost(), mapped.maxCost());
+        for (int id = 0; id < graph.size(); id++) {
+            assertEquals(graph.nameOf(id), mapped.nameOf(id));
+            assertEquals(id, mapped.idOf(graph.nameOf(id)));
+            assertEquals(graph.cost(id), mapped.cost(id));
+            assertEquals(graph.getNeighborList(graph.nameOf(id)), mapped.getNeighborList(mapped.nameOf(id)));
+            assertEquals(graph.reverseEdgesStart(id), mapped.reverseEdgesStart(id));
+        }
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            assertEquals(graph.source(edge), mapped.source(edge));
+        }
+        assertFalse(Files.exists(directory.resolve("graph.snapshot.tmp")));
+    }
+
+    @Test
+    public void testMappedGraphCanBeExtended() throws IOException {
+        Path file = directory.resolve("graph.snapshot");
+        GraphSnapshotFile.write(randomGraph(50, 2), file);
+        CompactGraph mapped = GraphSnapshotFile.read(file);
+
+        CompactGraph.Builder builder = mapped.toBuilder();
+        builder.addBranch("new", 3);
+        builder.addBranch("b0", 99);
+        builder.addEdge("new", "b0");
+        CompactGraph next = builder.build();
+
+        assertEquals(51, next.size());
+        assertEquals(99, next.cost(next.idOf("b0")));
+        assertEquals(mapped.cost(1), next.cost(1));
+        assertEquals(List.of("b0"), next.getNeighborList("new"));
+        assertEquals(mapped.getNeighborList("b7"), next.getNeighborList("b7"));
+    }
+
+    @Test
+    public void testEmptyGraphRoundTrips() throws IOException {
+        Path file = directory.resolve("empty.snapshot");
+
+        GraphSnapshotFile.write(CompactGraph.EMPTY, file);
+
+        assertEquals(0, GraphSnapshotFile.read(file).size());
+    }
+
+    @Test
+    public void testCorruptFileIsRejected() throws IOException {
+        Path file = directory.resolve("graph.snapshot");
+        GraphSnapshotFile.write(randomGraph(100, 3), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        IOException failure = assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+        assertTrue(failure.getMessage().contains("checksum"), failure.getMessage());
+    }
+
+    @Test
+    public void testTruncatedOrForeignFileIsRejected() throws IOException {
+        Path file = directory.resolve("graph.snapshot");
+        GraphSnapshotFile.write(randomGraph(100, 3), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+
+        Files.writeString(file, "name,cost\nA,5\n");
+        assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+    }
+
+    private static CompactGraph randomGraph(int size, int degree) {
+        Random random = new Random(11);
+        CompactGraph.Builder builder = CompactGraph.builder();
+        for (int i = 0; i < size; i++) {
+            builder.addBranch("b" + i, 1 + random.nextInt(50));
+        }
+        for (int i = 0; i < size * degree; i++) {
+            builder.addEdge("b" + random.nextInt(size), "b" + random.nextInt(size));
+        }
+        return builder.build();
+    }
+}
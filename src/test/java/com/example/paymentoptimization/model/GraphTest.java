@@ -4,7 +4,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class GraphTest {
 
@@ -81,4 +87,193 @@ public class GraphTest {
         assertNotNull(neighbors, "Neighbor list should not be null.");
         assertTrue(neighbors.isEmpty(), "Neighbor list should be empty for a branch with no edges.");
     }
+
+    @Test
+    public void testSnapshotsAreImmutableAndVersioned() {
+        graph.addBranch("A", 10);
+        CompactGraph before = graph.snapshot();
+
+        graph.addBranch("B", 20);
+        graph.addEdge("A", "B");
+        CompactGraph after = graph.snapshot();
+
+        assertEquals(1, before.size(), "Earlier snapshots are not modified");
+        assertEquals(0, before.edgeCount());
+        assertEquals(2, after.size());
+        assertEquals(1, after.edgeCount());
+        assertEquals(before.version() + 2, after.version());
+        assertSame(after, graph.snapshot(), "Snapshot is reused while the graph is unchanged");
+    }
+
+    @Test
+    public void testApplyPublishesOneVersionPerBatch() {
+        long initialVersion = graph.snapshot().version();
+
+        CompactGraph published = graph.apply(List.of(
+                GraphMutation.addBranch("A", 10),
+                GraphMutation.addBranch("B", 20),
+                GraphMutation.addEdge("A", "B")));
+
+        assertSame(published, graph.snapshot());
+        assertEquals(initialVersion + 1, published.version());
+        assertEquals(List.of("B"), graph.getNeighborList("A"));
+    }
+
+    @Test
+    public void testApplyIsAllOrNothing() {
+        graph.addBranch("A", 10);
+        CompactGraph before = graph.snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> graph.apply(List.of(
+                GraphMutation.addBranch("B", 20),
+                GraphMutation.addEdge("A", "Z"))));
+
+        assertSame(before, graph.snapshot(), "A rejected batch publishes nothing");
+        assertNull(graph.getBranch("B"));
+    }
+
+    @Test
+    public void testBulkLoadPublishesOneVersionAndDescribesItToListeners() {
+        graph.addBranch("A", 10);
+        long initialVersion = graph.snapshot().version();
+        List<GraphMutation> seen = new ArrayList<>();
+        graph.addListener((previous, current, mutations) -> seen.addAll(mutations));
+
+        CompactGraph loaded = graph.load(builder -> {
+            builder.addBranch("B", 20);
+            builder.addBranch("A", 5);
+            builder.addEdge("A", "B");
+        });
+
+        assertSame(loaded, graph.snapshot());
+        assertEquals(initialVersion + 1, loaded.version());
+        assertEquals(5, loaded.cost(loaded.idOf("A")));
+        assertEquals(List.of(
+                GraphMutation.addBranch("B", 20),
+                GraphMutation.addBranch("A", 5),
+                GraphMutation.addEdge("A", "B")), seen);
+    }
+
+    @Test
+    public void testFailedBulkLoadPublishesNothing() {
+        graph.addBranch("A", 10);
+        CompactGraph before = graph.snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> graph.load(builder -> {
+            builder.addBranch("B", 20);
+            builder.addEdge("A", "Z");
+        }));
+
+        assertSame(before, graph.snapshot());
+    }
+
+    @Test
+    public void testRestorePublishesTheSavedGraphAndDescribesItToListeners() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 10);
+        builder.addBranch("B", 20);
+        builder.addEdge("B", "A");
+        builder.addEdge("A", "B");
+        CompactGraph saved = builder.build().toBuilder().build();
+        List<GraphMutation> seen = new ArrayList<>();
+        graph.addListener((previous, current, mutations) -> seen.addAll(mutations));
+
+        CompactGraph restored = graph.restore(saved);
+
+        assertSame(restored, graph.snapshot());
+        assertEquals(saved.version(), restored.version());
+        assertEquals(List.of(
+                GraphMutation.addBranch("A", 10),
+                GraphMutation.addBranch("B", 20),
+                GraphMutation.addEdge("A", "B"),
+                GraphMutation.addEdge("B", "A")), seen);
+
+        graph.addEdge("A", "A");
+        assertEquals(saved.version() + 1, graph.snapshot().version());
+    }
+
+    @Test
+    public void testRestoreRequiresAnEmptyGraph() {
+        graph.addBranch("A", 10);
+
+        assertThrows(IllegalStateException.class, () -> graph.restore(CompactGraph.EMPTY));
+    }
+
+    @Test
+    public void testConcurrentWritersAreAllPublished() throws Exception {
+        graph.addBranch("Hub", 1);
+        int writers = 8;
+        int perWriter = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    String name = "W" + writer + "-" + i;
+                    graph.addBranch(name, 1);
+                    graph.addEdge("Hub", name);
+                    // Read-your-writes: the caller sees its own addition as soon as the call returns
+                    assertNotNull(graph.getBranch(name));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        CompactGraph snapshot = graph.snapshot();
+        assertEquals(1 + writers * perWriter, snapshot.size());
+        assertEquals(writers * perWriter, snapshot.edgeCount());
+        assertTrue(snapshot.version() <= 1 + 2L * writers * perWriter, "Concurrent updates may share a version");
+    }
+
+    @Test
+    public void testNewBranchesOnlyDoesNotReplaceAnExistingBranch() {
+        graph.addBranch("A", 10);
+        CompactGraph before = graph.snapshot();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> graph.apply(List.of(GraphMutation.addBranch("A", 20)), true));
+        assertThrows(IllegalArgumentException.class, () -> graph.apply(List.of(
+                GraphMutation.addBranch("B", 1), GraphMutation.addBranch("B", 2)), true));
+        assertSame(before, graph.snapshot());
+
+        graph.addBranch("A", 20);
+        assertEquals(20, graph.getBranch("A").getCost(), "Without the check the cost is updated");
+    }
+
+    @Test
+    public void testNegativeCostIsRejected() {
+        graph.addBranch("A", 10);
+        CompactGraph before = graph.snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> graph.addBranch("B", -1));
+        assertThrows(IllegalArgumentException.class, () -> graph.addBranch("A", -10));
+        assertThrows(IllegalArgumentException.class, () -> graph.load(builder -> builder.addBranch("C", -5)));
+
+        assertSame(before, graph.snapshot());
+    }
+
+    @Test
+    public void testNullBranchNameIsRejected() {
+        graph.addBranch("A", 10);
+        CompactGraph before = graph.snapshot();
+
+        assertThrows(IllegalArgumentException.class, () -> graph.addBranch(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> graph.apply(Arrays.asList(
+                GraphMutation.addBranch("B", 1), null)));
+        assertSame(before, graph.snapshot());
+
+        graph.addBranch("B", 1);
+        assertEquals(before.version() + 1, graph.snapshot().version(), "Later updates are still published");
+    }
+
+    @Test
+    public void testAddEdgeUnknownBranch() {
+        graph.addBranch("A", 10);
+
+        assertThrows(IllegalArgumentException.class, () -> graph.addEdge("A", "B"));
+    }
 }
@@ -0,0 +1,165 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllPairsEngineTest {
+
+    private final DijkstraEngine reference = new DijkstraEngine();
+    private AllPairsEngine engine;
+
+    @AfterEach
+    public void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameRoutesAsDijkstra() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.random(800, 3, 20, 4));
+        engine = readyEngine(graph, new RoutingConfig());
+        CompactGraph snapshot = graph.snapshot();
+        assertTrue(engine.isReady(snapshot));
+        Random random = new Random(9);
+
+        for (int i = 0; i < 2_000; i++) {
+            int origin = random.nextInt(snapshot.size());
+            int destination = random.nextInt(snapshot.size());
+            Route actual = engine.route(snapshot, origin, destination);
+            assertEquals(reference.route(snapshot, origin, destination), actual,
+                    "Route from " + origin + " to " + destination);
+            assertFalse(actual != null && actual.isProvisional());
+        }
+    }
+
+    @Test
+    public void testStaleTableServesValidProvisionalRoutes() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(10, 10, 10, 1));
+        engine = readyEngine(graph, new RoutingConfig());
+        int[] before = engine.route(graph.snapshot(), 0, 99).getBranches();
+
+        graph.addEdge("G0", "G99");
+        graph.addBranch("G1", 1_000);
+        CompactGraph changed = graph.snapshot();
+        Route route = engine.route(changed, 0, 99);
+        if (route.isProvisional()) {
+            assertArrayEquals(before, route.getBranches());
+            assertEquals(DialEngineTest.costOf(changed, before), route.getCost(), "Stale routes are re-costed");
+        } else {
+            assertEquals(reference.route(changed, 0, 99), route, "The rebuild finished first");
+        }
+
+        engine.rebuildNow();
+        assertTrue(engine.isReady(changed));
+        Route rebuilt = engine.route(changed, 0, 99);
+        assertFalse(rebuilt.isProvisional());
+        assertArrayEquals(new int[]{0, 99}, rebuilt.getBranches());
+    }
+
+    @Test
+    public void testStaleTableIsNotServedWhenDisabled() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getAllPairs().setServeStale(false);
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(10, 10, 10, 1));
+        engine = readyEngine(graph, routingConfig);
+
+        graph.addEdge("G0", "G99");
+        CompactGraph changed = graph.snapshot();
+
+        assertArrayEquals(new int[]{0, 99}, engine.route(changed, 0, 99).getBranches());
+    }
+
+    @Test
+    public void testRefusesGraphsAboveTheLimit() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getAllPairs().setMaxBranches(50);
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(10, 10, 10, 1));
+        engine = readyEngine(graph, routingConfig);
+
+        assertFalse(engine.isReady(graph.snapshot()));
+        assertEquals(reference.route(graph.snapshot(), 0, 99), engine.route(graph.snapshot(), 0, 99));
+    }
+
+    @Test
+    public void testNewBranchesAreRoutedBySearch() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(5, 5, 10, 1));
+        engine = readyEngine(graph, new RoutingConfig());
+
+        graph.addBranch("New", 3);
+        CompactGraph snapshot = graph.snapshot();
+        assertTrue(engine.isReady(snapshot), "Adding an unconnected branch keeps the table usable");
+        int id = snapshot.idOf("New");
+        assertNull(engine.route(snapshot, 0, id));
+        assertArrayEquals(new int[]{id}, engine.route(snapshot, id, id).getBranches());
+    }
+
+    @Test
+    public void testUpdatedTableMatchesARebuild() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.random(150, 2, 20, 5));
+        AllPairsTable table = AllPairsTable.build(graph.snapshot());
+        Random random = new Random(11);
+
+        for (int round = 0; round < 5; round++) {
+            List<GraphMutation> insertions = new ArrayList<>();
+            String added = "New" + round;
+            insertions.add(GraphMutation.addBranch(added, random.nextInt(20)));
+            for (int i = 0; i < 6; i++) {
+                String from = i == 0 ? added : "B" + random.nextInt(150);
+                String to = i == 1 ? added : "B" + random.nextInt(150);
+                insertions.add(GraphMutation.addEdge(from, to));
+            }
+            CompactGraph changed = graph.apply(insertions);
+            table = table.update(changed, insertions);
+            AllPairsTable rebuilt = AllPairsTable.build(changed);
+
+            for (int origin = 0; origin < changed.size(); origin++) {
+                for (int destination = 0; destination < changed.size(); destination++) {
+                    assertEquals(rebuilt.cost(origin, destination), table.cost(origin, destination),
+                            "Cost from " + origin + " to " + destination + " after round " + round);
+                    int[] path = table.path(origin, destination);
+                    if (path != null) {
+                        assertEquals(table.cost(origin, destination), DialEngineTest.costOf(changed, path));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInsertedEdgesUpdateTheTableInTheBackground() throws InterruptedException {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(10, 10, 10, 1));
+        engine = readyEngine(graph, new RoutingConfig());
+
+        graph.addEdge("G0", "G99");
+        CompactGraph changed = graph.snapshot();
+        for (int i = 0; i < 500 && !engine.isReady(changed); i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(engine.isReady(changed));
+        assertArrayEquals(new int[]{0, 99}, engine.route(changed, 0, 99).getBranches());
+    }
+
+    @Test
+    public void testFootprint() {
+        assertEquals(6L * 1_000 * 1_000, AllPairsTable.footprintBytes(1_000));
+    }
+
+    private static AllPairsEngine readyEngine(Graph graph, RoutingConfig routingConfig) {
+        routingConfig.setEngine(AllPairsEngine.NAME);
+        AllPairsEngine allPairsEngine = new AllPairsEngine(graph, routingConfig);
+        allPairsEngine.rebuildNow();
+        return allPairsEngine;
+    }
+}
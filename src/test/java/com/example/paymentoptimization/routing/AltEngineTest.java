@@ -0,0 +1,103 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AltEngineTest {
+
+    private final DijkstraEngine reference = new DijkstraEngine();
+    private AltEngine engine;
+
+    @AfterEach
+    public void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameCostsAsDijkstra() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.random(3_000, 3, 20, 4));
+        engine = readyEngine(graph);
+        CompactGraph snapshot = graph.snapshot();
+        Random random = new Random(9);
+
+        for (int i = 0; i < 500; i++) {
+            int origin = random.nextInt(snapshot.size());
+            int destination = random.nextInt(snapshot.size());
+            Route expected = reference.route(snapshot, origin, destination);
+            Route actual = engine.route(snapshot, origin, destination);
+            if (expected == null) {
+                assertNull(actual, "No route expected from " + origin + " to " + destination);
+            } else {
+                assertEquals(expected.getCost(), actual.getCost(), "Cost from " + origin + " to " + destination);
+                assertEquals(expected.getCost(), DialEngineTest.costOf(snapshot, actual.getBranches()));
+            }
+        }
+    }
+
+    @Test
+    public void testSettlesFarFewerBranchesThanDijkstra() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(150, 150, 10, 6));
+        engine = readyEngine(graph);
+        CompactGraph snapshot = graph.snapshot();
+        Random random = new Random(2);
+
+        long dijkstraSettled = 0;
+        long altSettled = 0;
+        for (int i = 0; i < 100; i++) {
+            int origin = random.nextInt(snapshot.size());
+            int destination = random.nextInt(snapshot.size());
+            Route expected = reference.route(snapshot, origin, destination);
+            Route actual = engine.route(snapshot, origin, destination);
+            assertEquals(expected.getCost(), actual.getCost());
+            dijkstraSettled += expected.getSettledNodes();
+            altSettled += actual.getSettledNodes();
+        }
+
+        double reduction = (double) dijkstraSettled / altSettled;
+        assertTrue(reduction > 4, "Expected ALT to settle far fewer branches, got " + reduction + "x");
+    }
+
+    @Test
+    public void testIndexFollowsGraphChanges() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(20, 20, 10, 1));
+        engine = readyEngine(graph);
+        assertTrue(engine.isReady(graph.snapshot()));
+
+        graph.addBranch("Isolated", 3);
+        assertTrue(engine.isReady(graph.snapshot()), "Adding an unconnected branch keeps the index usable");
+
+        graph.addEdge("G0", "G399");
+        CompactGraph changed = graph.snapshot();
+        // Whether or not the background rebuild has finished, the new shortcut must be used
+        assertEquals(reference.route(changed, 0, 399), engine.route(changed, 0, 399));
+        engine.rebuildNow();
+        assertTrue(engine.isReady(changed));
+        assertEquals(reference.route(changed, 0, 399).getCost(), engine.route(changed, 0, 399).getCost());
+    }
+
+    @Test
+    public void testNotMaintainedUnlessSelected() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(5, 5, 10, 1));
+        engine = new AltEngine(graph, new RoutingConfig());
+
+        assertFalse(engine.isReady(graph.snapshot()));
+        assertEquals(reference.route(graph.snapshot(), 0, 24), engine.route(graph.snapshot(), 0, 24));
+    }
+
+    private static AltEngine readyEngine(Graph graph) {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.setEngine(AltEngine.NAME);
+        AltEngine altEngine = new AltEngine(graph, routingConfig);
+        altEngine.rebuildNow();
+        return altEngine;
+    }
+}
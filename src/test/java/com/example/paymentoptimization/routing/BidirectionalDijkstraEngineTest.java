@@ -0,0 +1,81 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BidirectionalDijkstraEngineTest {
+
+    private final BidirectionalDijkstraEngine engine = new BidirectionalDijkstraEngine();
+    private final DijkstraEngine reference = new DijkstraEngine();
+
+    @Test
+    public void testSameRoutesAsDijkstra() {
+        // Wide cost range so that cheapest routes are unique
+        CompactGraph graph = TestGraphs.grid(50, 50, 1_000_000, 8);
+        Random random = new Random(13);
+
+        for (int i = 0; i < 300; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            assertEquals(reference.route(graph, origin, destination), engine.route(graph, origin, destination),
+                    "Route from " + origin + " to " + destination);
+        }
+    }
+
+    @Test
+    public void testSameCostsOnDirectedGraphWithTies() {
+        CompactGraph graph = TestGraphs.random(2_000, 3, 6, 21);
+        Random random = new Random(17);
+
+        for (int i = 0; i < 500; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            Route expected = reference.route(graph, origin, destination);
+            Route actual = engine.route(graph, origin, destination);
+            if (expected == null) {
+                assertNull(actual, "No route expected from " + origin + " to " + destination);
+            } else {
+                assertEquals(expected.getCost(), actual.getCost(), "Cost from " + origin + " to " + destination);
+                assertEquals(origin, actual.origin());
+                assertEquals(destination, actual.destination());
+                assertEquals(expected.getCost(), DialEngineTest.costOf(graph, actual.getBranches()));
+            }
+        }
+    }
+
+    @Test
+    public void testFeeIsChargedOnTheBranchBeingLeft() {
+        // A -> B -> D costs 1 + 100, A -> C -> D costs 1 + 2: the expensive branch B must be avoided
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 1);
+        builder.addBranch("B", 100);
+        builder.addBranch("C", 2);
+        builder.addBranch("D", 1_000);
+        builder.addEdge("A", "B");
+        builder.addEdge("A", "C");
+        builder.addEdge("B", "D");
+        builder.addEdge("C", "D");
+        CompactGraph graph = builder.build();
+
+        Route route = engine.route(graph, 0, 3);
+
+        assertArrayEquals(new int[]{0, 2, 3}, route.getBranches());
+        assertEquals(3, route.getCost());
+    }
+
+    @Test
+    public void testOriginEqualsDestinationAndUnreachable() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 1);
+        builder.addBranch("B", 1);
+        builder.addEdge("B", "A");
+        CompactGraph graph = builder.build();
+
+        assertArrayEquals(new int[]{0}, engine.route(graph, 0, 0).getBranches());
+        assertNull(engine.route(graph, 0, 1));
+    }
+}
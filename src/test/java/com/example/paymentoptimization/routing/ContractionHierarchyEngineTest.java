@@ -0,0 +1,143 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContractionHierarchyEngineTest {
+
+    private final DijkstraEngine reference = new DijkstraEngine();
+    private ContractionHierarchyEngine engine;
+
+    @AfterEach
+    public void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameCostsAsDijkstraOnRandomGraph() {
+        assertSameCosts(TestGraphs.random(3_000, 3, 20, 4), 500);
+    }
+
+    @Test
+    public void testSameCostsAsDijkstraOnGrid() {
+        assertSameCosts(TestGraphs.grid(60, 60, 10, 3), 300);
+    }
+
+    @Test
+    public void testUnpackedPathUsesOriginalEdges() {
+        Graph graph = new Graph();
+        graph.addBranch("A", 5);
+        graph.addBranch("B", 50);
+        graph.addBranch("C", 10);
+        graph.addBranch("D", 10);
+        graph.addBranch("E", 20);
+        graph.addBranch("F", 5);
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "D");
+        graph.addEdge("C", "B");
+        graph.addEdge("C", "E");
+        graph.addEdge("D", "E");
+        graph.addEdge("D", "F");
+        graph.addEdge("E", "D");
+        graph.addEdge("E", "F");
+        engine = readyEngine(graph);
+        CompactGraph snapshot = graph.snapshot();
+
+        Route route = engine.route(snapshot, snapshot.idOf("A"), snapshot.idOf("D"));
+
+        assertEquals(35, route.getCost());
+        assertArrayEquals(new int[]{snapshot.idOf("A"), snapshot.idOf("C"), snapshot.idOf("E"), snapshot.idOf("D")},
+                route.getBranches());
+    }
+
+    @Test
+    public void testSettlesFarFewerBranchesThanDijkstra() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(150, 150, 10, 6));
+        engine = readyEngine(graph);
+        CompactGraph snapshot = graph.snapshot();
+        Random random = new Random(2);
+
+        long dijkstraSettled = 0;
+        long hierarchySettled = 0;
+        for (int i = 0; i < 100; i++) {
+            int origin = random.nextInt(snapshot.size());
+            int destination = random.nextInt(snapshot.size());
+            Route expected = reference.route(snapshot, origin, destination);
+            Route actual = engine.route(snapshot, origin, destination);
+            assertEquals(expected.getCost(), actual.getCost());
+            dijkstraSettled += expected.getSettledNodes();
+            hierarchySettled += actual.getSettledNodes();
+        }
+
+        double reduction = (double) dijkstraSettled / hierarchySettled;
+        assertTrue(reduction > 10, "Expected the hierarchy to settle far fewer branches, got " + reduction + "x");
+    }
+
+    @Test
+    public void testHierarchyFollowsGraphChanges() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(20, 20, 10, 1));
+        engine = readyEngine(graph);
+
+        graph.addBranch("Isolated", 3);
+        CompactGraph withBranch = graph.snapshot();
+        assertTrue(engine.isReady(withBranch), "Adding an unconnected branch keeps the hierarchy usable");
+        assertNull(engine.route(withBranch, 0, withBranch.idOf("Isolated")));
+
+        graph.addEdge("G0", "G399");
+        CompactGraph changed = graph.snapshot();
+        // Whether or not the background rebuild has finished, the new edge must be used
+        assertEquals(reference.route(changed, 0, 399).getCost(), engine.route(changed, 0, 399).getCost());
+        engine.rebuildNow();
+        assertTrue(engine.isReady(changed));
+        assertArrayEquals(new int[]{0, 399}, engine.route(changed, 0, 399).getBranches());
+    }
+
+    @Test
+    public void testNotMaintainedUnlessSelected() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(5, 5, 10, 1));
+        engine = new ContractionHierarchyEngine(graph, new RoutingConfig());
+
+        assertFalse(engine.isReady(graph.snapshot()));
+        assertEquals(reference.route(graph.snapshot(), 0, 24), engine.route(graph.snapshot(), 0, 24));
+    }
+
+    private void assertSameCosts(CompactGraph compact, int queries) {
+        Graph graph = TestGraphs.toGraph(compact);
+        engine = readyEngine(graph);
+        CompactGraph snapshot = graph.snapshot();
+        Random random = new Random(9);
+
+        for (int i = 0; i < queries; i++) {
+            int origin = random.nextInt(snapshot.size());
+            int destination = random.nextInt(snapshot.size());
+            Route expected = reference.route(snapshot, origin, destination);
+            Route actual = engine.route(snapshot, origin, destination);
+            if (expected == null) {
+                assertNull(actual, "No route expected from " + origin + " to " + destination);
+            } else {
+                assertEquals(expected.getCost(), actual.getCost(), "Cost from " + origin + " to " + destination);
+                assertEquals(origin, actual.origin());
+                assertEquals(destination, actual.destination());
+                assertEquals(expected.getCost(), DialEngineTest.costOf(snapshot, actual.getBranches()));
+            }
+        }
+    }
+
+    private static ContractionHierarchyEngine readyEngine(Graph graph) {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.setEngine(ContractionHierarchyEngine.NAME);
+        ContractionHierarchyEngine hierarchyEngine = new ContractionHierarchyEngine(graph, routingConfig);
+        hierarchyEngine.rebuildNow();
+        return hierarchyEngine;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaSteppingEngineTest {
+
+    private final WorkspaceDijkstraEngine reference = new WorkspaceDijkstraEngine();
+    private DeltaSteppingEngine engine;
+
+    @AfterEach
+    public void tearDown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameCostsAsDijkstraOnRandomGraphs() {
+        engine = engine(4, 0);
+        assertSameCosts(TestGraphs.random(5_000, 3, 20, 7));
+    }
+
+    @Test
+    public void testSameCostsAsDijkstraOnGrids() {
+        engine = engine(4, 0);
+        assertSameCosts(TestGraphs.grid(80, 80, 10, 3));
+    }
+
+    @Test
+    public void testSameCostsWithNarrowAndWideBuckets() {
+        CompactGraph graph = TestGraphs.random(2_000, 4, 50, 2);
+        for (int delta : new int[]{1, 7, 1_000}) {
+            engine = engine(3, delta);
+            assertSameCosts(graph);
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testRoutesToSeveralDestinations() {
+        engine = engine(4, 0);
+        CompactGraph graph = TestGraphs.random(3_000, 3, 20, 4);
+        int[] destinations = {17, 2_999, 17, 0, 1_500};
+
+        Route[] routes = engine.routes(graph, 0, destinations);
+        Route[] expected = reference.routes(graph, 0, destinations);
+
+        for (int i = 0; i < destinations.length; i++) {
+            assertEquals(expected[i] == null, routes[i] == null);
+            if (expected[i] != null) {
+                assertEquals(expected[i].getCost(), routes[i].getCost());
+                assertEquals(routes[i].getCost(), DialEngineTest.costOf(graph, routes[i].getBranches()));
+            }
+        }
+        assertArrayEquals(new int[]{0}, routes[3].getBranches());
+    }
+
+    @Test
+    public void testFullTreeListsEveryReachableBranchByCost() {
+        engine = engine(4, 0);
+        CompactGraph graph = TestGraphs.random(4_000, 2, 20, 8);
+
+        ShortestPathTree expected = ShortestPathTree.search(graph, 5, null);
+        ShortestPathTree actual = engine.tree(graph, 5, null);
+
+        assertEquals(expected.size(), actual.size());
+        int[] costs = new int[graph.size()];
+        for (int i = 0; i < expected.size(); i++) {
+            costs[expected.branch(i)] = expected.cost(i);
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            int branch = actual.branch(i);
+            assertEquals(costs[branch], actual.cost(i), "Cost of " + branch);
+            if (i > 0) {
+                assertTrue(actual.cost(i - 1) <= actual.cost(i));
+                int predecessor = actual.predecessor(i);
+                assertEquals(actual.cost(i), costs[predecessor] + graph.cost(predecessor), "Predecessor of " + branch);
+            }
+        }
+        assertEquals(5, actual.branch(0));
+    }
+
+    @Test
+    public void testUnreachableDestinations() {
+        engine = engine(2, 0);
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 1);
+        builder.addBranch("B", 1);
+        builder.addBranch("C", 1);
+        builder.addEdge(0, 1);
+        CompactGraph graph = builder.build();
+
+        assertNull(engine.route(graph, 0, 2));
+        assertNull(engine.route(graph, 1, 0));
+        ShortestPathTree tree = engine.tree(graph, 0, new int[]{2, 1});
+        assertEquals(ShortestPathTree.UNREACHABLE, tree.cost(0));
+        assertEquals(1, tree.cost(1));
+        assertEquals(0, tree.predecessor(1));
+    }
+
+    @Test
+    public void testWorthwhileOnlyOnLargeGraphsWithSeveralWorkers() {
+        engine = engine(2, 0);
+        assertTrue(engine.isWorthwhile(TestGraphs.grid(10, 10, 10, 1)));
+        assertFalse(engine.isWorthwhile(TestGraphs.grid(5, 5, 10, 1)));
+        engine.shutdown();
+
+        engine = engine(1, 0);
+        assertFalse(engine.isWorthwhile(TestGraphs.grid(10, 10, 10, 1)), "A single worker cannot beat Dijkstra");
+    }
+
+    private void assertSameCosts(CompactGraph graph) {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            Route expected = reference.route(graph, origin, destination);
+            Route actual = engine.route(graph, origin, destination);
+            String pair = "Route from " + origin + " to " + destination;
+            assertEquals(expected == null, actual == null, pair);
+            if (expected != null) {
+                assertEquals(expected.getCost(), actual.getCost(), pair);
+                assertEquals(origin, actual.origin(), pair);
+                assertEquals(destination, actual.destination(), pair);
+                assertEquals(actual.getCost(), DialEngineTest.costOf(graph, actual.getBranches()), pair);
+            }
+        }
+    }
+
+    static DeltaSteppingEngine engine(int parallelism, int delta) {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getDeltaStepping().setParallelism(parallelism);
+        routingConfig.getDeltaStepping().setDelta(delta);
+        routingConfig.getDeltaStepping().setMinBranches(100);
+        return new DeltaSteppingEngine(routingConfig);
+    }
+}
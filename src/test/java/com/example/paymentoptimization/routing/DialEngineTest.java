@@ -0,0 +1,81 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DialEngineTest {
+
+    private final DijkstraEngine reference = new DijkstraEngine();
+
+    @Test
+    public void testSameRoutesAsDijkstraWithPositiveCosts() {
+        DialEngine engine = new DialEngine(new RoutingConfig());
+        CompactGraph graph = TestGraphs.grid(40, 40, 9, 11);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 300; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            assertEquals(reference.route(graph, origin, destination), engine.route(graph, origin, destination),
+                    "Route from " + origin + " to " + destination);
+        }
+    }
+
+    @Test
+    public void testSameCostsWithZeroCostBranches() {
+        DialEngine engine = new DialEngine(new RoutingConfig());
+        CompactGraph graph = TestGraphs.random(1_500, 4, 5, 99);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 300; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            Route expected = reference.route(graph, origin, destination);
+            Route actual = engine.route(graph, origin, destination);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected.getCost(), actual.getCost(), "Cost from " + origin + " to " + destination);
+                assertEquals(expected.getCost(), costOf(graph, actual.getBranches()));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeCostsFallBackToHeapEngine() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getDial().setMaxCost(10);
+        DialEngine engine = new DialEngine(routingConfig);
+        CompactGraph graph = TestGraphs.grid(10, 10, 1_000, 2);
+
+        assertEquals(reference.route(graph, 0, 99), engine.route(graph, 0, 99));
+    }
+
+    @Test
+    public void testUnreachableDestination() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 3);
+        builder.addBranch("B", 1);
+        builder.addEdge("B", "A");
+
+        assertNull(new DialEngine(new RoutingConfig()).route(builder.build(), 0, 1));
+    }
+
+    static int costOf(CompactGraph graph, int[] branches) {
+        int cost = 0;
+        for (int i = 0; i + 1 < branches.length; i++) {
+            boolean linked = false;
+            for (int edge = graph.edgesStart(branches[i]); edge < graph.edgesEnd(branches[i]); edge++) {
+                linked |= graph.target(edge) == branches[i + 1];
+            }
+            assertTrue(linked, "Route uses a missing edge " + branches[i] + " -> " + branches[i + 1]);
+            cost += graph.cost(branches[i]);
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReachabilityIndexTest {
+
+    private ReachabilityIndex index;
+
+    @AfterEach
+    public void tearDown() {
+        if (index != null) {
+            index.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameAnswersAsSearch() {
+        for (long seed = 1; seed <= 4; seed++) {
+            // Average degree one leaves many small components and many unreachable pairs
+            CompactGraph graph = TestGraphs.random(300, 1, 10, seed);
+            Condensation condensation = Condensation.build(graph);
+            int[] distances = new int[graph.size()];
+
+            for (int origin = 0; origin < graph.size(); origin++) {
+                SingleSourceSearch.distances(graph, origin, false, distances);
+                for (int destination = 0; destination < graph.size(); destination++) {
+                    assertEquals(distances[destination] != SearchSpace.UNREACHED,
+                            condensation.isReachable(origin, destination),
+                            "Seed " + seed + ", from " + origin + " to " + destination);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStronglyConnectedGraphIsOneComponent() {
+        Condensation condensation = Condensation.build(TestGraphs.grid(20, 20, 10, 1));
+
+        assertEquals(1, condensation.componentCount());
+        assertTrue(condensation.isReachable(399, 0));
+    }
+
+    @Test
+    public void testLongChainsDoNotOverflowTheStack() {
+        int length = 200_000;
+        CompactGraph.Builder builder = CompactGraph.builder();
+        for (int i = 0; i < length; i++) {
+            builder.addBranch("C" + i, 1);
+        }
+        for (int i = 0; i + 1 < length; i++) {
+            builder.addEdge(i, i + 1);
+        }
+        Condensation condensation = Condensation.build(builder.build());
+
+        assertEquals(length, condensation.componentCount());
+        assertTrue(condensation.isReachable(0, length - 1));
+        assertFalse(condensation.isReachable(length - 1, 0));
+    }
+
+    @Test
+    public void testEdgesWithinReachKeepTheIndex() throws InterruptedException {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(5, 5, 10, 1));
+        graph.addBranch("Island", 1);
+        index = readyIndex(graph);
+
+        graph.addEdge("G0", "G24");
+        CompactGraph changed = graph.snapshot();
+        awaitReady(changed);
+        int island = changed.idOf("Island");
+        assertFalse(index.isReachable(changed, 0, island));
+        assertTrue(index.isReachable(changed, island, island));
+
+        graph.addEdge("G24", "Island");
+        CompactGraph connected = graph.snapshot();
+        awaitReady(connected);
+        assertTrue(index.isReachable(connected, 0, island), "An edge opening new routes rebuilds the index");
+        assertFalse(index.isReachable(connected, island, 0));
+    }
+
+    @Test
+    public void testNewBranchesOnlyReachThemselves() {
+        Graph graph = TestGraphs.toGraph(TestGraphs.grid(5, 5, 10, 1));
+        index = readyIndex(graph);
+
+        graph.addBranch("New", 3);
+        CompactGraph snapshot = graph.snapshot();
+        int id = snapshot.idOf("New");
+
+        assertTrue(index.isReady(snapshot), "Adding an unconnected branch keeps the index usable");
+        assertFalse(index.isReachable(snapshot, 0, id));
+        assertFalse(index.isReachable(snapshot, id, 0));
+        assertTrue(index.isReachable(snapshot, id, id));
+    }
+
+    @Test
+    public void testDisabledIndexSearches() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getReachability().setEnabled(false);
+        Graph graph = TestGraphs.toGraph(TestGraphs.random(100, 1, 10, 3));
+        index = new ReachabilityIndex(graph, routingConfig);
+        CompactGraph snapshot = graph.snapshot();
+        Condensation reference = Condensation.build(snapshot);
+
+        assertFalse(index.isReady(snapshot));
+        for (int destination = 0; destination < snapshot.size(); destination++) {
+            assertEquals(reference.isReachable(0, destination), index.isReachable(snapshot, 0, destination));
+        }
+    }
+
+    private void awaitReady(CompactGraph snapshot) throws InterruptedException {
+        for (int i = 0; i < 500 && !index.isReady(snapshot); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(index.isReady(snapshot));
+    }
+
+    private static ReachabilityIndex readyIndex(Graph graph) {
+        ReachabilityIndex reachabilityIndex = new ReachabilityIndex(graph, new RoutingConfig());
+        reachabilityIndex.rebuildNow();
+        return reachabilityIndex;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingEnginesTest {
+
+    @Test
+    public void testConfiguredEngineIsSelected() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.setEngine(DijkstraEngine.NAME);
+
+        RoutingEngines engines = new RoutingEngines(List.of(new DijkstraEngine(), new WorkspaceDijkstraEngine()), routingConfig);
+
+        assertEquals(DijkstraEngine.NAME, engines.select(TestGraphs.grid(2, 2, 1, 1)).getName());
+        assertEquals(WorkspaceDijkstraEngine.NAME, engines.get(WorkspaceDijkstraEngine.NAME).getName());
+    }
+
+    @Test
+    public void testLargeGraphsAreSearchedInParallel() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        DeltaSteppingEngine parallel = DeltaSteppingEngineTest.engine(2, 0);
+        try {
+            RoutingEngines engines = new RoutingEngines(List.of(new WorkspaceDijkstraEngine(), parallel), routingConfig);
+
+            assertEquals(WorkspaceDijkstraEngine.NAME, engines.select(TestGraphs.grid(5, 5, 1, 1)).getName());
+            assertEquals(DeltaSteppingEngine.NAME, engines.select(TestGraphs.grid(10, 10, 1, 1)).getName());
+            assertEquals(100, engines.tree(TestGraphs.grid(10, 10, 1, 1), 0, null).size());
+
+            routingConfig.setEngine(BidirectionalDijkstraEngine.NAME);
+            engines = new RoutingEngines(List.of(new BidirectionalDijkstraEngine(), parallel), routingConfig);
+            assertEquals(BidirectionalDijkstraEngine.NAME, engines.select(TestGraphs.grid(10, 10, 1, 1)).getName(),
+                    "Point-to-point engines are kept");
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnknownEngineIsRejected() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.setEngine("teleport");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new RoutingEngines(List.of(new DijkstraEngine()), routingConfig));
+    }
+}
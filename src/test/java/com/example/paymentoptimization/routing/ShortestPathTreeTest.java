@@ -0,0 +1,69 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShortestPathTreeTest {
+
+    private final DijkstraEngine reference = new DijkstraEngine();
+
+    @Test
+    public void testFullTreeListsEveryReachableBranchByCost() {
+        CompactGraph graph = TestGraphs.random(2_000, 3, 20, 42);
+        int origin = 17;
+
+        ShortestPathTree tree = ShortestPathTree.search(graph, origin, null);
+
+        int reachable = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            reachable += reference.route(graph, origin, v) == null ? 0 : 1;
+        }
+        assertEquals(reachable, tree.size());
+        assertEquals(origin, tree.branch(0));
+        assertEquals(-1, tree.predecessor(0));
+        for (int i = 0; i < tree.size(); i++) {
+            Route expected = reference.route(graph, origin, tree.branch(i));
+            assertEquals(expected.getCost(), tree.cost(i), "Cost to " + tree.branch(i));
+            if (i > 0) {
+                assertTrue(tree.cost(i - 1) <= tree.cost(i), "Entries are ordered by cost");
+                int predecessor = tree.predecessor(i);
+                assertEquals(tree.cost(i), reference.route(graph, origin, predecessor).getCost() + graph.cost(predecessor));
+            }
+        }
+    }
+
+    @Test
+    public void testDestinationsAreReportedInRequestOrder() {
+        CompactGraph graph = TestGraphs.grid(50, 50, 10, 3);
+        int[] destinations = {60, 5, 60, 0};
+
+        ShortestPathTree tree = ShortestPathTree.search(graph, 0, destinations);
+
+        assertEquals(4, tree.size());
+        for (int i = 0; i < destinations.length; i++) {
+            assertEquals(destinations[i], tree.branch(i));
+            assertEquals(reference.route(graph, 0, destinations[i]).getCost(), tree.cost(i));
+        }
+        assertTrue(tree.settledNodes() < graph.size() / 4, "Search stops once all destinations are settled");
+    }
+
+    @Test
+    public void testUnreachableDestination() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 5);
+        builder.addBranch("B", 7);
+        builder.addBranch("C", 1);
+        builder.addEdge("A", "B");
+        CompactGraph graph = builder.build();
+
+        ShortestPathTree tree = ShortestPathTree.search(graph, 0, new int[]{2, 1});
+
+        assertEquals(ShortestPathTree.UNREACHABLE, tree.cost(0));
+        assertEquals(-1, tree.predecessor(0));
+        assertEquals(5, tree.cost(1));
+        assertEquals(0, tree.predecessor(1));
+        assertEquals(2, ShortestPathTree.search(graph, 0, null).size());
+    }
+}
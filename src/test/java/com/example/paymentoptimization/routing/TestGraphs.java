@@ -0,0 +1,76 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic graph families shared by the routing engine tests.
+ */
+final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Random directed graph with the given average out-degree and branch costs in [0, maxCost].
+     */
+    static CompactGraph random(int size, int averageDegree, int maxCost, long seed) {
+        Random random = new Random(seed);
+        CompactGraph.Builder builder = CompactGraph.builder();
+        for (int i = 0; i < size; i++) {
+            builder.addBranch("B" + i, random.nextInt(maxCost + 1));
+        }
+        for (int i = 0; i < size * averageDegree; i++) {
+            builder.addEdge(random.nextInt(size), random.nextInt(size));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Grid where every branch links to its right and lower neighbours (and back), with random costs.
+     */
+    static CompactGraph grid(int width, int height, int maxCost, long seed) {
+        Random random = new Random(seed);
+        CompactGraph.Builder builder = CompactGraph.builder();
+        for (int i = 0; i < width * height; i++) {
+            builder.addBranch("G" + i, 1 + random.nextInt(maxCost));
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int id = y * width + x;
+                if (x + 1 < width) {
+                    builder.addEdge(id, id + 1);
+                    builder.addEdge(id + 1, id);
+                }
+                if (y + 1 < height) {
+                    builder.addEdge(id, id + width);
+                    builder.addEdge(id + width, id);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Loads the same branches and edges into a live {@link Graph} in a single batch.
+     */
+    static Graph toGraph(CompactGraph compact) {
+        List<GraphMutation> mutations = new ArrayList<>();
+        for (int i = 0; i < compact.size(); i++) {
+            mutations.add(GraphMutation.addBranch(compact.nameOf(i), compact.cost(i)));
+        }
+        for (int i = 0; i < compact.size(); i++) {
+            for (int edge = compact.edgesStart(i); edge < compact.edgesEnd(i); edge++) {
+                mutations.add(GraphMutation.addEdge(compact.nameOf(i), compact.nameOf(compact.target(edge))));
+            }
+        }
+        Graph graph = new Graph();
+        graph.apply(mutations);
+        return graph;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.paymentoptimization.routing;
+
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceDijkstraEngineTest {
+
+    private final WorkspaceDijkstraEngine engine = new WorkspaceDijkstraEngine();
+    private final DijkstraEngine reference = new DijkstraEngine();
+
+    @Test
+    public void testSameRoutesAsReferenceDijkstra() {
+        CompactGraph graph = TestGraphs.random(2_000, 3, 20, 42);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 500; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            assertEquals(reference.route(graph, origin, destination), engine.route(graph, origin, destination),
+                    "Route from " + origin + " to " + destination);
+        }
+    }
+
+    @Test
+    public void testMappedSnapshotGivesTheSameRoutes(@TempDir Path directory) throws IOException {
+        CompactGraph graph = TestGraphs.random(2_000, 3, 20, 42);
+        Path file = directory.resolve("graph.snapshot");
+        GraphSnapshotFile.write(graph, file);
+        CompactGraph mapped = GraphSnapshotFile.read(file);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 200; i++) {
+            int origin = random.nextInt(graph.size());
+            int destination = random.nextInt(graph.size());
+            assertEquals(engine.route(graph, origin, destination), engine.route(mapped, origin, destination),
+                    "Route from " + origin + " to " + destination);
+        }
+    }
+
+    @Test
+    public void testRoutesToManyDestinationsMatchSingleQueries() {
+        CompactGraph graph = TestGraphs.random(2_000, 3, 20, 42);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 50; i++) {
+            int origin = random.nextInt(graph.size());
+            int[] destinations = random.ints(20, 0, graph.size()).toArray();
+            destinations[0] = destinations[1]; // duplicates are answered twice
+            destinations[2] = origin;
+
+            Route[] routes = engine.routes(graph, origin, destinations);
+
+            assertEquals(destinations.length, routes.length);
+            for (int j = 0; j < destinations.length; j++) {
+                assertEquals(reference.route(graph, origin, destinations[j]), routes[j],
+                        "Route from " + origin + " to " + destinations[j]);
+            }
+        }
+    }
+
+    @Test
+    public void testWorkspaceIsReusedAcrossGraphSizes() {
+        CompactGraph small = TestGraphs.grid(3, 3, 5, 1);
+        CompactGraph large = TestGraphs.grid(60, 60, 5, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(reference.route(large, 0, large.size() - 1), engine.route(large, 0, large.size() - 1));
+            assertEquals(reference.route(small, 0, small.size() - 1), engine.route(small, 0, small.size() - 1));
+        }
+    }
+
+    @Test
+    public void testOriginEqualsDestination() {
+        CompactGraph graph = TestGraphs.grid(3, 3, 5, 1);
+
+        Route route = engine.route(graph, 4, 4);
+
+        assertArrayEquals(new int[]{4}, route.getBranches());
+        assertEquals(0, route.getCost());
+    }
+
+    @Test
+    public void testSearchStatisticsAreReported() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 1);
+        builder.addBranch("B", 1);
+        builder.addBranch("C", 1);
+        builder.addBranch("D", 1);
+        builder.addEdge("A", "B");
+        builder.addEdge("A", "C");
+        builder.addEdge("B", "D");
+        builder.addEdge("C", "D");
+
+        Route route = engine.route(builder.build(), 0, 3);
+
+        assertEquals(4, route.getSettledNodes());
+        assertEquals(4, route.getRelaxedEdges(), "The origin and one label for each other branch");
+        assertEquals(2, route.getQueuePeak(), "B and C are queued together");
+    }
+
+    @Test
+    public void testUnreachableDestination() {
+        CompactGraph.Builder builder = CompactGraph.builder();
+        builder.addBranch("A", 1);
+        builder.addBranch("B", 1);
+        builder.addEdge("B", "A");
+
+        assertNull(engine.route(builder.build(), 0, 1));
+    }
+
+    @Test
+    public void testSteadyStateQueryAllocatesOnlyItsResult() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(threads);
+        CompactGraph graph = TestGraphs.grid(100, 100, 10, 3);
+        int origin = 0;
+        int destination = graph.size() - 1;
+        Route expected = engine.route(graph, origin, destination);
+
+        for (int i = 0; i < 2_000; i++) { // warm up the workspace pool and the JIT
+            engine.route(graph, origin, destination);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        int queries = 1_000;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < queries; i++) {
+            engine.route(graph, origin, destination);
+        }
+        long perQuery = (threads.getThreadAllocatedBytes(threadId) - before) / queries;
+
+        // Route object plus its int[] path, with generous room for object headers and alignment
+        long resultSize = 64 + 16 + 4L * expected.getBranches().length;
+        assertTrue(perQuery <= resultSize,
+                "Steady-state query allocated " + perQuery + " bytes, result ~" + resultSize + " bytes");
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean threads) {
+        org.junit.jupiter.api.Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+}
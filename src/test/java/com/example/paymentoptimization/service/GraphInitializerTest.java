@@ -2,15 +2,31 @@ package com.example.paymentoptimization.service;
 
 import com.example.paymentoptimization.config.BranchConfig;
 import com.example.paymentoptimization.config.EdgeConfig;
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.model.CompactGraph;
 import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.openMocks;
 
@@ -26,6 +42,12 @@ public class GraphInitializerTest {
     @Mock
     private EdgeConfig edgeConfig;
 
+    @Mock
+    private GraphLoaderConfig graphLoaderConfig;
+
+    @Mock
+    private PersistenceConfig persistenceConfig;
+
     @InjectMocks
     private GraphInitializer graphInitializer;
 
@@ -53,8 +75,130 @@ public class GraphInitializerTest {
 
         graphInitializer.init();
 
-        verify(graph, times(1)).addBranch("Branch1", 10);
-        verify(graph, times(1)).addBranch("Branch2", 20);
-        verify(graph, times(1)).addEdge("Branch1", "Branch2");
+        verify(graph, times(1)).apply(List.of(
+                GraphMutation.addBranch("Branch1", 10),
+                GraphMutation.addBranch("Branch2", 20),
+                GraphMutation.addEdge("Branch1", "Branch2")));
+        verify(graph, never()).addBranch(anyString(), anyInt());
+        verify(graph, never()).addEdge(anyString(), anyString());
+        verify(graph, never()).load(any());
+    }
+
+    @Test
+    public void testCsvFilesAreStreamedAfterYaml() throws Exception {
+        Graph realGraph = new Graph();
+        BranchConfig.Branch branch = new BranchConfig.Branch();
+        branch.setName("A");
+        branch.setCost(5);
+        when(branchConfig.getBranches()).thenReturn(List.of(branch));
+        when(graphLoaderConfig.getBranches()).thenReturn(csv("name,cost\nB, 50\n\n# comment\nC,10\n"));
+        when(graphLoaderConfig.getEdges()).thenReturn(csv("A,B\nB,C\nC,A\n"));
+
+        new GraphInitializer(realGraph, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig).init();
+
+        CompactGraph loaded = realGraph.snapshot();
+        assertEquals(3, loaded.size());
+        assertEquals(50, loaded.cost(loaded.idOf("B")));
+        assertEquals(List.of("B"), loaded.getNeighborList("A"));
+        assertEquals(List.of("A"), loaded.getNeighborList("C"));
+    }
+
+    @Test
+    public void testDanglingEdgeFailsTheLoadWithItsLine() {
+        Graph realGraph = new Graph();
+        GraphInitializer initializer =
+                new GraphInitializer(realGraph, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig);
+
+        IllegalArgumentException failure = assertThrows(IllegalArgumentException.class,
+                () -> initializer.loadCsv(csv("A,5\nB,50\n"), csv("A,B\nB,Z\n")));
+
+        assertTrue(failure.getMessage().contains("line 2"), failure.getMessage());
+        assertEquals(0, realGraph.snapshot().size(), "A failed load publishes nothing");
+    }
+
+    @Test
+    public void testMalformedBranchLineIsRejected() {
+        GraphInitializer initializer =
+                new GraphInitializer(new Graph(), branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig);
+
+        assertThrows(IllegalArgumentException.class, () -> initializer.loadCsv(csv("A,five\n"), null));
+        assertThrows(IllegalArgumentException.class, () -> initializer.loadCsv(csv("A,5,7\n"), null));
+        assertThrows(IllegalArgumentException.class, () -> initializer.loadCsv(csv(",5\n"), null));
+        IllegalArgumentException negative = assertThrows(IllegalArgumentException.class,
+                () -> initializer.loadCsv(csv("A,5\nB,-3\n"), null));
+        assertTrue(negative.getMessage().contains("line 2"), negative.getMessage());
+    }
+
+    @Test
+    public void testSnapshotIsSavedOnceAndMappedOnLaterStarts(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("graph.snapshot");
+        when(graphLoaderConfig.getSnapshot()).thenReturn(snapshot);
+        when(graphLoaderConfig.getBranches()).thenReturn(csv("A,5\nB,50\n"));
+        when(graphLoaderConfig.getEdges()).thenReturn(csv("A,B\n"));
+        Graph first = new Graph();
+        new GraphInitializer(first, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig).init();
+        assertTrue(Files.exists(snapshot));
+
+        when(graphLoaderConfig.getEdges()).thenReturn(csv("B,A\n"));
+        Graph second = new Graph();
+        new GraphInitializer(second, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig).init();
+
+        CompactGraph restored = second.snapshot();
+        assertEquals(first.snapshot().version(), restored.version());
+        assertEquals(List.of("B"), restored.getNeighborList("A"));
+        assertEquals(List.of(), restored.getNeighborList("B"), "The snapshot wins over the configuration");
+    }
+
+    @Test
+    public void testUnreadableSnapshotFallsBackToConfiguration(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("graph.snapshot");
+        Files.writeString(snapshot, "not a snapshot");
+        when(graphLoaderConfig.getSnapshot()).thenReturn(snapshot);
+        when(graphLoaderConfig.getBranches()).thenReturn(csv("A,5\n"));
+        Graph realGraph = new Graph();
+
+        new GraphInitializer(realGraph, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig).init();
+
+        assertEquals(1, realGraph.snapshot().size());
+        assertEquals(1, GraphSnapshotFile.read(snapshot).size(), "The snapshot is rewritten");
+    }
+
+    @Test
+    public void testUnreadableSnapshotFailsStartupWithAMutationLog(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("graph.snapshot");
+        Files.writeString(snapshot, "not a snapshot");
+        when(graphLoaderConfig.getSnapshot()).thenReturn(snapshot);
+        when(graphLoaderConfig.getBranches()).thenReturn(csv("A,5\n"));
+        when(persistenceConfig.getLog()).thenReturn(directory.resolve("mutations.log"));
+        Graph realGraph = new Graph();
+
+        GraphInitializer initializer =
+                new GraphInitializer(realGraph, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig);
+
+        assertThrows(UncheckedIOException.class, initializer::init);
+        assertEquals(0, realGraph.snapshot().size());
+        assertEquals("not a snapshot", Files.readString(snapshot), "The snapshot is left for the operator");
+    }
+
+    @Test
+    public void testMissingSnapshotFailsStartupNextToAMutationLog(@TempDir Path directory) throws Exception {
+        Path log = Files.writeString(directory.resolve("mutations.log"), "");
+        when(graphLoaderConfig.getSnapshot()).thenReturn(directory.resolve("graph.snapshot"));
+        when(graphLoaderConfig.getBranches()).thenReturn(csv("A,5\n"));
+        when(persistenceConfig.getLog()).thenReturn(log);
+        Graph realGraph = new Graph();
+        GraphInitializer initializer =
+                new GraphInitializer(realGraph, branchConfig, edgeConfig, graphLoaderConfig, persistenceConfig);
+
+        assertThrows(IllegalStateException.class, initializer::init);
+        assertEquals(0, realGraph.snapshot().size());
+
+        Files.delete(log);
+        initializer.init();
+        assertEquals(1, realGraph.snapshot().size(), "The first start builds the graph from configuration");
+    }
+
+    private static Resource csv(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
     }
 }
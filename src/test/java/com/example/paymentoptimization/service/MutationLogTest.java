@@ -0,0 +1,186 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphSnapshotFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MutationLogTest {
+
+    @TempDir
+    Path directory;
+
+    private PersistenceConfig persistenceConfig;
+    private GraphLoaderConfig graphLoaderConfig;
+    private final List<MutationLog> opened = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        persistenceConfig = new PersistenceConfig();
+        persistenceConfig.setLog(directory.resolve("mutations.log"));
+        graphLoaderConfig = new GraphLoaderConfig();
+        graphLoaderConfig.setSnapshot(directory.resolve("graph.snapshot"));
+
+        Graph initial = new Graph();
+        initial.apply(List.of(GraphMutation.addBranch("A", 5), GraphMutation.addBranch("B", 50)));
+        GraphSnapshotFile.write(initial.snapshot(), graphLoaderConfig.getSnapshot());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (MutationLog log : opened) {
+            log.close();
+        }
+    }
+
+    @Test
+    public void testLoggedChangesSurviveARestart() throws Exception {
+        Graph graph = start();
+        graph.apply(List.of(GraphMutation.addBranch("C", 10)));
+        CompactGraph last = graph.apply(List.of(GraphMutation.addEdge("A", "C"), GraphMutation.addBranch("A", 7)));
+        opened.get(0).whenDurable(last.version()).get(5, TimeUnit.SECONDS);
+
+        Graph restarted = start(); // the first log is still open, as after a crash
+
+        CompactGraph recovered = restarted.snapshot();
+        assertEquals(3, recovered.size());
+        assertEquals(7, recovered.cost(recovered.idOf("A")));
+        assertEquals(List.of("C"), recovered.getNeighborList("A"));
+    }
+
+    @Test
+    public void testConcurrentChangesShareSyncs() throws Exception {
+        persistenceConfig.setSyncInterval(Duration.ofMillis(20));
+        Graph graph = start();
+        MutationLog log = opened.get(0);
+
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    CompactGraph published = graph.apply(List.of(GraphMutation.addBranch("w" + writer + "-" + i, i)));
+                    synchronized (durable) {
+                        durable.add(log.whenDurable(published.version()));
+                    }
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1_002, start().snapshot().size());
+    }
+
+    @Test
+    public void testIncompleteRecordAtTheEndIsDropped() throws Exception {
+        Graph graph = start();
+        CompactGraph published = graph.apply(List.of(GraphMutation.addBranch("C", 10)));
+        opened.get(0).whenDurable(published.version()).get(5, TimeUnit.SECONDS);
+        Files.write(persistenceConfig.getLog(), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        Graph restarted = start();
+
+        assertEquals(3, restarted.snapshot().size());
+        assertEquals(10, restarted.snapshot().cost(restarted.snapshot().idOf("C")));
+    }
+
+    @Test
+    public void testCloseFoldsTheLogIntoTheSnapshot() throws Exception {
+        Graph graph = start();
+        graph.apply(List.of(GraphMutation.addBranch("C", 10)));
+        opened.remove(0).close();
+
+        assertEquals(8, Files.size(persistenceConfig.getLog()), "Only the header is left");
+        assertEquals(3, GraphSnapshotFile.read(graphLoaderConfig.getSnapshot()).size());
+        assertEquals(3, start().snapshot().size());
+    }
+
+    @Test
+    public void testLogIsCompactedPeriodically() throws Exception {
+        persistenceConfig.setCompactAfter(10);
+        Graph graph = start();
+
+        CompactGraph published = null;
+        for (int i = 0; i < 25; i++) {
+            published = graph.apply(List.of(GraphMutation.addBranch("C" + i, i)));
+        }
+        opened.get(0).whenDurable(published.version()).get(5, TimeUnit.SECONDS);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (GraphSnapshotFile.read(graphLoaderConfig.getSnapshot()).size() < 12
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(GraphSnapshotFile.read(graphLoaderConfig.getSnapshot()).size() >= 12);
+        assertEquals(27, start().snapshot().size());
+    }
+
+    @Test
+    public void testChangesThatDoNotFitTheSnapshotAreSkipped() throws Exception {
+        Graph graph = start();
+        graph.apply(List.of(GraphMutation.addBranch("C", 10)));
+        graph.apply(List.of(GraphMutation.addBranch("D", 20), GraphMutation.addEdge("C", "D")));
+        CompactGraph last = graph.apply(List.of(GraphMutation.addBranch("A", 7)));
+        opened.get(0).whenDurable(last.version()).get(5, TimeUnit.SECONDS);
+        // A snapshot that already has C and lacks A, as if it had been rebuilt from other configuration
+        Graph other = new Graph();
+        other.apply(List.of(GraphMutation.addBranch("B", 50), GraphMutation.addBranch("C", 99)));
+        GraphSnapshotFile.write(other.snapshot(), graphLoaderConfig.getSnapshot());
+
+        CompactGraph recovered = start().snapshot();
+
+        assertEquals(99, recovered.cost(recovered.idOf("C")), "The logged addition of C is skipped");
+        assertEquals(20, recovered.cost(recovered.idOf("D")));
+        assertEquals(List.of("D"), recovered.getNeighborList("C"));
+        assertEquals(-1, recovered.idOf("A"), "The cost change of A is skipped");
+    }
+
+    @Test
+    public void testLogRequiresASnapshotFile() {
+        graphLoaderConfig.setSnapshot(null);
+        MutationLog log = new MutationLog(new Graph(), persistenceConfig, graphLoaderConfig);
+
+        assertThrows(IllegalStateException.class, log::open);
+    }
+
+    @Test
+    public void testWithoutALogChangesAreDurableImmediately() throws Exception {
+        MutationLog log = new MutationLog(new Graph(), new PersistenceConfig(), new GraphLoaderConfig());
+        log.open();
+
+        assertTrue(log.whenDurable(42).isDone());
+    }
+
+    // What the application does on startup: map the snapshot, then replay the log
+    private Graph start() throws Exception {
+        Graph graph = new Graph();
+        graph.restore(GraphSnapshotFile.read(graphLoaderConfig.getSnapshot()));
+        MutationLog log = new MutationLog(graph, persistenceConfig, graphLoaderConfig);
+        log.open();
+        opened.add(log);
+        return graph;
+    }
+}
@@ -1,19 +1,23 @@
 package com.example.paymentoptimization.service;
 
+import com.example.paymentoptimization.config.AsyncConfig;
 import com.example.paymentoptimization.config.BranchConfig;
 import com.example.paymentoptimization.config.EdgeConfig;
+import com.example.paymentoptimization.model.Graph;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.context.TestPropertySource;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @TestPropertySource(locations = "classpath:application.yml")
@@ -22,6 +26,13 @@ public class PaymentOptimizerConcurrencyTest {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    @Qualifier(AsyncConfig.MUTATION_EXECUTOR)
+    private ThreadPoolTaskExecutor mutationExecutor;
+
+    @Autowired
+    private Graph graph;
+
     @Autowired
     private BranchConfig branchConfig;
 
@@ -67,4 +78,20 @@ public class PaymentOptimizerConcurrencyTest {
         assertFalse(results.isEmpty(), "Results should not be empty");
         results.forEach(result -> assertNotNull(result, "Result should not be null"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMutationsRunOnTheMutationExecutor() throws Exception {
+        ConcurrentLinkedQueue<String> publishers = new ConcurrentLinkedQueue<>();
+        graph.addListener((previous, current, mutations) -> publishers.add(Thread.currentThread().getName()));
+
+        paymentService.addBranchAsync("AsyncBranch", 5).get();
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> paymentService.addBranchAsync("AsyncBranch", 5).get());
+
+        assertEquals("Branch already exists", failure.getCause().getMessage());
+        assertFalse(paymentService.isInvalidBranch("AsyncBranch"));
+        assertFalse(publishers.isEmpty());
+        assertTrue(publishers.stream().allMatch(name -> name.startsWith(mutationExecutor.getThreadNamePrefix())),
+                "Published from " + publishers);
+    }
+}
@@ -1,61 +1,72 @@
 package com.example.paymentoptimization.service;
 
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.config.RoutingConfig;
 import com.example.paymentoptimization.model.Branch;
+import com.example.paymentoptimization.model.BulkResult;
+import com.example.paymentoptimization.model.CostTable;
+import com.example.paymentoptimization.model.CostTableEntry;
 import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.GraphOperation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import com.example.paymentoptimization.model.RouteRequest;
+import com.example.paymentoptimization.model.RouteResult;
+import com.example.paymentoptimization.routing.BidirectionalDijkstraEngine;
+import com.example.paymentoptimization.routing.DialEngine;
+import com.example.paymentoptimization.routing.DijkstraEngine;
+import com.example.paymentoptimization.routing.ReachabilityIndex;
+import com.example.paymentoptimization.routing.RoutingEngines;
+import com.example.paymentoptimization.routing.WorkspaceDijkstraEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
+import org.mockito.Spy;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.openMocks;
 
 public class PaymentOptimizerTest {
-    @Mock
-    private Graph graph;
+    @Spy
+    private Graph graph = new Graph();
 
-    @InjectMocks
     private PaymentOptimizer paymentService;
 
     @BeforeEach
     public void setUp() {
         openMocks(this);
+        paymentService = optimizer(graph);
+
+        graph.addBranch("A", 5);
+        graph.addBranch("B", 50);
+        graph.addBranch("C", 10);
+        graph.addBranch("D", 10);
+        graph.addBranch("E", 20);
+        graph.addBranch("F", 5);
+
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "D");
+        graph.addEdge("C", "B");
+        graph.addEdge("C", "E");
+        graph.addEdge("D", "E");
+        graph.addEdge("D", "F");
+        graph.addEdge("E", "D");
+        graph.addEdge("E", "F");
 
         reset(graph);
-
-        Branch branchA = new Branch("A", 5);
-        Branch branchB = new Branch("B", 50);
-        Branch branchC = new Branch("C", 10);
-        Branch branchD = new Branch("D", 10);
-        Branch branchE = new Branch("E", 20);
-        Branch branchF = new Branch("F", 5);
-
-        when(graph.getBranch("A")).thenReturn(branchA);
-        when(graph.getBranch("B")).thenReturn(branchB);
-        when(graph.getBranch("C")).thenReturn(branchC);
-        when(graph.getBranch("D")).thenReturn(branchD);
-        when(graph.getBranch("E")).thenReturn(branchE);
-        when(graph.getBranch("F")).thenReturn(branchF);
-
-        when(graph.getNeighborList(anyString())).thenAnswer(invocation -> {
-            String node = invocation.getArgument(0);
-            return switch (node) {
-                case "A" -> Arrays.asList("B", "C");
-                case "B" -> List.of("D");
-                case "C" -> Arrays.asList("B", "E");
-                case "D" -> Arrays.asList("E", "F");
-                case "E" -> Arrays.asList("D", "F");
-                default -> Collections.emptyList();
-            };
-        });
     }
 
     @ParameterizedTest
@@ -71,6 +82,121 @@ public class PaymentOptimizerTest {
         assertEquals(expectedPath, actualPath);
     }
 
+    @Test
+    public void testFindRouteReportsCostAndVersion() {
+        PaymentRoute route = paymentService.findRoute("A", "D");
+
+        assertEquals("A,C,E,D", route.getPath());
+        assertEquals(35, route.getCost());
+        assertEquals(graph.snapshot().version(), route.getGraphVersion());
+
+        PaymentRoute noRoute = paymentService.findRoute("F", "A");
+        assertFalse(noRoute.isFound());
+        assertEquals(graph.snapshot().version(), noRoute.getGraphVersion());
+    }
+
+    @Test
+    public void testRoutesAreCachedUntilTheGraphChanges() {
+        PaymentRoute first = paymentService.findRoute("A", "D");
+        PaymentRoute second = paymentService.findRoute("A", "D");
+        assertSame(first, second, "Second identical query should be served from the route cache");
+
+        graph.addBranch("G", 1);
+        graph.addEdge("A", "G");
+        graph.addEdge("G", "D");
+
+        PaymentRoute afterChange = paymentService.findRoute("A", "D");
+        assertEquals("A,G,D", afterChange.getPath());
+        assertTrue(afterChange.getGraphVersion() > first.getGraphVersion());
+    }
+
+    @Test
+    public void testFindRoutesKeepsInputOrder() {
+        List<RouteResult> results = paymentService.findRoutes(List.of(
+                new RouteRequest("A", "D"),
+                new RouteRequest("C", "F"),
+                new RouteRequest("A", "B"),
+                new RouteRequest("F", "A"),
+                new RouteRequest("A", "Z"),
+                new RouteRequest("", "B"),
+                new RouteRequest("A", "D")));
+
+        assertEquals(7, results.size());
+        assertEquals("A,C,E,D", results.get(0).getPath());
+        assertEquals(35, results.get(0).getCost());
+        assertEquals("C,E,F", results.get(1).getPath());
+        assertEquals("A,B", results.get(2).getPath());
+        assertEquals("No valid path found", results.get(3).getError());
+        assertEquals("One or both branches do not exist", results.get(4).getError());
+        assertEquals("Invalid origin or destination branch", results.get(5).getError());
+        assertEquals("A,C,E,D", results.get(6).getPath());
+        assertEquals("A", results.get(6).getOrigin());
+        assertEquals("D", results.get(6).getDestination());
+        assertEquals(results.get(0).getPath(), paymentService.processPayment("A", "D"));
+    }
+
+    @Test
+    public void testFindRoutesMatchesSingleQueries() {
+        Random random = new Random(5);
+        List<GraphMutation> mutations = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            mutations.add(GraphMutation.addBranch("Node" + i, random.nextInt(20)));
+        }
+        for (int i = 0; i < 1_500; i++) {
+            mutations.add(GraphMutation.addEdge("Node" + random.nextInt(500), "Node" + random.nextInt(500)));
+        }
+        Graph randomGraph = new Graph();
+        randomGraph.apply(mutations);
+        List<RouteRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(new RouteRequest("Node" + (i % 7), "Node" + random.nextInt(500)));
+        }
+
+        List<RouteResult> results = optimizer(randomGraph).findRoutes(requests);
+
+        PaymentOptimizer uncached = optimizer(randomGraph);
+        for (int i = 0; i < requests.size(); i++) {
+            RouteRequest request = requests.get(i);
+            PaymentRoute expected = uncached.findRoute(request.getOrigin(), request.getDestination());
+            assertEquals(expected.getPath(), results.get(i).getPath());
+            assertEquals(expected.getCost(), results.get(i).getCost());
+        }
+    }
+
+    @Test
+    public void testFindCostTable() {
+        List<CostTableEntry> entries = new ArrayList<>();
+        CostTable table = paymentService.findCostTable("A", null);
+        table.forEach(entries::add);
+
+        assertEquals(graph.snapshot().version(), table.getGraphVersion());
+        assertEquals(List.of(
+                new CostTableEntry("A", 0, null),
+                new CostTableEntry("B", 5, "A"),
+                new CostTableEntry("C", 5, "A"),
+                new CostTableEntry("E", 15, "C"),
+                new CostTableEntry("D", 35, "E"),
+                new CostTableEntry("F", 35, "E")), entries);
+
+        CostTable subset = paymentService.findCostTable("C", List.of("F", "A"));
+        assertEquals(2, subset.size());
+        assertEquals(new CostTableEntry("F", 30, "E"), subset.get(0));
+        assertFalse(subset.get(1).isReachable());
+
+        assertNull(paymentService.findCostTable("Z", null));
+        assertNull(paymentService.findCostTable("A", List.of("B", "Z")));
+    }
+
+    @Test
+    public void testIsReachable() {
+        graph.addBranch("Z", 1);
+
+        assertTrue(paymentService.isReachable("A", "F"));
+        assertFalse(paymentService.isReachable("F", "A"));
+        assertFalse(paymentService.isReachable("A", "Z"));
+        assertFalse(paymentService.isReachable("A", "Unknown"));
+    }
+
     @Test
     public void testProcessPaymentNoPath() {
         String actualPath = paymentService.processPayment("A", "Z");
@@ -88,12 +214,11 @@ public class PaymentOptimizerTest {
         String branchName = "G";
         int branchCost = 15;
 
-        when(graph.getBranch(branchName)).thenReturn(null);
-
         CompletableFuture<Void> future = paymentService.addBranchAsync(branchName, branchCost);
         future.get();
 
-        verify(graph).addBranch(branchName, branchCost);
+        verify(graph).apply(List.of(GraphMutation.addBranch(branchName, branchCost)), true);
+        assertEquals(branchCost, graph.getBranch(branchName).getCost());
     }
 
     @Test
@@ -101,55 +226,42 @@ public class PaymentOptimizerTest {
         String fromBranch = "A";
         String toBranch = "G";
 
-        when(graph.getBranch(fromBranch)).thenReturn(new Branch(fromBranch, 5));
-        when(graph.getBranch(toBranch)).thenReturn(new Branch(toBranch, 15));
-        doNothing().when(graph).addEdge(fromBranch, toBranch);
+        graph.addBranch(toBranch, 15);
 
         CompletableFuture<Void> future = paymentService.addEdgeAsync(fromBranch, toBranch);
         future.get();
 
         verify(graph).addEdge(fromBranch, toBranch);
+        assertTrue(graph.getNeighborList(fromBranch).contains(toBranch));
     }
 
     @Test
     public void testSingleNodeGraph() {
-        when(graph.getBranch("A")).thenReturn(new Branch("A", 5));
-        when(graph.getNeighborList("A")).thenReturn(Collections.emptyList());
-        String path = paymentService.processPayment("A", "A");
+        Graph singleNodeGraph = new Graph();
+        singleNodeGraph.addBranch("A", 5);
+        String path = optimizer(singleNodeGraph).processPayment("A", "A");
         assertEquals("A", path, "Expected path to be 'A'");
     }
 
     @Test
     public void testDisconnectedGraph() {
-        when(graph.getNeighborList("A")).thenReturn(List.of("B"));
-        when(graph.getNeighborList("B")).thenReturn(Collections.emptyList());
-        when(graph.getBranch("C")).thenReturn(new Branch("C", 5));
-        when(graph.getNeighborList("C")).thenReturn(Collections.emptyList());
-        String path = paymentService.processPayment("A", "C");
+        Graph disconnectedGraph = new Graph();
+        disconnectedGraph.addBranch("A", 5);
+        disconnectedGraph.addBranch("B", 50);
+        disconnectedGraph.addBranch("C", 5);
+        disconnectedGraph.addEdge("A", "B");
+        String path = optimizer(disconnectedGraph).processPayment("A", "C");
         assertNull(path, "Expected no path due to disconnected components");
     }
 
     @Test
     public void testLargeGraph() {
         int numNodes = 1000;
-        List<String> nodes = new ArrayList<>();
-        for (int i = 0; i < numNodes; i++) {
-            nodes.add("Node" + i);
-        }
-
-        for (String node : nodes) {
-            when(graph.getBranch(node)).thenReturn(new Branch(node, 1));
-        }
-
-        for (String node : nodes) {
-            List<String> neighbors = new ArrayList<>(nodes);
-            neighbors.remove(node);
-            when(graph.getNeighborList(node)).thenReturn(neighbors);
-        }
+        PaymentOptimizer largeGraphService = optimizer(completeGraph(numNodes));
 
         String startNode = "Node0";
         String endNode = "Node999";
-        String path = paymentService.processPayment(startNode, endNode);
+        String path = largeGraphService.processPayment(startNode, endNode);
 
         assertNotNull(path, "Path should not be null");
         assertTrue(path.startsWith(startNode), "Path should start with the start node");
@@ -160,25 +272,12 @@ public class PaymentOptimizerTest {
     @Test
     public void testLargeGraphPerformance() {
         int numNodes = 1000;
-        List<String> nodes = new ArrayList<>();
-        for (int i = 0; i < numNodes; i++) {
-            nodes.add("Node" + i);
-        }
-
-        for (String node : nodes) {
-            when(graph.getBranch(node)).thenReturn(new Branch(node, 1));
-        }
-
-        for (String node : nodes) {
-            List<String> neighbors = new ArrayList<>(nodes);
-            neighbors.remove(node);
-            when(graph.getNeighborList(node)).thenReturn(neighbors);
-        }
+        PaymentOptimizer largeGraphService = optimizer(completeGraph(numNodes));
 
         long startTime = System.currentTimeMillis();
         String startNode = "Node0";
         String endNode = "Node999";
-        String path = paymentService.processPayment(startNode, endNode);
+        String path = largeGraphService.processPayment(startNode, endNode);
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
 
@@ -196,17 +295,9 @@ public class PaymentOptimizerTest {
         String fromBranchA = "A";
         String toBranchH = "H";
 
-        when(graph.getBranch(branchNameH)).thenReturn(null);
-        Branch existingBranch = new Branch(fromBranchA, 5);
-        when(graph.getBranch(fromBranchA)).thenReturn(existingBranch);
-        when(graph.getBranch(toBranchH)).thenReturn(null);
-        doNothing().when(graph).addBranch(anyString(), anyInt());
-        doNothing().when(graph).addEdge(anyString(), anyString());
-
         CompletableFuture<Void> future1 = paymentService.addBranchAsync(branchNameH, branchCostH);
         future1.get();
 
-        when(graph.getBranch(branchNameH)).thenReturn(new Branch(branchNameH, branchCostH));
         CompletableFuture<Void> future2 = paymentService.addEdgeAsync(fromBranchA, toBranchH);
 
         CompletableFuture<Void> allOf = CompletableFuture.allOf(future1, future2);
@@ -218,8 +309,75 @@ public class PaymentOptimizerTest {
             throw e;
         }
 
-        verify(graph).addBranch(branchNameH, branchCostH);
+        verify(graph).apply(List.of(GraphMutation.addBranch(branchNameH, branchCostH)), true);
         verify(graph).addEdge(fromBranchA, toBranchH);
+        assertEquals("A,H", paymentService.processPayment(fromBranchA, toBranchH));
+    }
+
+    @Test
+    public void testBulkChangeIsOneGraphUpdate() throws Exception {
+        long version = graph.snapshot().version();
+        List<List<GraphMutation>> published = new ArrayList<>();
+        graph.addListener((previous, current, mutations) -> published.add(mutations));
+
+        BulkResult result = paymentService.applyBulkAsync(List.of(
+                GraphOperation.addEdge("A", "H"), // H is added later in the same batch
+                GraphOperation.addBranch("H", 1),
+                GraphOperation.addBranch("I", 2),
+                GraphOperation.addEdge("H", "I"),
+                GraphOperation.addEdge("I", "D"))).get();
+
+        assertTrue(result.isApplied());
+        assertEquals(2, result.getBranches());
+        assertEquals(3, result.getEdges());
+        assertEquals(version + 1, result.getGraphVersion());
+        assertEquals(1, published.size(), "Listeners are notified once per batch");
+        assertEquals("A,H,I,D", paymentService.processPayment("A", "D"));
+    }
+
+    @Test
+    public void testInvalidBulkChangeAppliesNothing() throws Exception {
+        long version = graph.snapshot().version();
+
+        BulkResult result = paymentService.applyBulkAsync(Arrays.asList(
+                GraphOperation.addBranch("H", 1),
+                GraphOperation.addBranch("A", 2),
+                GraphOperation.addEdge("H", "Z"),
+                GraphOperation.addBranch("H", 3),
+                new GraphOperation(),
+                GraphOperation.addBranch("N", -4),
+                null)).get();
+
+        assertFalse(result.isApplied());
+        assertEquals(List.of(
+                "operation 1: branch A already exists",
+                "operation 2: unknown branch Z",
+                "operation 3: branch H is added twice",
+                "operation 4: missing type",
+                "operation 5: branch N has a negative cost",
+                "operation 6: missing operation"), result.getErrors());
+        assertEquals(version, graph.snapshot().version());
+        assertEquals(-1, graph.snapshot().idOf("H"));
+    }
+
+    @Test
+    public void testBulkChangeLosesARaceForTheSameBranch() throws Exception {
+        Graph raced = new Graph();
+        raced.addBranch("A", 5);
+        // The competing addition is published after the batch was checked, before the executor applies it
+        PaymentOptimizer optimizer = optimizer(raced, task -> {
+            raced.apply(List.of(GraphMutation.addBranch("H", 9)), true);
+            task.run();
+        });
+
+        BulkResult result = optimizer.applyBulkAsync(List.of(
+                GraphOperation.addBranch("H", 1),
+                GraphOperation.addEdge("A", "H"))).get();
+
+        assertFalse(result.isApplied());
+        assertEquals(List.of("Branch H already exists"), result.getErrors());
+        assertEquals(9, raced.snapshot().cost(raced.snapshot().idOf("H")), "The first addition keeps its cost");
+        assertTrue(raced.getNeighborList("A").isEmpty());
     }
 
     @Test
@@ -227,7 +385,7 @@ public class PaymentOptimizerTest {
         String branchName = "H";
         int branchCost = 25;
 
-        when(graph.getBranch(branchName)).thenReturn(new Branch(branchName, branchCost));
+        doReturn(new Branch(branchName, branchCost)).when(graph).getBranch(branchName);
 
         Branch branch = graph.getBranch(branchName);
         assertNotNull(branch, "Branch should not be null");
@@ -245,4 +403,36 @@ public class PaymentOptimizerTest {
         long duration = end - start;
         assertTrue(duration < 2000, "Expected response time to be less than 2000 ms");
     }
+
+    private static PaymentOptimizer optimizer(Graph graph) {
+        return optimizer(graph, Runnable::run);
+    }
+
+    private static PaymentOptimizer optimizer(Graph graph, Executor mutationExecutor) {
+        RoutingConfig routingConfig = new RoutingConfig();
+        RoutingEngines routingEngines = new RoutingEngines(
+                List.of(new DijkstraEngine(), new WorkspaceDijkstraEngine(), new DialEngine(routingConfig),
+                        new BidirectionalDijkstraEngine()), routingConfig);
+        return new PaymentOptimizer(graph, new RouteCache(graph, routingConfig), routingEngines,
+                new ReachabilityIndex(graph, routingConfig),
+                new RoutingMetrics(new SimpleMeterRegistry(), graph, routingConfig),
+                new MutationLog(graph, new PersistenceConfig(), new GraphLoaderConfig()), mutationExecutor);
+    }
+
+    private static Graph completeGraph(int numNodes) {
+        List<GraphMutation> mutations = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) {
+            mutations.add(GraphMutation.addBranch("Node" + i, 1));
+        }
+        for (int i = 0; i < numNodes; i++) {
+            for (int j = 0; j < numNodes; j++) {
+                if (i != j) {
+                    mutations.add(GraphMutation.addEdge("Node" + i, "Node" + j));
+                }
+            }
+        }
+        Graph completeGraph = new Graph();
+        completeGraph.apply(mutations);
+        return completeGraph;
+    }
 }
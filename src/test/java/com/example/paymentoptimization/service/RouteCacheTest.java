@@ -0,0 +1,149 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.model.GraphMutation;
+import com.example.paymentoptimization.model.PaymentRoute;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteCacheTest {
+
+    private Graph graph;
+    private RoutingConfig routingConfig;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new Graph();
+        graph.addBranch("A", 5);
+        graph.addBranch("B", 50);
+        routingConfig = new RoutingConfig();
+    }
+
+    @Test
+    public void testHitAndMissAreRecorded() {
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+        PaymentRoute route = new PaymentRoute("A,B", 5, version);
+
+        assertNull(routeCache.get(version, 0, 1));
+        routeCache.put(0, 1, route);
+        assertSame(route, routeCache.get(version, 0, 1));
+
+        assertEquals(1, routeCache.stats().hitCount());
+        assertEquals(1, routeCache.stats().missCount());
+    }
+
+    @Test
+    public void testEntriesAreKeyedByGraphVersion() {
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+        routeCache.put(0, 1, new PaymentRoute("A,B", 5, version));
+
+        assertNull(routeCache.get(version + 1, 0, 1), "A route computed for another version must not be served");
+    }
+
+    @Test
+    public void testGraphChangeRetiresRoutesOfThePreviousVersion() throws Exception {
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+        routeCache.put(0, 1, new PaymentRoute("A,B", 5, version));
+
+        graph.addEdge("A", "B");
+        routeCache.awaitRepairs();
+        routeCache.cleanUp();
+
+        assertNull(routeCache.get(version, 0, 1));
+        assertEquals(1, routeCache.size(), "Only the copy for the new version remains");
+    }
+
+    @Test
+    public void testAddedEdgesOnlyRepairTheRoutesTheyImprove() throws Exception {
+        graph.addBranch("C", 1);
+        graph.addBranch("D", 1);
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+        PaymentRoute unaffected = new PaymentRoute("A,B", 5, version);
+        routeCache.put(0, 1, unaffected);
+        routeCache.put(0, 2, new PaymentRoute("A,B,C", 55, version));
+        routeCache.put(2, 0, PaymentRoute.noPath(version));
+
+        CompactGraph changed = graph.apply(List.of(GraphMutation.addEdge("A", "D"), GraphMutation.addEdge("D", "C")));
+        routeCache.awaitRepairs();
+
+        assertEquals(new PaymentRoute("A,B", 5, changed.version()), routeCache.get(changed.version(), 0, 1));
+        assertEquals(new PaymentRoute("A,D,C", 6, changed.version()), routeCache.get(changed.version(), 0, 2));
+        assertEquals(PaymentRoute.noPath(changed.version()), routeCache.get(changed.version(), 2, 0));
+        assertNull(routeCache.get(version, 0, 1));
+    }
+
+    @Test
+    public void testCostChangeClearsTheCache() {
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+        routeCache.put(0, 1, new PaymentRoute("A,B", 5, version));
+
+        graph.addBranch("A", 7);
+        routeCache.cleanUp();
+
+        assertEquals(0, routeCache.size());
+    }
+
+    @Test
+    public void testLargeChangesClearTheCache() {
+        routingConfig.getRouteCache().setRepairMaxEdges(0);
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+        routeCache.put(0, 1, new PaymentRoute("A,B", 5, version));
+
+        graph.addEdge("A", "B");
+        routeCache.cleanUp();
+
+        assertEquals(0, routeCache.size());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        routingConfig.getRouteCache().setMaximumSize(10);
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+
+        for (int i = 0; i < 1000; i++) {
+            routeCache.put(i, i, PaymentRoute.noPath(version));
+        }
+        routeCache.cleanUp();
+
+        assertTrue(routeCache.size() <= 10);
+        assertTrue(routeCache.stats().evictionCount() >= 990);
+    }
+
+    @Test
+    public void testDisabledCacheStoresNothing() {
+        routingConfig.getRouteCache().setEnabled(false);
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        long version = graph.snapshot().version();
+
+        routeCache.put(0, 1, new PaymentRoute("A,B", 5, version));
+
+        assertNull(routeCache.get(version, 0, 1));
+    }
+
+    @Test
+    public void testStatisticsArePublishedAsMetrics() {
+        RouteCache routeCache = new RouteCache(graph, routingConfig);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        routeCache.bindTo(registry);
+
+        routeCache.get(graph.snapshot().version(), 0, 1);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "routes").tag("result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.GraphLoaderConfig;
+import com.example.paymentoptimization.config.PersistenceConfig;
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.routing.ReachabilityIndex;
+import com.example.paymentoptimization.routing.RoutingEngines;
+import com.example.paymentoptimization.routing.WorkspaceDijkstraEngine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingMetricsTest {
+
+    private Graph graph;
+    private RoutingConfig routingConfig;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new Graph();
+        graph.addBranch("A", 5);
+        graph.addBranch("B", 50);
+        graph.addBranch("C", 10);
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        routingConfig = new RoutingConfig();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testSampledQueriesRecordLatencyAndSearchStatistics() {
+        routingConfig.getMetrics().setSampleRate(1);
+        PaymentOptimizer optimizer = optimizer();
+
+        assertEquals("A,B,C", optimizer.processPayment("A", "C"));
+        optimizer.processPayment("A", "C"); // cache hit: timed, but no search
+
+        assertEquals(2, registry.get("payments.route").timer().count());
+        DistributionSummary settled = registry.get("routing.search.settled")
+                .tag("engine", WorkspaceDijkstraEngine.NAME).summary();
+        assertEquals(1, settled.count());
+        assertEquals(3, settled.totalAmount());
+        assertEquals(3, registry.get("routing.search.relaxed").summary().totalAmount());
+        assertEquals(1, registry.get("routing.search.queue.peak").summary().max());
+    }
+
+    @Test
+    public void testUnsampledQueriesAreNotTimed() {
+        routingConfig.getMetrics().setSampleRate(0);
+        PaymentOptimizer optimizer = optimizer();
+
+        optimizer.processPayment("A", "C");
+
+        assertEquals(0, registry.get("payments.route").timer().count());
+        assertNull(registry.find("routing.search.settled").summary());
+    }
+
+    @Test
+    public void testOutcomeCountersAreExact() {
+        routingConfig.getMetrics().setSampleRate(0);
+        PaymentOptimizer optimizer = optimizer();
+
+        optimizer.findRoute("C", "A");
+        optimizer.findRoute("A", "Z");
+        assertTrue(optimizer.isInvalidBranch("Y"));
+
+        assertEquals(1, registry.get("payments.route.not.found").counter().count());
+        assertEquals(2, registry.get("payments.branch.invalid").counter().count());
+    }
+
+    @Test
+    public void testGraphGaugesAndMutationTimers() throws Exception {
+        PaymentOptimizer optimizer = optimizer();
+
+        optimizer.addBranchAsync("D", 1).get();
+        optimizer.addEdgeAsync("C", "D").get();
+
+        assertEquals(4, registry.get("graph.branches").gauge().value());
+        assertEquals(3, registry.get("graph.edges").gauge().value());
+        assertEquals(graph.snapshot().version(), (long) registry.get("graph.version").gauge().value());
+        assertEquals(1, registry.get("graph.mutation").tag("type", "add_branch").timer().count());
+        assertEquals(1, registry.get("graph.mutation").tag("type", "add_edge").timer().count());
+    }
+
+    private PaymentOptimizer optimizer() {
+        RoutingEngines routingEngines = new RoutingEngines(List.of(new WorkspaceDijkstraEngine()), routingConfig);
+        return new PaymentOptimizer(graph, new RouteCache(graph, routingConfig), routingEngines,
+                new ReachabilityIndex(graph, routingConfig),
+                new RoutingMetrics(registry, graph, routingConfig),
+                new MutationLog(graph, new PersistenceConfig(), new GraphLoaderConfig()), Runnable::run);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.paymentoptimization.service;
+
+import com.example.paymentoptimization.config.RoutingConfig;
+import com.example.paymentoptimization.model.CompactGraph;
+import com.example.paymentoptimization.model.Graph;
+import com.example.paymentoptimization.routing.Route;
+import com.example.paymentoptimization.routing.RoutingEngine;
+import com.example.paymentoptimization.routing.WorkspaceDijkstraEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchCoalescerTest {
+    private static final int QUERIES = 32;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CompactGraph graph;
+    private SearchCoalescer coalescer;
+
+    @BeforeEach
+    public void setUp() {
+        Graph live = new Graph();
+        for (int i = 0; i < 10; i++) {
+            live.addBranch("B" + i, i);
+        }
+        for (int i = 0; i + 1 < 10; i++) {
+            live.addEdge("B" + i, "B" + (i + 1));
+        }
+        graph = live.snapshot();
+        coalescer = new SearchCoalescer(new RoutingMetrics(registry, live, new RoutingConfig()));
+    }
+
+    @Test
+    public void testIdenticalQueriesShareSearches() throws Exception {
+        SlowEngine engine = new SlowEngine();
+
+        List<Route> routes = runConcurrently(engine, i -> 9);
+
+        Route expected = new WorkspaceDijkstraEngine().route(graph, 0, 9);
+        for (Route route : routes) {
+            assertArrayEquals(expected.getBranches(), route.getBranches());
+        }
+        assertTrue(engine.searches.get() < QUERIES, engine.searches.get() + " searches");
+        assertEquals(QUERIES, engine.searches.get() + coalesced(), "Every query is either searched or coalesced");
+    }
+
+    @Test
+    public void testQueriesFromOneOriginShareASearch() throws Exception {
+        SlowEngine engine = new SlowEngine();
+
+        List<Route> routes = runConcurrently(engine, i -> 1 + i % 9);
+
+        for (int i = 0; i < QUERIES; i++) {
+            assertEquals(new WorkspaceDijkstraEngine().route(graph, 0, 1 + i % 9).getCost(), routes.get(i).getCost());
+        }
+        assertTrue(engine.manyToOneSearches.get() > 0, "Different destinations are searched together");
+        assertEquals(QUERIES, engine.searches.get() + coalesced());
+    }
+
+    @Test
+    public void testDifferentOriginsSearchConcurrently() throws Exception {
+        CountDownLatch bothSearching = new CountDownLatch(2);
+        RoutingEngine engine = new WorkspaceDijkstraEngine() {
+            @Override
+            public Route route(CompactGraph snapshot, int origin, int destination) {
+                bothSearching.countDown();
+                try {
+                    // Only returns in time if the other origin's search is running at the same moment
+                    assertTrue(bothSearching.await(5, TimeUnit.SECONDS), "Origin " + origin + " searched alone");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.route(snapshot, origin, destination);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Route> first = executor.submit(() -> coalescer.route(engine, graph, 0, 9));
+            Future<Route> second = executor.submit(() -> coalescer.route(engine, graph, 1, 9));
+
+            assertEquals(0, first.get().origin());
+            assertEquals(1, second.get().origin());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailuresReachEveryWaitingQuery() {
+        RoutingEngine failing = new WorkspaceDijkstraEngine() {
+            @Override
+            public Route route(CompactGraph snapshot, int origin, int destination) {
+                throw new IllegalStateException("Search failed");
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> coalescer.route(failing, graph, 0, 9));
+        assertNotNull(coalescer.route(new WorkspaceDijkstraEngine(), graph, 0, 9), "The origin is usable afterwards");
+    }
+
+    private List<Route> runConcurrently(RoutingEngine engine, IntUnaryOperator destination)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(QUERIES);
+        try {
+            List<Future<Route>> futures = new ArrayList<>();
+            for (int i = 0; i < QUERIES; i++) {
+                int query = i;
+                futures.add(executor.submit(() -> coalescer.route(engine, graph, 0, destination.applyAsInt(query))));
+            }
+            List<Route> routes = new ArrayList<>();
+            for (Future<Route> future : futures) {
+                routes.add(future.get());
+            }
+            return routes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double coalesced() {
+        return registry.get("routing.search.coalesced").counter().count();
+    }
+
+    // Slow enough that the other queries join the first search or wait behind it
+    private static final class SlowEngine extends WorkspaceDijkstraEngine {
+        private final AtomicInteger searches = new AtomicInteger();
+        private final AtomicInteger manyToOneSearches = new AtomicInteger();
+
+        @Override
+        public Route route(CompactGraph graph, int origin, int destination) {
+            searches.incrementAndGet();
+            pause();
+            return super.route(graph, origin, destination);
+        }
+
+        @Override
+        public Route[] routes(CompactGraph graph, int origin, int[] destinations) {
+            searches.incrementAndGet();
+            manyToOneSearches.incrementAndGet();
+            pause();
+            return super.routes(graph, origin, destinations);
+        }
+
+        private static void pause() {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}